@@ -22,12 +22,12 @@
 package com.gwerry;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.bukkit.entity.Player;
 
-import com.gwerry.utils.UuidUtil;
-
 /**
  * @brief A class that represents a custom player with a list of friends.
  *
@@ -36,76 +36,79 @@ import com.gwerry.utils.UuidUtil;
  */
 public class CustomPlayer {
     private final Player player; // player object
-    private ArrayList<UUID> friends; // uuif of all friends
+    private final AtomicReference<FriendSnapshot> friends; // current snapshot of all friends, replaced on every change
 
     /**
      * @brief Constructs a new CustomPlayer with the given player and friends.
      * @param p the player object
-     * @param friends the list of friends' UUIDs, or null if none
+     * @param friends the friends' UUIDs, which are copied, or null if none
      */
-    public CustomPlayer(Player p, ArrayList<UUID> friends) {
+    public CustomPlayer(Player p, Collection<UUID> friends) {
         this.player = p;
-        this.friends = (friends != null) ? friends : new ArrayList<UUID>();
+        this.friends = new AtomicReference<>((friends != null) ? FriendSnapshot.of(friends) : FriendSnapshot.EMPTY);
     }
 
     /**
-     * @brief Invites another CustomPlayer to be a friend.
-     * @param p the CustomPlayer to invite
+     * @brief Invites a player whose name was already resolved to be a friend. The player does not have to be online,
+     * they get the invite when they join.
+     * @param id the UUID of the player to invite, or null if no player has that name
+     * @param name the name of the player to invite
      */
-    public void inviteFriend(CustomPlayer p) {
-        if(p == this) {
-            player.sendMessage(Data.CANT_FRIEND_SELF);
+    public void inviteFriend(UUID id, String name) {
+        if(id == null) {
+            player.sendMessage(Data.PLAYER_NOT_EXISTS);
             return;
         }
 
-        if(p == null) {
-            player.sendMessage(Data.PLAYER_NOT_ONLINE);
+        if(id.equals(player.getUniqueId())) {
+            player.sendMessage(Data.CANT_FRIEND_SELF);
             return;
         }
 
-        Player recieverPlayer = p.getPlayer();
-
-        if(isFriend(p)) {
-            player.sendMessage(Data.ALREADY_FRIENDS.replace("%reciever_name%", recieverPlayer.getName()));
+        if(isFriend(id)) {
+            player.sendMessage(Data.ALREADY_FRIENDS.render("reciever_name", name));
             return;
         }
 
-        boolean created = PlayerManager.createFriendRequest(player.getUniqueId(), recieverPlayer.getUniqueId());
+        boolean created = PlayerManager.createFriendRequest(player.getUniqueId(), id, name);
         if(created) {
-            player.sendMessage(Data.FRIEND_REQUEST_SENDER.replace("%reciever_name%", recieverPlayer.getName()));
-            recieverPlayer.sendMessage(Data.FRIEND_REQUEST_RECIEVER.replace("%sender_name%", player.getName()));
+            player.sendMessage(Data.FRIEND_REQUEST_SENDER.render("reciever_name", name));
+            CustomPlayer target = PlayerManager.getPlayer(id);
+            if(target != null) {
+                target.getPlayer().sendMessage(Data.FRIEND_REQUEST_RECIEVER.render(
+                        "sender_name", player.getName(),
+                        "ttl", Long.toString(Data.FRIEND_REQUEST_TTL_SECONDS)));
+            }
         }
     }
 
     /**
-     * @brief Removes a friend by name.
+     * @brief Removes a friend whose name was already resolved.
+     * @param id the UUID of the friend to remove, or null if no player has that name
      * @param name the name of the friend to remove
      */
-    public void kickFriend(String name) {
-        UUID id = UuidUtil.getUuid(name);
+    public void kickFriend(UUID id, String name) {
         if(id == null) {
              player.sendMessage(Data.PLAYER_NOT_EXISTS);
             return;
         }
 
-        if(!friends.contains(id)){
-            player.sendMessage(Data.FRIEND_NOT_FOUND.replace("%reciever_name%", name));
+        if(!isFriend(id)){
+            player.sendMessage(Data.FRIEND_NOT_FOUND.render("reciever_name", name));
             return;
         }
 
-        friends.remove(id);
-
-        savePlayerData();
+        removeFriend(id);
 
         CustomPlayer target = PlayerManager.getPlayer(id);
         if(target != null) {
             target.removeFriend(player.getUniqueId());
-            target.getPlayer().sendMessage(Data.FRIEND_REMOVE.replace("%reciever_name%", player.getName()));
+            target.getPlayer().sendMessage(Data.FRIEND_REMOVE.render("reciever_name", player.getName()));
         }
 
-        PlayerManager.updateFriendsRemove(id, player.getUniqueId());
+        PlayerManager.removeFriendship(player.getUniqueId(), id);
 
-        player.sendMessage(Data.FRIEND_REMOVE.replace("%reciever_name%", name));
+        player.sendMessage(Data.FRIEND_REMOVE.render("reciever_name", name));
     }
 
     /**
@@ -114,63 +117,68 @@ public class CustomPlayer {
      * @return true if they are friends, false otherwise
      */
     public boolean isFriend(CustomPlayer other) {
-        return friends.contains(other.getPlayer().getUniqueId());
+        return isFriend(other.getPlayer().getUniqueId());
+    }
+
+    /**
+     * @brief Checks if a player is a friend.
+     * @param other the UUID of the player to check
+     * @return true if they are friends, false otherwise
+     */
+    public boolean isFriend(UUID other) {
+        return friends.get().contains(other);
     }
 
     /**
-     * @brief Accepts a friend request from another player by name.
+     * @brief Accepts a friend request from a player whose name was already resolved.
+     * @param id the UUID of the player who sent the request, or null if no player has that name
      * @param name the name of the player who sent the request
      */
-    public void acceptInvite(String name) {
-        UUID id = UuidUtil.getUuid(name);
+    public void acceptInvite(UUID id, String name) {
         if(id == null) {
             player.sendMessage(Data.PLAYER_NOT_EXISTS);
             return;
         }
 
-        if(!getIncomingFriendRequests().contains(id)) {
-            player.sendMessage(Data.FRIEND_REQUEST_NOT_EXIST.replace("%reciever_name%", name));
+        if(!PlayerManager.removeRequest(id, player.getUniqueId())) {
+            player.sendMessage(Data.FRIEND_REQUEST_NOT_EXIST.render("reciever_name", name));
             return;
         }
 
         CustomPlayer target = PlayerManager.getPlayer(id);
         if(target != null) {
             target.addFriend(player.getUniqueId());
-            target.getPlayer().sendMessage(Data.FRIEND_REQUEST_ACCEPT.replace("%sender_name%", player.getName()));
+            target.getPlayer().sendMessage(Data.FRIEND_REQUEST_ACCEPT.render("sender_name", player.getName()));
         }
 
-        PlayerManager.updateFriendsAdd(id, player.getUniqueId());
-
         addFriend(id);
-        savePlayerData();
-        player.sendMessage(Data.FRIEND_REQUEST_ACCEPT.replace("%sender_name%", name));
-        PlayerManager.removeRequest(id, player.getUniqueId());
+        PlayerManager.addFriendship(id, player.getUniqueId());
+
+        player.sendMessage(Data.FRIEND_REQUEST_ACCEPT.render("sender_name", name));
     }
 
     /**
-     * @brief Denies a friend request from another player by name.
+     * @brief Denies a friend request from a player whose name was already resolved.
+     * @param id the UUID of the player who sent the request, or null if no player has that name
      * @param name the name of the player who sent the request
      */
-    public void denyInvite(String name) {
-        UUID id = UuidUtil.getUuid(name);
+    public void denyInvite(UUID id, String name) {
         if(id == null) {
             player.sendMessage(Data.PLAYER_NOT_EXISTS);
             return;
         }
 
-        if(!getIncomingFriendRequests().contains(id)) {
-            player.sendMessage(Data.FRIEND_REQUEST_NOT_EXIST.replace("%reciever_name%", name));
+        if(!PlayerManager.removeRequest(id, player.getUniqueId())) {
+            player.sendMessage(Data.FRIEND_REQUEST_NOT_EXIST.render("reciever_name", name));
             return;
         }
 
         CustomPlayer target = PlayerManager.getPlayer(id);
         if(target != null) {
-            target.getPlayer().sendMessage(Data.FRIEND_REQUEST_DENY_RECEIVER.replace("%sender_name%", name));
+            target.getPlayer().sendMessage(Data.FRIEND_REQUEST_DENY_RECEIVER.render("sender_name", name));
         }
 
-        player.sendMessage(Data.FRIEND_REQUEST_DENY_SENDER.replace("%reciever_name%", name));
-
-        PlayerManager.removeRequest(id, player.getUniqueId());
+        player.sendMessage(Data.FRIEND_REQUEST_DENY_SENDER.render("reciever_name", name));
     }
 
     /**
@@ -178,7 +186,9 @@ public class CustomPlayer {
      * @param other the UUID of the friend to add
      */
     public void addFriend(UUID other) {
-        friends.add(other);
+        friends.updateAndGet(current -> current.with(other));
+        PresenceIndex.friendAdded(player.getUniqueId(), other);
+        FriendListRenderer.invalidate(player.getUniqueId());
     }
 
     /**
@@ -186,7 +196,9 @@ public class CustomPlayer {
      * @param other the UUID of the friend to remove
      */
     public void removeFriend(UUID other) {
-        friends.remove(other);
+        friends.updateAndGet(current -> current.without(other));
+        PresenceIndex.friendRemoved(player.getUniqueId(), other);
+        FriendListRenderer.invalidate(player.getUniqueId());
     }
 
     /**
@@ -206,25 +218,26 @@ public class CustomPlayer {
     }
 
     /**
-     * @brief Gets the list of friends.
-     * @return an ArrayList of UUIDs representing the friends
+     * @brief Gets the friends as they are right now. The snapshot never changes, so it is safe to read from any thread.
+     * @return the current snapshot of the friends
      */
-    public ArrayList<UUID> getFriendList() {
-        return friends;
+    public FriendSnapshot getFriends() {
+        return friends.get();
     }
 
     /**
-     * @brief Gets the player object.
-     * @return the player object
+     * @brief Gets the number of friends.
+     * @return the number of friends
      */
-    public Player getPlayer() {
-        return player;
+    public int getFriendCount() {
+        return friends.get().size();
     }
 
     /**
-     * @brief Saves the player data to the file system.
+     * @brief Gets the player object.
+     * @return the player object
      */
-    public void savePlayerData() {
-        PlayerManager.savePlayer(this);
+    public Player getPlayer() {
+        return player;
     }
 }
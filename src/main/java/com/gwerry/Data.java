@@ -26,12 +26,14 @@ import java.util.List;
 import org.bukkit.configuration.file.YamlConfiguration;
 
 import com.gwerry.io.IYamlConfig;
+import com.gwerry.utils.MessageTemplate;
 
 /**
  * @brief The Data class contains a bunch of static values that the user can change in the config.yml.
  * These messages are used to communicate with the player in different situations such as when a player joins or leaves,
  * sends a friend invite, accepts a friend invite, removes a friend, and more.
  * The messages are color-coded using Minecraft's color codes, which are represented by the "§" character followed by a hexadecimal digit.
+ * Messages with placeholders are parsed into MessageTemplates once, when the config is loaded.
  *
  * @author gwerry
  * @since 1.0
@@ -47,36 +49,77 @@ public class Data {
     public static String PLAYER_NOT_ONLINE;
     public static String NOT_EVEN_POSSIBLE;
 
-    public static String FRIEND_NOT_FOUND;
+    public static MessageTemplate FRIEND_NOT_FOUND;
     public static String PLAYER_NOT_EXISTS;
 
-    public static String FRIEND_REMOVE;
-    public static String ALREADY_FRIENDS;
+    public static MessageTemplate FRIEND_REMOVE;
+    public static MessageTemplate ALREADY_FRIENDS;
 
-    public static String FRIEND_REQUEST_RECIEVER;
-    public static String FRIEND_REQUEST_SENDER;
-    public static String FRIEND_REQUEST_ACCEPT;
-    public static String FRIEND_REQUEST_ALREADY_SENT;
-    public static String FRIEND_REQUEST_ALREADY_RECIEVED;
-    public static String FRIEND_REQUEST_NOT_EXIST;
-    public static String FRIEND_REQUEST_DENY_SENDER;
-    public static String FRIEND_REQUEST_DENY_RECEIVER;
+    public static MessageTemplate FRIEND_REQUEST_RECIEVER;
+    public static MessageTemplate FRIEND_REQUEST_SENDER;
+    public static MessageTemplate FRIEND_REQUEST_ACCEPT;
+    public static MessageTemplate FRIEND_REQUEST_ALREADY_SENT;
+    public static MessageTemplate FRIEND_REQUEST_ALREADY_RECIEVED;
+    public static MessageTemplate FRIEND_REQUEST_NOT_EXIST;
+    public static MessageTemplate FRIEND_REQUEST_DENY_SENDER;
+    public static MessageTemplate FRIEND_REQUEST_DENY_RECEIVER;
 
-    public static String FRIEND_LIST;
-    public static String FRIEND_LIST_SINGLE;
+    public static MessageTemplate FRIEND_LIST;
+    public static MessageTemplate FRIEND_LIST_SINGLE;
     public static String ONLINE_TEXT;
     public static String OFFLINE_TEXT;
+    public static int FRIEND_LIST_PAGE_SIZE;
 
     public static String CANT_FRIEND_SELF;
-    public static String FRIEND_JOIN;
-    public static String FRIEND_LEAVE;
+    public static MessageTemplate FRIEND_JOIN;
+    public static MessageTemplate FRIEND_LEAVE;
+    public static MessageTemplate FRIEND_JOIN_MULTIPLE;
+    public static MessageTemplate FRIEND_LEAVE_MULTIPLE;
+    public static long NOTIFICATION_WINDOW_TICKS;
 
     public static String FRIEND_HELP_TEXT;
+    public static String LOGIN_LOAD_FAILED;
+    public static String COMMAND_RATE_LIMITED;
 
-    public static int DB_MAX_CONNECTIONS;
-    public static int DB_INITIAL_CONNECTIONS;
-    public static int DB_MAX_IDLE_CONNECTIONS;
-    public static int DB_MIN_IDLE_CONNECTIONS;
+    public static String DB_BACKEND;
+    public static int DB_READ_CONNECTIONS;
+    public static String DB_JOURNAL_MODE;
+    public static String DB_SYNCHRONOUS;
+    public static long DB_MMAP_SIZE_MB;
+    public static int DB_CACHE_SIZE_KB;
+    public static int DB_BUSY_TIMEOUT_MS;
+    public static boolean DB_DEBUG;
+    public static boolean DB_PACKED_UUIDS;
+    public static long DB_JOURNAL_CHUNK_SIZE_MB;
+    public static double DB_JOURNAL_COMPACT_DEAD_RATIO;
+    public static long DB_JOURNAL_COMPACT_MIN_RECORDS;
+    public static long DB_JOURNAL_COMPACT_CHECK_SECONDS;
+    public static int DB_WRITE_QUEUE_CAPACITY;
+    public static long DB_WRITE_FLUSH_INTERVAL_MS;
+
+    public static int COMMAND_THREADS;
+    public static double COMMAND_RATE_LIMIT_PER_SECOND;
+    public static int COMMAND_RATE_LIMIT_BURST;
+    public static double INVITE_RATE_LIMIT_PER_SECOND;
+    public static int INVITE_RATE_LIMIT_BURST;
+    public static long COMMAND_RATE_LIMIT_IDLE_SECONDS;
+    public static long FRIEND_REQUEST_TTL_SECONDS;
+    public static long FRIEND_REQUEST_PURGE_INTERVAL_SECONDS;
+    public static int FRIEND_REQUEST_PURGE_BATCH_SIZE;
+
+    public static String UUID_API_PROFILE_URL;
+    public static String UUID_API_BULK_URL;
+    public static long UUID_API_BATCH_WINDOW_MS;
+    public static double UUID_API_RATE_PER_SECOND;
+    public static int UUID_API_BURST;
+    public static long UUID_API_TIMEOUT_MS;
+    public static int UUID_CACHE_MAX_SIZE;
+    public static long UUID_CACHE_HIT_TTL_SECONDS;
+    public static long UUID_CACHE_MISS_TTL_SECONDS;
+
+    public static long LOGIN_LOAD_TIMEOUT_MS;
+    public static boolean LOGIN_KICK_ON_LOAD_FAILURE;
+    public static long LOGIN_STAGING_TTL_MS;
 
     /**
      * @brief Loads data from the config file.
@@ -93,30 +136,71 @@ public class Data {
         NO_PERMISSION = conf.getString("messages.NO_PERMISSION");
         PLAYER_NOT_ONLINE = conf.getString("messages.PLAYER_NOT_ONLINE");
         NOT_EVEN_POSSIBLE = conf.getString("messages.NOT_EVEN_POSSIBLE");
-        FRIEND_NOT_FOUND = conf.getString("messages.FRIEND_NOT_FOUND");
+        FRIEND_NOT_FOUND = MessageTemplate.compile(conf.getString("messages.FRIEND_NOT_FOUND"));
         PLAYER_NOT_EXISTS = conf.getString("messages.PLAYER_NOT_EXISTS");
-        FRIEND_REQUEST_RECIEVER = conf.getString("messages.FRIEND_REQUEST_RECIEVER");
-        FRIEND_REQUEST_SENDER = conf.getString("messages.FRIEND_REQUEST_SENDER");
-        FRIEND_REQUEST_ACCEPT = conf.getString("messages.FRIEND_REQUEST_ACCEPT");
-        FRIEND_REMOVE = conf.getString("messages.FRIEND_REMOVE");
-        ALREADY_FRIENDS = conf.getString("messages.ALREADY_FRIENDS");
-        FRIEND_REQUEST_ALREADY_SENT = conf.getString("messages.FRIEND_REQUEST_ALREADY_SENT");
-        FRIEND_REQUEST_ALREADY_RECIEVED = conf.getString("messages.FRIEND_REQUEST_ALREADY_RECIEVED");
-        FRIEND_REQUEST_NOT_EXIST = conf.getString("messages.FRIEND_REQUEST_NOT_EXIST");
-        FRIEND_REQUEST_DENY_SENDER = conf.getString("messages.FRIEND_REQUEST_DENY_SENDER");
-        FRIEND_REQUEST_DENY_RECEIVER = conf.getString("messages.FRIEND_REQUEST_DENY_RECEIVER");
-        FRIEND_LIST = conf.getString("messages.FRIEND_LIST");
-        FRIEND_LIST_SINGLE = conf.getString("messages.FRIEND_LIST_SINGLE");
+        FRIEND_REQUEST_RECIEVER = MessageTemplate.compile(conf.getString("messages.FRIEND_REQUEST_RECIEVER"));
+        FRIEND_REQUEST_SENDER = MessageTemplate.compile(conf.getString("messages.FRIEND_REQUEST_SENDER"));
+        FRIEND_REQUEST_ACCEPT = MessageTemplate.compile(conf.getString("messages.FRIEND_REQUEST_ACCEPT"));
+        FRIEND_REMOVE = MessageTemplate.compile(conf.getString("messages.FRIEND_REMOVE"));
+        ALREADY_FRIENDS = MessageTemplate.compile(conf.getString("messages.ALREADY_FRIENDS"));
+        FRIEND_REQUEST_ALREADY_SENT = MessageTemplate.compile(conf.getString("messages.FRIEND_REQUEST_ALREADY_SENT"));
+        FRIEND_REQUEST_ALREADY_RECIEVED = MessageTemplate.compile(conf.getString("messages.FRIEND_REQUEST_ALREADY_RECIEVED"));
+        FRIEND_REQUEST_NOT_EXIST = MessageTemplate.compile(conf.getString("messages.FRIEND_REQUEST_NOT_EXIST"));
+        FRIEND_REQUEST_DENY_SENDER = MessageTemplate.compile(conf.getString("messages.FRIEND_REQUEST_DENY_SENDER"));
+        FRIEND_REQUEST_DENY_RECEIVER = MessageTemplate.compile(conf.getString("messages.FRIEND_REQUEST_DENY_RECEIVER"));
+        FRIEND_LIST = MessageTemplate.compile(conf.getString("messages.FRIEND_LIST"));
+        FRIEND_LIST_SINGLE = MessageTemplate.compile(conf.getString("messages.FRIEND_LIST_SINGLE"));
         ONLINE_TEXT = conf.getString("messages.ONLINE_TEXT");
         OFFLINE_TEXT = conf.getString("messages.OFFLINE_TEXT");
+        FRIEND_LIST_PAGE_SIZE = conf.getInt("friend_list.page_size", 10);
         CANT_FRIEND_SELF = conf.getString("messages.CANT_FRIEND_SELF");
-        FRIEND_JOIN = conf.getString("messages.FRIEND_JOIN");
-        FRIEND_LEAVE = conf.getString("messages.FRIEND_LEAVE");
+        FRIEND_JOIN = MessageTemplate.compile(conf.getString("messages.FRIEND_JOIN"));
+        FRIEND_LEAVE = MessageTemplate.compile(conf.getString("messages.FRIEND_LEAVE"));
+        FRIEND_JOIN_MULTIPLE = MessageTemplate.compile(conf.getString("messages.FRIEND_JOIN_MULTIPLE", "§b%count% §afriends joined: §b%friend_names%"));
+        FRIEND_LEAVE_MULTIPLE = MessageTemplate.compile(conf.getString("messages.FRIEND_LEAVE_MULTIPLE", "§b%count% §cfriends left: §b%friend_names%"));
+        NOTIFICATION_WINDOW_TICKS = conf.getLong("notifications.window_ticks", 1);
         FRIEND_HELP_TEXT = conf.getString("messages.FRIEND_HELP_TEXT");
+        LOGIN_LOAD_FAILED = conf.getString("messages.LOGIN_LOAD_FAILED", "§cCould not load your friends. Please try again.");
+        COMMAND_RATE_LIMITED = conf.getString("messages.COMMAND_RATE_LIMITED", "§cYou are using friend commands too fast, slow down a little.");
+
+        DB_BACKEND = conf.getString("database.backend", "sqlite");
+        DB_READ_CONNECTIONS = conf.getInt("database.read_connections", 4);
+        DB_JOURNAL_MODE = conf.getString("database.journal_mode", "WAL");
+        DB_SYNCHRONOUS = conf.getString("database.synchronous", "NORMAL");
+        DB_MMAP_SIZE_MB = conf.getLong("database.mmap_size_mb", 64);
+        DB_CACHE_SIZE_KB = conf.getInt("database.cache_size_kb", 8192);
+        DB_BUSY_TIMEOUT_MS = conf.getInt("database.busy_timeout_ms", 5000);
+        DB_DEBUG = conf.getBoolean("database.debug", false);
+        DB_PACKED_UUIDS = conf.getBoolean("database.packed_uuids", true);
+        DB_JOURNAL_CHUNK_SIZE_MB = conf.getLong("database.journal.chunk_size_mb", 4);
+        DB_JOURNAL_COMPACT_DEAD_RATIO = conf.getDouble("database.journal.compact_dead_ratio", 0.5);
+        DB_JOURNAL_COMPACT_MIN_RECORDS = conf.getLong("database.journal.compact_min_records", 10000);
+        DB_JOURNAL_COMPACT_CHECK_SECONDS = conf.getLong("database.journal.compact_check_seconds", 60);
+        DB_WRITE_QUEUE_CAPACITY = conf.getInt("database.write_queue.capacity", 10000);
+        DB_WRITE_FLUSH_INTERVAL_MS = conf.getLong("database.write_queue.flush_interval_ms", 50);
+
+        COMMAND_THREADS = conf.getInt("commands.threads", 2);
+        COMMAND_RATE_LIMIT_PER_SECOND = conf.getDouble("commands.rate_limit.rate_per_second", 2);
+        COMMAND_RATE_LIMIT_BURST = conf.getInt("commands.rate_limit.burst", 5);
+        INVITE_RATE_LIMIT_PER_SECOND = conf.getDouble("commands.rate_limit.invite_rate_per_second", 0.2);
+        INVITE_RATE_LIMIT_BURST = conf.getInt("commands.rate_limit.invite_burst", 3);
+        COMMAND_RATE_LIMIT_IDLE_SECONDS = conf.getLong("commands.rate_limit.idle_seconds", 300);
+        FRIEND_REQUEST_TTL_SECONDS = conf.getLong("friend_requests.ttl_seconds", 120);
+        FRIEND_REQUEST_PURGE_INTERVAL_SECONDS = conf.getLong("friend_requests.purge_interval_seconds", 300);
+        FRIEND_REQUEST_PURGE_BATCH_SIZE = conf.getInt("friend_requests.purge_batch_size", 500);
+
+        UUID_API_PROFILE_URL = conf.getString("uuid_api.profile_url", "https://api.mojang.com/users/profiles/minecraft/");
+        UUID_API_BULK_URL = conf.getString("uuid_api.bulk_url", "https://api.minecraftservices.com/minecraft/profile/lookup/bulk/byname");
+        UUID_API_BATCH_WINDOW_MS = conf.getLong("uuid_api.batch_window_ms", 20);
+        UUID_API_RATE_PER_SECOND = conf.getDouble("uuid_api.rate_per_second", 2);
+        UUID_API_BURST = conf.getInt("uuid_api.burst", 10);
+        UUID_API_TIMEOUT_MS = conf.getLong("uuid_api.timeout_ms", 5000);
+        UUID_CACHE_MAX_SIZE = conf.getInt("uuid_cache.max_size", 1000);
+        UUID_CACHE_HIT_TTL_SECONDS = conf.getLong("uuid_cache.hit_ttl_seconds", 3600);
+        UUID_CACHE_MISS_TTL_SECONDS = conf.getLong("uuid_cache.miss_ttl_seconds", 60);
 
-        DB_MAX_CONNECTIONS = conf.getInt("database.max_connections");
-        DB_INITIAL_CONNECTIONS = conf.getInt("database.initial_connections");
-        DB_MAX_IDLE_CONNECTIONS = conf.getInt("database.max_idle_connections");
-        DB_MIN_IDLE_CONNECTIONS = conf.getInt("min_idle_connections");
+        LOGIN_LOAD_TIMEOUT_MS = conf.getLong("login.load_timeout_ms", 5000);
+        LOGIN_KICK_ON_LOAD_FAILURE = conf.getString("login.on_load_failure", "KICK").equalsIgnoreCase("KICK");
+        LOGIN_STAGING_TTL_MS = conf.getLong("login.staging_ttl_ms", 60000);
     }
 }
\ No newline at end of file
@@ -0,0 +1,247 @@
+/**
+ * @file FriendListRenderer.java
+ * @author gwerry
+ * @brief The FriendListRenderer class renders and caches the pages of /friend list.
+ * @version 1.0
+ * @date 2026/10/18
+ *
+ * Copyright 2024 gwerry
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gwerry;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.gwerry.io.FriendStore;
+import com.gwerry.utils.UserCacheFile;
+
+/**
+ * @brief The FriendListRenderer class renders and caches the pages of /friend list.
+ * Names come from the players that are online and from a local cache of names that is filled on join and
+ * from the friend store, so rendering never asks Bukkit for OfflinePlayers. Names the store does not have yet,
+ * of friends that did not join since the store started keeping names, are read from the server's usercache.json.
+ * Online friends are listed first.
+ * Rendering runs on a command thread, only sending the page happens on the server thread.
+ * The rendered pages of a player are kept until the player's friends change or one of them joins or leaves.
+ *
+ * @author gwerry
+ * @since 1.1
+ */
+public class FriendListRenderer {
+    private static final int MAX_NAMES = 10000;
+
+    /**
+     * @brief The rendered pages of one player, tagged with the version they were rendered for.
+     * pages is null while the list has to be rendered again.
+     */
+    private static class Rendered {
+        final long version;
+        final List<String> pages;
+
+        Rendered(long version, List<String> pages) {
+            this.version = version;
+            this.pages = pages;
+        }
+    }
+
+    /**
+     * @brief A friend as it is shown in the list.
+     */
+    private static class Entry {
+        final String name;
+        final boolean online;
+
+        Entry(String name, boolean online) {
+            this.name = name;
+            this.online = online;
+        }
+    }
+
+    private static ConcurrentMap<UUID, Rendered> rendered = new ConcurrentHashMap<>();
+    private static Map<UUID, String> names = new LinkedHashMap<UUID, String>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<UUID, String> eldest) {
+            return size() > MAX_NAMES;
+        }
+    };
+
+    private static volatile UserCacheFile userCache;
+
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong renders = new AtomicLong();
+
+    /**
+     * @brief Sets the server's usercache.json, where names are looked up that the friend store does not know.
+     *
+     * @param cache The user cache of the server.
+     */
+    public static void setUserCache(UserCacheFile cache) {
+        userCache = cache;
+    }
+
+    /**
+     * @brief Remembers the name of a player for later lists.
+     *
+     * @param uuid The UUID of the player.
+     * @param name The name of the player.
+     */
+    public static void rememberName(UUID uuid, String name) {
+        synchronized (names) {
+            names.put(uuid, name);
+        }
+    }
+
+    /**
+     * @brief Drops the rendered pages of a player, because their friends or their friends' presence changed.
+     *
+     * @param uuid The UUID of the player whose list changed.
+     */
+    public static void invalidate(UUID uuid) {
+        rendered.computeIfPresent(uuid, (key, old) -> new Rendered(old.version + 1, null));
+    }
+
+    /**
+     * @brief Drops the rendered pages of every friend of a player that joined or left.
+     *
+     * @param friends The friends of the player.
+     */
+    public static void presenceChanged(Iterable<UUID> friends) {
+        for (UUID friend : friends) invalidate(friend);
+    }
+
+    /**
+     * @brief Forgets the pages of a player that left.
+     *
+     * @param uuid The UUID of the player.
+     */
+    public static void forget(UUID uuid) {
+        rendered.remove(uuid);
+    }
+
+    /**
+     * @brief Sends a page of a player's friend list, rendering it off the server thread if it is not cached.
+     * Must be called on the server thread.
+     *
+     * @param player The player to send the list to.
+     * @param page The page to send, starting at 1. Out of range pages are clamped.
+     */
+    public static void show(CustomPlayer player, int page) {
+        UUID uuid = player.getPlayer().getUniqueId();
+        Rendered current = rendered.computeIfAbsent(uuid, key -> new Rendered(0, null));
+        if (current.pages != null) {
+            hits.incrementAndGet();
+            send(player, current.pages, page);
+            return;
+        }
+
+        // Everything the render needs from the server thread is copied here, the friends are an immutable snapshot
+        long version = current.version;
+        FriendSnapshot friends = player.getFriends();
+        HashMap<UUID, String> online = new HashMap<>();
+        for (UUID friend : friends) {
+            CustomPlayer other = PlayerManager.getPlayer(friend);
+            if (other != null) online.put(friend, other.getPlayer().getName());
+        }
+
+        SimpleFriends.getCommandPipeline().supplyThen(player, () -> render(friends, online), pages -> {
+            rendered.computeIfPresent(uuid, (key, old) -> old.version == version ? new Rendered(version, pages) : old);
+            send(player, pages, page);
+        });
+    }
+
+    /**
+     * @brief Gets a one line summary of the cache metrics.
+     * @return The renderer metrics.
+     */
+    public static String getStats() {
+        return "cachedPages=" + hits.get() + " renders=" + renders.get();
+    }
+
+    private static List<String> render(FriendSnapshot friends, HashMap<UUID, String> online) {
+        renders.incrementAndGet();
+
+        ArrayList<UUID> missing = new ArrayList<>();
+        ArrayList<Entry> entries = new ArrayList<>(friends.size());
+        synchronized (names) {
+            for (UUID friend : friends) {
+                if (online.containsKey(friend)) continue;
+                if (!names.containsKey(friend)) missing.add(friend);
+            }
+        }
+
+        FriendStore store = SimpleFriends.getStore();
+        if (!missing.isEmpty() && store != null) {
+            HashMap<UUID, String> loaded = store.loadNames(missing);
+            missing.removeAll(loaded.keySet());
+            synchronized (names) {
+                names.putAll(loaded);
+            }
+        }
+
+        // Friends that did not join since names were stored are still in the server's own cache
+        UserCacheFile cache = userCache;
+        if (!missing.isEmpty() && cache != null) {
+            HashMap<UUID, String> loaded = cache.lookup(missing);
+            synchronized (names) {
+                names.putAll(loaded);
+            }
+        }
+
+        synchronized (names) {
+            for (UUID friend : friends) {
+                String name = online.get(friend);
+                if (name != null) {
+                    entries.add(new Entry(name, true));
+                    continue;
+                }
+                name = names.get(friend);
+                entries.add(new Entry(name != null ? name : friend.toString(), false));
+            }
+        }
+
+        entries.sort((a, b) -> a.online != b.online ? (a.online ? -1 : 1) : a.name.compareToIgnoreCase(b.name));
+
+        int pageSize = Math.max(1, Data.FRIEND_LIST_PAGE_SIZE);
+        ArrayList<String> pages = new ArrayList<>();
+        StringBuilder page = new StringBuilder();
+        for (int i = 0; i < entries.size(); i++) {
+            Entry entry = entries.get(i);
+            Data.FRIEND_LIST_SINGLE.appendTo(page,
+                    "friend_name", entry.name,
+                    "online_status", entry.online ? Data.ONLINE_TEXT : Data.OFFLINE_TEXT).append('\n');
+            if ((i + 1) % pageSize == 0) {
+                pages.add(page.toString());
+                page.setLength(0);
+            }
+        }
+        if (page.length() > 0 || pages.isEmpty()) pages.add(page.toString());
+        return pages;
+    }
+
+    private static void send(CustomPlayer player, List<String> pages, int page) {
+        int index = Math.min(Math.max(page, 1), pages.size());
+        player.getPlayer().sendMessage(Data.FRIEND_LIST.render(
+                "page", Integer.toString(index),
+                "pages", Integer.toString(pages.size()),
+                "friends", pages.get(index - 1)));
+    }
+}
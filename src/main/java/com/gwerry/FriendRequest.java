@@ -0,0 +1,70 @@
+/**
+ * @file FriendRequest.java
+ * @author gwerry
+ * @brief The FriendRequest class is a pending friend invite from one player to another.
+ * @version 1.0
+ * @date 2026/10/18
+ *
+ * Copyright 2024 gwerry
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gwerry;
+
+import java.util.UUID;
+
+import com.gwerry.utils.HashedTimingWheel;
+
+/**
+ * @brief The FriendRequest class is a pending friend invite from one player to another.
+ * It holds the handle of its expiry, so accepting or denying the invite can cancel it.
+ * Requests are compared by identity, a new invite between the same players is a new request.
+ *
+ * @author gwerry
+ * @since 1.1
+ */
+public class FriendRequest {
+    public final UUID sender;
+    public final UUID receiver;
+    public final long expiresAt;
+    private volatile HashedTimingWheel.Timeout expiry;
+
+    /**
+     * @brief Constructs a new FriendRequest.
+     *
+     * @param sender The UUID of the player sending the request.
+     * @param receiver The UUID of the player receiving the request.
+     * @param expiresAt When the request expires, in milliseconds since the epoch.
+     */
+    public FriendRequest(UUID sender, UUID receiver, long expiresAt) {
+        this.sender = sender;
+        this.receiver = receiver;
+        this.expiresAt = expiresAt;
+    }
+
+    /**
+     * @brief Sets the handle of the task that expires this request.
+     * @param expiry The scheduled expiry.
+     */
+    public void setExpiry(HashedTimingWheel.Timeout expiry) {
+        this.expiry = expiry;
+    }
+
+    /**
+     * @brief Cancels the expiry of this request, because it was accepted or denied.
+     */
+    public void cancelExpiry() {
+        HashedTimingWheel.Timeout timeout = expiry;
+        if (timeout != null) timeout.cancel();
+    }
+}
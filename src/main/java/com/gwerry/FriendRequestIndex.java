@@ -0,0 +1,154 @@
+/**
+ * @file FriendRequestIndex.java
+ * @author gwerry
+ * @brief The FriendRequestIndex class keeps the pending friend requests, indexed by sender and by receiver.
+ * @version 1.0
+ * @date 2026/10/18
+ *
+ * Copyright 2024 gwerry
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gwerry;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * @brief The FriendRequestIndex class keeps the pending friend requests, indexed by sender and by receiver.
+ * Both indexes map a player to a small concurrent map of their requests, so every lookup only touches the
+ * requests of the player asked about, and reads never take a lock.
+ * Changes take a single lock and update both indexes under it, so adding a request checks both directions
+ * and inserts in one step, and a request is never left behind in only one of the indexes.
+ *
+ * @author gwerry
+ * @since 1.1
+ */
+public class FriendRequestIndex {
+    // Sender to receiver to request
+    private final ConcurrentMap<UUID, ConcurrentMap<UUID, FriendRequest>> bySender = new ConcurrentHashMap<>();
+    // Receiver to sender to request
+    private final ConcurrentMap<UUID, ConcurrentMap<UUID, FriendRequest>> byReceiver = new ConcurrentHashMap<>();
+    private final Object lock = new Object();
+
+    /**
+     * @brief Adds a request unless one between the two players already exists, in either direction.
+     *
+     * @param request The request to add.
+     * @return null if the request was added, otherwise the request that already exists.
+     */
+    public FriendRequest addIfAbsent(FriendRequest request) {
+        synchronized (lock) {
+            FriendRequest existing = get(request.receiver, request.sender);
+            if (existing == null) existing = get(request.sender, request.receiver);
+            if (existing != null) return existing;
+
+            bySender.computeIfAbsent(request.sender, key -> new ConcurrentHashMap<>()).put(request.receiver, request);
+            byReceiver.computeIfAbsent(request.receiver, key -> new ConcurrentHashMap<>()).put(request.sender, request);
+            return null;
+        }
+    }
+
+    /**
+     * @brief Gets the request from one player to another.
+     *
+     * @param sender The UUID of the player who sent the request.
+     * @param receiver The UUID of the player who received the request.
+     * @return The request, or null if there is none.
+     */
+    public FriendRequest get(UUID sender, UUID receiver) {
+        Map<UUID, FriendRequest> requests = bySender.get(sender);
+        return requests != null ? requests.get(receiver) : null;
+    }
+
+    /**
+     * @brief Removes the request from one player to another.
+     *
+     * @param sender The UUID of the player who sent the request.
+     * @param receiver The UUID of the player who received the request.
+     * @return The removed request, or null if there was none.
+     */
+    public FriendRequest remove(UUID sender, UUID receiver) {
+        FriendRequest request = get(sender, receiver);
+        return request != null && remove(request) ? request : null;
+    }
+
+    /**
+     * @brief Removes a request, but only that exact request and not a newer one between the same players.
+     *
+     * @param request The request to remove.
+     * @return true if this call removed the request, false if it was already gone.
+     */
+    public boolean remove(FriendRequest request) {
+        synchronized (lock) {
+            if (!removeFrom(bySender, request.sender, request.receiver, request)) return false;
+            removeFrom(byReceiver, request.receiver, request.sender, request);
+            return true;
+        }
+    }
+
+    /**
+     * @brief Gets the players who sent a player a request.
+     *
+     * @param receiver The UUID of the player.
+     * @return The UUIDs of the senders.
+     */
+    public ArrayList<UUID> getIncoming(UUID receiver) {
+        Map<UUID, FriendRequest> requests = byReceiver.get(receiver);
+        return requests != null ? new ArrayList<>(requests.keySet()) : new ArrayList<>();
+    }
+
+    /**
+     * @brief Gets the players a player sent a request.
+     *
+     * @param sender The UUID of the player.
+     * @return The UUIDs of the receivers.
+     */
+    public ArrayList<UUID> getOutgoing(UUID sender) {
+        Map<UUID, FriendRequest> requests = bySender.get(sender);
+        return requests != null ? new ArrayList<>(requests.keySet()) : new ArrayList<>();
+    }
+
+    /**
+     * @brief Gets the number of pending requests.
+     * @return The number of requests.
+     */
+    public int size() {
+        int size = 0;
+        for (Map<UUID, FriendRequest> requests : bySender.values()) size += requests.size();
+        return size;
+    }
+
+    /**
+     * @brief Removes every request, cancelling their expiry.
+     */
+    public void clear() {
+        synchronized (lock) {
+            for (Map<UUID, FriendRequest> requests : bySender.values()) {
+                for (FriendRequest request : requests.values()) request.cancelExpiry();
+            }
+            bySender.clear();
+            byReceiver.clear();
+        }
+    }
+
+    private static boolean removeFrom(ConcurrentMap<UUID, ConcurrentMap<UUID, FriendRequest>> index, UUID player, UUID other, FriendRequest request) {
+        Map<UUID, FriendRequest> requests = index.get(player);
+        if (requests == null || !requests.remove(other, request)) return false;
+        if (requests.isEmpty()) index.remove(player);
+        return true;
+    }
+}
@@ -0,0 +1,138 @@
+/**
+ * @file FriendSnapshot.java
+ * @author gwerry
+ * @brief The FriendSnapshot class is an immutable view of a player's friends at one point in time.
+ * @version 1.0
+ * @date 2026/10/18
+ *
+ * Copyright 2024 gwerry
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gwerry;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.UUID;
+
+import com.gwerry.utils.UuidSet;
+
+/**
+ * @brief The FriendSnapshot class is an immutable view of a player's friends at one point in time.
+ * A change never touches a published snapshot, it copies the set, changes the copy and publishes that instead.
+ * Any thread can therefore read a snapshot without locks and always sees one consistent friend list,
+ * while the player's friends keep changing. Copying is O(friends), which is fine since friends change rarely
+ * compared to how often they are read.
+ *
+ * @author gwerry
+ * @since 1.1
+ */
+public final class FriendSnapshot implements Iterable<UUID> {
+    public static final FriendSnapshot EMPTY = new FriendSnapshot(new UuidSet());
+
+    // Never changed after the constructor, which is what makes sharing it safe
+    private final UuidSet friends;
+
+    private FriendSnapshot(UuidSet friends) {
+        this.friends = friends;
+    }
+
+    /**
+     * @brief Creates a snapshot of the given friends.
+     *
+     * @param friends The UUIDs of the friends, which are copied.
+     * @return The snapshot.
+     */
+    public static FriendSnapshot of(Collection<UUID> friends) {
+        return friends.isEmpty() ? EMPTY : new FriendSnapshot(new UuidSet(friends));
+    }
+
+    /**
+     * @brief Gets a snapshot that also holds a friend.
+     *
+     * @param friend The UUID of the friend to add.
+     * @return The new snapshot, or this one if the friend is already in it.
+     */
+    public FriendSnapshot with(UUID friend) {
+        if (friends.contains(friend)) return this;
+        UuidSet copy = friends.copy();
+        copy.add(friend);
+        return new FriendSnapshot(copy);
+    }
+
+    /**
+     * @brief Gets a snapshot without a friend.
+     *
+     * @param friend The UUID of the friend to remove.
+     * @return The new snapshot, or this one if the friend is not in it.
+     */
+    public FriendSnapshot without(UUID friend) {
+        if (!friends.contains(friend)) return this;
+        UuidSet copy = friends.copy();
+        copy.remove(friend);
+        return new FriendSnapshot(copy);
+    }
+
+    /**
+     * @brief Checks whether a player is in the snapshot.
+     *
+     * @param friend The UUID of the player.
+     * @return true if the player is a friend.
+     */
+    public boolean contains(UUID friend) {
+        return friends.contains(friend);
+    }
+
+    /**
+     * @brief Gets the number of friends.
+     * @return The number of friends.
+     */
+    public int size() {
+        return friends.size();
+    }
+
+    /**
+     * @brief Checks whether the snapshot has no friends.
+     * @return true if there are no friends.
+     */
+    public boolean isEmpty() {
+        return friends.isEmpty();
+    }
+
+    /**
+     * @brief Hands every friend to a visitor as the two halves of its UUID, without allocating.
+     *
+     * @param visitor The visitor to call for every friend.
+     */
+    public void forEach(UuidSet.Visitor visitor) {
+        friends.forEach(visitor);
+    }
+
+    /**
+     * @brief Copies the friends into a list.
+     * @return A new list of the friends' UUIDs.
+     */
+    public ArrayList<UUID> toList() {
+        return friends.toList();
+    }
+
+    /**
+     * @brief Iterates the friends. Removal is not supported.
+     * @return An iterator over the friends' UUIDs.
+     */
+    @Override
+    public Iterator<UUID> iterator() {
+        return friends.iterator();
+    }
+}
@@ -0,0 +1,194 @@
+/**
+ * @file NotificationAggregator.java
+ * @author gwerry
+ * @brief The NotificationAggregator class batches friend join and leave messages per recipient.
+ * @version 1.0
+ * @date 2026/10/18
+ *
+ * Copyright 2024 gwerry
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gwerry;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import com.gwerry.utils.ChatBroadcaster;
+import com.gwerry.utils.MessageTemplate;
+
+/**
+ * @brief The NotificationAggregator class batches friend join and leave messages per recipient.
+ * Presence events are buffered for a window of server ticks. A friend that leaves and joins again inside the
+ * window, or joins and leaves again, cancels out and is not announced at all. At the end of the window every
+ * recipient gets at most one join and one leave message, naming all the friends at once when there are several.
+ * When a proxy drops and reconnects hundreds of players, this turns a flood of chat lines into a few.
+ * Recipients that end up with the same text get it through one ChatBroadcaster call.
+ *
+ * Everything runs on the server thread, which is where join and quit events fire.
+ *
+ * @author gwerry
+ * @since 1.1
+ */
+public class NotificationAggregator {
+
+    /**
+     * @brief The presence change of one friend that a recipient has not been told about yet.
+     */
+    private static class Pending {
+        final String name;
+        final boolean joined;
+
+        Pending(String name, boolean joined) {
+            this.name = name;
+            this.joined = joined;
+        }
+    }
+
+    // Recipient to the friends whose presence changed, in the order they changed
+    private static HashMap<UUID, LinkedHashMap<UUID, Pending>> pending = new HashMap<>();
+    private static Plugin plugin;
+    private static long windowTicks;
+    private static BukkitTask flushTask;
+
+    private static final AtomicLong events = new AtomicLong();
+    private static final AtomicLong cancelled = new AtomicLong();
+    private static final AtomicLong messages = new AtomicLong();
+    private static long startedAt = System.nanoTime();
+
+    /**
+     * @brief Sets the plugin the flushes are scheduled for and how long events are buffered.
+     *
+     * @param owner The plugin.
+     * @param ticks How many server ticks events are buffered for. 0 or less sends every event right away.
+     */
+    public static void init(Plugin owner, long ticks) {
+        plugin = owner;
+        windowTicks = ticks;
+        startedAt = System.nanoTime();
+    }
+
+    /**
+     * @brief Announces that a player joined to the players that have them as a friend.
+     *
+     * @param uuid The UUID of the player that joined.
+     * @param name The name of the player that joined.
+     * @param recipients The online players that have them as a friend.
+     */
+    public static void joined(UUID uuid, String name, Iterable<UUID> recipients) {
+        add(uuid, name, true, recipients);
+    }
+
+    /**
+     * @brief Announces that a player left to the players that have them as a friend.
+     *
+     * @param uuid The UUID of the player that left.
+     * @param name The name of the player that left.
+     * @param recipients The online players that have them as a friend.
+     */
+    public static void left(UUID uuid, String name, Iterable<UUID> recipients) {
+        add(uuid, name, false, recipients);
+    }
+
+    /**
+     * @brief Sends every buffered message now.
+     */
+    public static void flush() {
+        flushTask = null;
+        if (pending.isEmpty()) return;
+
+        HashMap<UUID, LinkedHashMap<UUID, Pending>> batch = pending;
+        pending = new HashMap<>();
+        // Recipients that get the exact same text share one broadcast, like everyone told about a single friend
+        LinkedHashMap<String, ArrayList<Player>> outgoing = new LinkedHashMap<>();
+        for (Map.Entry<UUID, LinkedHashMap<UUID, Pending>> entry : batch.entrySet()) {
+            CustomPlayer recipient = PlayerManager.getPlayer(entry.getKey());
+            if (recipient == null) continue;
+
+            ArrayList<String> joins = new ArrayList<>();
+            ArrayList<String> leaves = new ArrayList<>();
+            for (Pending change : entry.getValue().values()) {
+                (change.joined ? joins : leaves).add(change.name);
+            }
+            queue(outgoing, recipient, joins, Data.FRIEND_JOIN, Data.FRIEND_JOIN_MULTIPLE);
+            queue(outgoing, recipient, leaves, Data.FRIEND_LEAVE, Data.FRIEND_LEAVE_MULTIPLE);
+        }
+
+        for (Map.Entry<String, ArrayList<Player>> message : outgoing.entrySet()) {
+            ChatBroadcaster.broadcast(message.getKey(), message.getValue());
+        }
+    }
+
+    /**
+     * @brief Drops everything that was not sent yet, used when the plugin is disabled.
+     */
+    public static void clear() {
+        if (flushTask != null) flushTask.cancel();
+        flushTask = null;
+        pending.clear();
+    }
+
+    /**
+     * @brief Gets a one line summary of the notification metrics.
+     * @return The notification metrics.
+     */
+    public static String getStats() {
+        double seconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startedAt));
+        return "events=" + events.get()
+                + " cancelled=" + cancelled.get()
+                + " messages=" + messages.get()
+                + String.format(Locale.ROOT, " eventsPerSecond=%.2f messagesPerSecond=%.2f", events.get() / seconds, messages.get() / seconds);
+    }
+
+    private static void add(UUID uuid, String name, boolean joined, Iterable<UUID> recipients) {
+        for (UUID recipient : recipients) {
+            events.incrementAndGet();
+            LinkedHashMap<UUID, Pending> changes = pending.computeIfAbsent(recipient, key -> new LinkedHashMap<>());
+            Pending previous = changes.remove(uuid);
+            if (previous != null && previous.joined != joined) {
+                // Left and came back, or came and left, the recipient sees no difference
+                cancelled.addAndGet(2);
+                if (changes.isEmpty()) pending.remove(recipient);
+                continue;
+            }
+            changes.put(uuid, new Pending(name, joined));
+        }
+
+        if (windowTicks <= 0 || plugin == null) {
+            flush();
+        } else if (flushTask == null && !pending.isEmpty()) {
+            flushTask = Bukkit.getScheduler().runTaskLater(plugin, NotificationAggregator::flush, windowTicks);
+        }
+    }
+
+    private static void queue(LinkedHashMap<String, ArrayList<Player>> outgoing, CustomPlayer recipient,
+                              ArrayList<String> names, MessageTemplate single, MessageTemplate multiple) {
+        if (names.isEmpty()) return;
+        messages.incrementAndGet();
+        String message = names.size() == 1
+                ? single.render("friend_name", names.get(0))
+                : multiple.render("count", Integer.toString(names.size()), "friend_names", String.join(", ", names));
+        outgoing.computeIfAbsent(message, key -> new ArrayList<>()).add(recipient.getPlayer());
+    }
+}
@@ -21,35 +21,111 @@
  */
 package com.gwerry;
 
-import java.util.List;
 import java.util.Map;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
-import com.gwerry.io.LocalDB;
-import com.gwerry.utils.Pair;
+import org.bukkit.entity.Player;
+
+import com.gwerry.io.FriendStore;
+import com.gwerry.io.PendingWrites;
+import com.gwerry.io.StoredRequest;
+import com.gwerry.io.WriteBehindQueue;
+import com.gwerry.utils.HashedTimingWheel;
+import com.gwerry.utils.MessageTemplate;
+import com.gwerry.utils.UuidUtil;
 
 /**
  * @brief The PlayerManager class is responsible for managing players in the SimpleFriends plugin.
  * It provides methods to add, remove, and retrieve players, as well as manage friend requests.
- * This class uses a HashMap to store players and a List to store friend requests.
+ * This class uses a ConcurrentHashMap to store players and a FriendRequestIndex, which indexes friend requests
+ * by sender and receiver, to store friend requests.
  *
  * @author gwerry
  * @since 1.0
  */
 public class PlayerManager {
     private static ConcurrentMap<UUID, CustomPlayer> players = new ConcurrentHashMap<>();
-    private static LocalDB db;
-    private static List<Pair<UUID, UUID>> friendRequests = Collections.synchronizedList(new ArrayList<>());
+    private static ConcurrentMap<String, UUID> onlineNames = new ConcurrentHashMap<>();
+    private static FriendStore db;
+    private static WriteBehindQueue writeQueue;
+    private static FriendRequestIndex friendRequests = new FriendRequestIndex();
+    private static HashedTimingWheel requestExpiry;
+    private static ConcurrentMap<UUID, StagedPlayer> staged = new ConcurrentHashMap<>();
+    private static ExecutorService loginLoader;
+    private static ScheduledExecutorService storeWriter;
+
+    /**
+     * @brief Friend data loaded during pre-login that is waiting for the player to join.
+     * Besides the friends this holds the stored friend requests of the player, and the names of whoever sent them.
+     */
+    private static class StagedPlayer {
+        final ArrayList<UUID> friends;
+        final ArrayList<StoredRequest> requests;
+        final HashMap<UUID, String> senderNames;
+        final long loadedAt;
+
+        StagedPlayer(ArrayList<UUID> friends, ArrayList<StoredRequest> requests, HashMap<UUID, String> senderNames) {
+            this.friends = friends;
+            this.requests = requests;
+            this.senderNames = senderNames;
+            this.loadedAt = System.currentTimeMillis();
+        }
+    }
 
     /**
-     * @brief Initializes the PlayerManager by getting the database instance from the SimpleFriends plugin.
+     * @brief Initializes the PlayerManager by getting the friend store and write queue from the SimpleFriends plugin.
      */
     public static void init() {
-        db = SimpleFriends.getDB();
+        db = SimpleFriends.getStore();
+        writeQueue = SimpleFriends.getWriteQueue();
+        loginLoader = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "SimpleFriends-LoginLoader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        requestExpiry = new HashedTimingWheel("SimpleFriends-RequestExpiry", SimpleFriends.getInstance().getLogger(), 1000, 512);
+        requestExpiry.start();
+
+        // One thread keeps the stored requests in the order they changed and purges the expired ones
+        storeWriter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "SimpleFriends-StoreWriter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long purgeInterval = Math.max(1, Data.FRIEND_REQUEST_PURGE_INTERVAL_SECONDS);
+        storeWriter.scheduleWithFixedDelay(PlayerManager::purgeExpiredRequests, purgeInterval, purgeInterval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @brief Stops the login loader threads and the friend request expiry.
+     * Request writes that are still queued are finished first, so they reach the store before it is closed.
+     */
+    public static void deinit() {
+        if(loginLoader != null) loginLoader.shutdownNow();
+        if(requestExpiry != null) requestExpiry.stop();
+        if(storeWriter != null) {
+            storeWriter.shutdown();
+            try {
+                storeWriter.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        friendRequests.clear();
+        staged.clear();
+        PresenceIndex.clear();
     }
 
     /**
@@ -71,34 +147,119 @@ public class PlayerManager {
         return players.get(uuid);
     }
 
+    /**
+     * @brief Looks up an online player by name, ignoring case.
+     *
+     * @param name The name of the player.
+     * @return The UUID of the player, or null if nobody with that name is online.
+     */
+    public static UUID getOnlineUuid(String name) {
+        return onlineNames.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * @brief Loads a player's friends ahead of the join so PlayerJoinEvent does not have to touch the database.
+     * The player's current name is stored as well, so later lookups of it do not need the Mojang API.
+     * The friend requests the player sent or received while offline are loaded in the same go.
+     * This blocks for at most Data.LOGIN_LOAD_TIMEOUT_MS and must only be called from an async thread.
+     *
+     * @param uuid The UUID of the player that is logging in.
+     * @param name The name of the player that is logging in.
+     * @return true if the friends were loaded and staged, false if loading failed or timed out.
+     */
+    public static boolean preloadPlayer(UUID uuid, String name) {
+        long now = System.currentTimeMillis();
+        staged.values().removeIf(entry -> now - entry.loadedAt > Data.LOGIN_STAGING_TTL_MS);
+
+        // Started before the read, so writes the writer commits during the read are not lost
+        PendingWrites recorded = writeQueue.beginLoad(uuid);
+        Future<StagedPlayer> load = loginLoader.submit(() -> {
+            StagedPlayer loaded = load(uuid);
+            if(loaded != null) db.saveName(uuid, name);
+            return loaded;
+        });
+        StagedPlayer entry = null;
+        try {
+            entry = load.get(Data.LOGIN_LOAD_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            load.cancel(true);
+            SimpleFriends.getInstance().getLogger().warning("Timed out loading friends during login. UUID: " + uuid);
+        } catch (ExecutionException e) {
+            // Reported as a failed load below
+        } catch (InterruptedException e) {
+            load.cancel(true);
+            Thread.currentThread().interrupt();
+        }
+        if(entry == null) {
+            writeQueue.finishLoad(recorded, null);
+            return false;
+        }
+
+        // Staged first, so changes made from here on reach the entry through updateStaged as well
+        staged.put(uuid, entry);
+        writeQueue.finishLoad(recorded, entry.friends);
+        return true;
+    }
+
+    /**
+     * @brief Drops friend data staged for a login that did not go through.
+     *
+     * @param uuid The UUID of the player whose login was denied.
+     */
+    public static void discardPreload(UUID uuid) {
+        staged.remove(uuid);
+    }
+
     /**
      * @brief Adds a player to the manager.
+     * The friend data staged during pre-login is bound to the player. If there is none, because loading failed and
+     * the failure policy let the player in anyway, the friends are loaded here instead.
      *
-     * @param uuid The UUID of the player to add.
+     * @param p The player that joined.
      * @return The CustomPlayer object representing the added player.
-     * @throws NullPointerException If the player is null.
      */
-    public static CustomPlayer addPlayer(UUID uuid) {
-        CustomPlayer player = db.loadPlayer(uuid);
-        if(player.getPlayer() == null) throw new NullPointerException("Player is null. UUID: " + uuid);
-        synchronized (players) {
-            players.putIfAbsent(uuid, player);
+    public static CustomPlayer addPlayer(Player p) {
+        UUID uuid = p.getUniqueId();
+        StagedPlayer entry = staged.remove(uuid);
+
+        if(entry == null) {
+            SimpleFriends.getInstance().getLogger().warning("No preloaded friends for " + p.getName() + ", loading on the main thread.");
+            PendingWrites recorded = writeQueue.beginLoad(uuid);
+            entry = load(uuid);
+            if(entry == null) entry = new StagedPlayer(new ArrayList<>(), new ArrayList<>(), new HashMap<>());
+            writeQueue.finishLoad(recorded, entry.friends);
+        }
+        ArrayList<UUID> friends = entry.friends;
+
+        CustomPlayer player;
+        synchronized (friends) {
+            player = new CustomPlayer(p, friends);
         }
+
+        players.putIfAbsent(uuid, player);
+        PresenceIndex.join(player);
+        onlineNames.put(p.getName().toLowerCase(Locale.ROOT), uuid);
+        UuidUtil.remember(p.getName(), uuid);
+        FriendListRenderer.rememberName(uuid, p.getName());
+        FriendListRenderer.presenceChanged(PresenceIndex.getWatchers(uuid));
+        restoreRequests(player, entry);
         return player;
     }
 
     /**
      * @brief Removes a player from the manager.
+     * Nothing is saved here, friendship changes were queued on both sides when they happened.
      *
      * @param uuid The UUID of the player to remove.
      */
     public static void removePlayer(UUID uuid) {
-        synchronized (players) {
-            if(players.containsKey(uuid)) {
-                savePlayer(players.get(uuid));
-                players.remove(uuid);
-            }
-        }
+        CustomPlayer player = players.remove(uuid);
+        if(player == null) return;
+
+        onlineNames.remove(player.getPlayer().getName().toLowerCase(Locale.ROOT), uuid);
+        FriendListRenderer.forget(uuid);
+        FriendListRenderer.presenceChanged(PresenceIndex.getWatchers(uuid));
+        PresenceIndex.quit(uuid);
     }
 
     /**
@@ -112,43 +273,28 @@ public class PlayerManager {
     }
 
     /**
-     * @brief Creates a friend request between two players.
+     * @brief Creates a friend request between two players and stores it, the receiver does not have to be online.
      *
-     * @param send The UUID of the player sending the request.
+     * @param send The UUID of the player sending the request, who has to be online.
      * @param other The UUID of the player receiving the request.
+     * @param otherName The name of the player receiving the request.
+     * @return true if the request was created, false if there already is one between the two players.
      */
-    public static boolean createFriendRequest(UUID send, UUID other) {
+    public static boolean createFriendRequest(UUID send, UUID other, String otherName) {
         CustomPlayer sender = getPlayer(send);
-        CustomPlayer reciever = getPlayer(other);
-
-        if(getOutgoingFriendRequests(sender).contains(other)) {
-            sender.getPlayer().sendMessage(Data.FRIEND_REQUEST_ALREADY_SENT.replace("%reciever_name%", reciever.getPlayer().getName()));
-            return false;
-        }
 
-        if(getIncomingFriendRequests(sender).contains(other)) {
-            sender.getPlayer().sendMessage(Data.FRIEND_REQUEST_ALREADY_RECIEVED.replace("%reciever_name%", reciever.getPlayer().getName()));
+        long ttlMillis = TimeUnit.SECONDS.toMillis(Data.FRIEND_REQUEST_TTL_SECONDS);
+        long expiresAt = System.currentTimeMillis() + ttlMillis;
+        FriendRequest request = new FriendRequest(send, other, expiresAt);
+        FriendRequest existing = friendRequests.addIfAbsent(request);
+        if(existing != null) {
+            MessageTemplate message = existing.sender.equals(send) ? Data.FRIEND_REQUEST_ALREADY_SENT : Data.FRIEND_REQUEST_ALREADY_RECIEVED;
+            sender.getPlayer().sendMessage(message.render("reciever_name", otherName));
             return false;
         }
 
-        Pair<UUID, UUID> pair = new Pair<>(send, other);
-        friendRequests.add(pair);
-
-        Thread thread = new Thread(new Runnable() {
-            @Override
-            public void run() {
-                try {
-                    Thread.sleep(120000);
-                    synchronized(friendRequests) {
-                        friendRequests.remove(pair);
-                    }
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                }
-            }
-        });
-        thread.start();
-
+        scheduleExpiry(request, ttlMillis);
+        storeWriter.execute(() -> db.saveRequest(send, other, expiresAt));
         return true;
     }
 
@@ -159,86 +305,153 @@ public class PlayerManager {
      * @return An ArrayList of UUIDs representing the friend requests of the player.
      */
     public static ArrayList<UUID> getIncomingFriendRequests(CustomPlayer player) {
-        ArrayList<UUID> others = new ArrayList<>();
-        UUID toSearch = player.getPlayer().getUniqueId();
-
-        synchronized(friendRequests) {
-            for(Pair<UUID, UUID> request : friendRequests) {
-                if(request.second.equals(toSearch)) {
-                    others.add(request.first);
-                    continue;
-                }
-            }
-        }
-
-        return others;
+        return friendRequests.getIncoming(player.getPlayer().getUniqueId());
     }
 
-        /**
+    /**
      * @brief Retrieves all of the outgoing friend requests of a player.
      *
      * @param player The player whose friend requests to retrieve.
      * @return An ArrayList of UUIDs representing the friend requests of the player.
      */
     public static ArrayList<UUID> getOutgoingFriendRequests(CustomPlayer player) {
-        ArrayList<UUID> others = new ArrayList<>();
-        UUID toSearch = player.getPlayer().getUniqueId();
-
-        synchronized(friendRequests) {
-            for(Pair<UUID, UUID> request : friendRequests) {
-                if(request.first.equals(toSearch)) {
-                    others.add(request.second);
-                    continue;
-                }
-            }
-        }
+        return friendRequests.getOutgoing(player.getPlayer().getUniqueId());
+    }
 
-        return others;
+    /**
+     * @brief Removes a friend request between the specified players and cancels its expiry.
+     * Only one caller can remove a request, so it doubles as the check that the request still exists.
+     *
+     * @param senderID The UUID of the player who sent the request.
+     * @param recieverID The UUID of the player who recieved the request.
+     * @return true if the request existed and was removed by this call.
+     */
+    public static boolean removeRequest(UUID senderID, UUID recieverID) {
+        FriendRequest request = friendRequests.remove(senderID, recieverID);
+        if(request == null) return false;
+
+        request.cancelExpiry();
+        storeWriter.execute(() -> db.deleteRequest(senderID, recieverID));
+        return true;
     }
 
     /**
-     * @brief Removes a friend request between the specified players.
+     * @brief Queues removing a friendship, both edges in the same batch.
      *
-     * @param affected The UUID of the player who sent the request.
-     * @param toRemove The UUID of the player who recieved the request.
+     * @param first The UUID of one of the players.
+     * @param second The UUID of the other player.
      */
-    public static void removeRequest(UUID senderID, UUID recieverID) {
-        synchronized(friendRequests) {
-            for(Pair<UUID, UUID> request : friendRequests) {
-                if(request.first.equals(senderID) && request.second.equals(recieverID)) {
-                    friendRequests.remove(request);
-                    break;
-                }
-            }
-        }
+    public static void removeFriendship(UUID first, UUID second) {
+        writeQueue.removeFriendship(first, second);
+        updateStaged(first, second, false);
+        updateStaged(second, first, false);
     }
 
     /**
-     * @brief Updates the friends list of a player when a friend is removed.
+     * @brief Queues adding a friendship, both edges in the same batch.
      *
-     * @param affected The UUID of the player whose friends list to update.
-     * @param toRemove The UUID of the friend to remove.
+     * @param first The UUID of one of the players.
+     * @param second The UUID of the other player.
      */
-    public static void updateFriendsRemove(UUID affected, UUID toRemove) {
-        db.savePlayerRemoveFriend(affected, toRemove);
+    public static void addFriendship(UUID first, UUID second) {
+        writeQueue.addFriendship(first, second);
+        updateStaged(first, second, true);
+        updateStaged(second, first, true);
     }
 
     /**
-     * @brief Updates the friends list of a player when a friend is added.
+     * @brief Keeps friend data that is staged for a joining player in sync with changes made in the meantime.
      *
      * @param affected The UUID of the player whose friends list to update.
-     * @param toRemove The UUID of the friend to add.
+     * @param other The UUID of the friend that was added or removed.
+     * @param add true if the friend was added, false if it was removed.
+     */
+    private static void updateStaged(UUID affected, UUID other, boolean add) {
+        StagedPlayer entry = staged.get(affected);
+        if(entry == null) return;
+
+        synchronized (entry.friends) {
+            entry.friends.remove(other);
+            if(add) entry.friends.add(other);
+        }
+    }
+
+    /**
+     * @brief Loads everything a joining player needs from the store. Blocks on the database.
+     *
+     * @param uuid The UUID of the player.
+     * @return The loaded data, or null if the friends could not be loaded.
      */
-    public static void updateFriendsAdd(UUID affected, UUID toAdd) {
-        db.savePlayerAddFriend(affected, toAdd);
+    private static StagedPlayer load(UUID uuid) {
+        ArrayList<UUID> friends = db.loadFriends(uuid);
+        if(friends == null) return null;
+
+        ArrayList<StoredRequest> requests = db.loadRequests(uuid, System.currentTimeMillis());
+        if(requests == null) requests = new ArrayList<>();
+
+        ArrayList<UUID> senders = new ArrayList<>();
+        for(StoredRequest request : requests) {
+            if(request.receiver.equals(uuid)) senders.add(request.sender);
+        }
+        HashMap<UUID, String> senderNames = senders.isEmpty() ? new HashMap<>() : db.loadNames(senders);
+        return new StagedPlayer(friends, requests, senderNames);
     }
 
     /**
-     * @brief Saves a player's data to the database.
+     * @brief Puts the stored requests of a player that joined back into the index and tells them about their inbox.
+     * Requests that are still in the index, because they were sent during this session, keep their expiry.
      *
-     * @param player The player whose data to save.
+     * @param player The player that joined.
+     * @param entry The data loaded for the player.
      */
-    public static void savePlayer(CustomPlayer player) {
-        db.savePlayer(player);
+    private static void restoreRequests(CustomPlayer player, StagedPlayer entry) {
+        UUID uuid = player.getPlayer().getUniqueId();
+        long now = System.currentTimeMillis();
+
+        for(StoredRequest stored : entry.requests) {
+            long left = stored.expiresAt - now;
+            if(left <= 0) continue;
+
+            // A request accepted while the player was logging in may still have been read from the store
+            UUID other = stored.receiver.equals(uuid) ? stored.sender : stored.receiver;
+            if(player.isFriend(other)) continue;
+
+            FriendRequest request = new FriendRequest(stored.sender, stored.receiver, stored.expiresAt);
+            if(friendRequests.addIfAbsent(request) == null) scheduleExpiry(request, left);
+
+            if(!stored.receiver.equals(uuid)) continue;
+            String senderName = entry.senderNames.getOrDefault(stored.sender, stored.sender.toString());
+            player.getPlayer().sendMessage(Data.FRIEND_REQUEST_RECIEVER.render(
+                    "sender_name", senderName,
+                    "ttl", Long.toString(TimeUnit.MILLISECONDS.toSeconds(left))));
+        }
+    }
+
+    /**
+     * @brief Drops a request from the index once it expires. Its stored row is left to the purge.
+     *
+     * @param request The request to expire.
+     * @param delayMillis How long until the request expires.
+     */
+    private static void scheduleExpiry(FriendRequest request, long delayMillis) {
+        // If the request is answered before its expiry is set, the expiry later finds nothing to remove
+        request.setExpiry(requestExpiry.schedule(() -> friendRequests.remove(request), delayMillis, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * @brief Deletes the expired requests from the store in batches of Data.FRIEND_REQUEST_PURGE_BATCH_SIZE.
+     * Every batch is its own short write, so other writes get the database in between.
+     */
+    private static void purgeExpiredRequests() {
+        int batch = Math.max(1, Data.FRIEND_REQUEST_PURGE_BATCH_SIZE);
+        long now = System.currentTimeMillis();
+        long purged = 0;
+        int deleted;
+        do {
+            deleted = db.purgeExpiredRequests(now, batch);
+            purged += deleted;
+        } while(deleted == batch);
+
+        if(purged > 0) SimpleFriends.getInstance().getLogger().info("Purged " + purged + " expired friend requests.");
     }
 }
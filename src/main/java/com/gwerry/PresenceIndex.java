@@ -0,0 +1,153 @@
+/**
+ * @file PresenceIndex.java
+ * @author gwerry
+ * @brief The PresenceIndex class knows, for every online player, which online players have them as a friend.
+ * @version 1.0
+ * @date 2026/10/18
+ *
+ * Copyright 2024 gwerry
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gwerry;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * @brief The PresenceIndex class knows, for every online player, which online players have them as a friend.
+ * Those are the watchers of a player, the ones that hear about them joining and leaving. The reverse, which online
+ * players a player watches, is kept too, so a quit only touches the player's online friends.
+ * The index is updated incrementally on join, quit and friend changes, so announcing a join or quit costs
+ * O(online friends) instead of a lookup for every friend, most of which are usually offline.
+ * Updates happen on the server thread, reads may come from any thread.
+ *
+ * @author gwerry
+ * @since 1.1
+ */
+public class PresenceIndex {
+    // Online player to the online players that have them as a friend
+    private static ConcurrentMap<UUID, Set<UUID>> watchers = new ConcurrentHashMap<>();
+    // Online player to the online players they have as a friend
+    private static ConcurrentMap<UUID, Set<UUID>> watching = new ConcurrentHashMap<>();
+
+    /**
+     * @brief Adds a player that joined. Must be called after the player was added to the PlayerManager.
+     * Whichever is smaller, the player's friends or the online players, is walked to find the online friends.
+     * Friendships are always written as both edges, so the player's own friends are everyone that has them as a friend.
+     *
+     * @param player The player that joined.
+     */
+    public static void join(CustomPlayer player) {
+        UUID uuid = player.getPlayer().getUniqueId();
+        watchers.putIfAbsent(uuid, ConcurrentHashMap.newKeySet());
+        watching.putIfAbsent(uuid, ConcurrentHashMap.newKeySet());
+
+        FriendSnapshot friends = player.getFriends();
+        Map<UUID, CustomPlayer> online = PlayerManager.getPlayers();
+        if (friends.size() <= online.size()) {
+            for (UUID friend : friends) {
+                CustomPlayer other = online.get(friend);
+                if (other != null) link(uuid, other, friend);
+            }
+        } else {
+            for (Map.Entry<UUID, CustomPlayer> entry : online.entrySet()) {
+                if (friends.contains(entry.getKey())) link(uuid, entry.getValue(), entry.getKey());
+                else if (entry.getValue().isFriend(uuid)) watch(entry.getKey(), uuid);
+            }
+        }
+    }
+
+    /**
+     * @brief Removes a player that left.
+     *
+     * @param uuid The UUID of the player that left.
+     */
+    public static void quit(UUID uuid) {
+        Set<UUID> watched = watching.remove(uuid);
+        if (watched != null) {
+            for (UUID other : watched) unwatch(uuid, other);
+        }
+
+        Set<UUID> watchedBy = watchers.remove(uuid);
+        if (watchedBy != null) {
+            for (UUID other : watchedBy) {
+                Set<UUID> set = watching.get(other);
+                if (set != null) set.remove(uuid);
+            }
+        }
+    }
+
+    /**
+     * @brief Records that a player added a friend. Nothing changes unless both of them are online.
+     *
+     * @param owner The UUID of the player whose friends changed.
+     * @param friend The UUID of the friend that was added.
+     */
+    public static void friendAdded(UUID owner, UUID friend) {
+        if (watchers.containsKey(owner) && watchers.containsKey(friend)) watch(owner, friend);
+    }
+
+    /**
+     * @brief Records that a player removed a friend.
+     *
+     * @param owner The UUID of the player whose friends changed.
+     * @param friend The UUID of the friend that was removed.
+     */
+    public static void friendRemoved(UUID owner, UUID friend) {
+        unwatch(owner, friend);
+    }
+
+    /**
+     * @brief Gets the online players that have a player as a friend.
+     *
+     * @param uuid The UUID of the player.
+     * @return A live, read-only view of the watchers, empty if the player is not online.
+     */
+    public static Set<UUID> getWatchers(UUID uuid) {
+        Set<UUID> set = watchers.get(uuid);
+        return set != null ? Collections.unmodifiableSet(set) : Collections.emptySet();
+    }
+
+    /**
+     * @brief Drops everything, used when the plugin is disabled.
+     */
+    public static void clear() {
+        watchers.clear();
+        watching.clear();
+    }
+
+    private static void link(UUID uuid, CustomPlayer other, UUID otherUuid) {
+        // The player has other as a friend, other may or may not have the player
+        watch(uuid, otherUuid);
+        if (other.isFriend(uuid)) watch(otherUuid, uuid);
+    }
+
+    private static void watch(UUID watcher, UUID watched) {
+        Set<UUID> set = watchers.get(watched);
+        if (set != null) set.add(watcher);
+        set = watching.get(watcher);
+        if (set != null) set.add(watched);
+    }
+
+    private static void unwatch(UUID watcher, UUID watched) {
+        Set<UUID> set = watchers.get(watched);
+        if (set != null) set.remove(watcher);
+        set = watching.get(watcher);
+        if (set != null) set.remove(watched);
+    }
+}
@@ -21,8 +21,10 @@
  */
 package com.gwerry;
 
+import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.Field;
+import java.util.Locale;
 
 import org.bukkit.plugin.PluginManager;
 import org.bukkit.plugin.java.JavaPlugin;
@@ -30,12 +32,22 @@ import org.bukkit.Bukkit;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandMap;
 
+import com.gwerry.commands.CommandPipeline;
 import com.gwerry.commands.FriendCommand;
 import com.gwerry.io.IYamlConfig;
+import com.gwerry.io.FriendStore;
 import com.gwerry.io.LocalDB;
+import com.gwerry.io.LogFriendStore;
+import com.gwerry.io.MemoryFriendStore;
+import com.gwerry.io.WriteBehindQueue;
 import com.gwerry.io.YamlConfig;
 import com.gwerry.listeners.OnJoinListener;
 import com.gwerry.listeners.OnLeaveListener;
+import com.gwerry.listeners.OnPreLoginListener;
+import com.gwerry.utils.ChatBroadcaster;
+import com.gwerry.utils.ProfileLookupService;
+import com.gwerry.utils.UserCacheFile;
+import com.gwerry.utils.UuidUtil;
 
 /**
  * @brief The SimpleFriends class extends JavaPlugin and is the main class of the plugin.
@@ -47,7 +59,11 @@ import com.gwerry.listeners.OnLeaveListener;
  */
 public class SimpleFriends extends JavaPlugin {
     private static SimpleFriends instance;
-    private static LocalDB userData;
+    private static FriendStore userData;
+    private static WriteBehindQueue writeQueue;
+    private static CommandPipeline commandPipeline;
+    private static ProfileLookupService lookupService;
+    private static FriendCommand friendCommand;
     private static IYamlConfig config;
 
     /**
@@ -59,13 +75,29 @@ public class SimpleFriends extends JavaPlugin {
     }
 
     /**
-     * @brief Returns the database of the SimpleFriends plugin.
-     * @return The database of the SimpleFriends plugin.
+     * @brief Returns the friend store of the SimpleFriends plugin.
+     * @return The friend store of the SimpleFriends plugin.
      */
-    public static LocalDB getDB() {
+    public static FriendStore getStore() {
         return userData;
     }
 
+    /**
+     * @brief Returns the queue that writes database changes in the background.
+     * @return The write queue of the SimpleFriends plugin.
+     */
+    public static WriteBehindQueue getWriteQueue() {
+        return writeQueue;
+    }
+
+    /**
+     * @brief Returns the pipeline that runs the slow parts of commands off the server thread.
+     * @return The command pipeline of the SimpleFriends plugin.
+     */
+    public static CommandPipeline getCommandPipeline() {
+        return commandPipeline;
+    }
+
     /**
      * @brief Returns the configuration file of the SimpleFriends plugin.
      * @return The configuration file of the SimpleFriends plugin.
@@ -81,12 +113,18 @@ public class SimpleFriends extends JavaPlugin {
     @Override
     public void onEnable() {
         getLogger().info("Registering commands...");
+        commandPipeline = new CommandPipeline(this, Data.COMMAND_THREADS);
         Data.FRIEND_CMD_ALIASES.add("f");
-        registerCommand(new FriendCommand(Data.FRIEND_CMD, Data.FRIEND_CMD_DESCRIPTION, Data.FRIEND_CMD_USAGE, Data.FRIEND_CMD_ALIASES));
+        friendCommand = new FriendCommand(Data.FRIEND_CMD, Data.FRIEND_CMD_DESCRIPTION, Data.FRIEND_CMD_USAGE, Data.FRIEND_CMD_ALIASES);
+        registerCommand(friendCommand);
         getLogger().info("Registered commands!");
 
         getLogger().info("Registering listeners...");
         PluginManager pman = Bukkit.getPluginManager();
+        NotificationAggregator.init(this, Data.NOTIFICATION_WINDOW_TICKS);
+        ChatBroadcaster.init(getLogger());
+        FriendListRenderer.setUserCache(new UserCacheFile(new File(Bukkit.getWorldContainer(), "usercache.json")));
+        pman.registerEvents(new OnPreLoginListener(), this);
         pman.registerEvents(new OnJoinListener(), this);
         pman.registerEvents(new OnLeaveListener(), this);
         getLogger().info("Registered listeners");
@@ -109,9 +147,24 @@ public class SimpleFriends extends JavaPlugin {
         }
         Data.loadFromFile(config);
         getLogger().info("Loaded config.yml!");
+        ProfileLookupService.Settings lookupSettings = new ProfileLookupService.Settings();
+        lookupSettings.profileUrl = Data.UUID_API_PROFILE_URL;
+        lookupSettings.bulkUrl = Data.UUID_API_BULK_URL;
+        lookupSettings.batchWindowMillis = Data.UUID_API_BATCH_WINDOW_MS;
+        lookupSettings.ratePerSecond = Data.UUID_API_RATE_PER_SECOND;
+        lookupSettings.burst = Data.UUID_API_BURST;
+        lookupSettings.timeoutMillis = Data.UUID_API_TIMEOUT_MS;
+        lookupService = new ProfileLookupService(lookupSettings, getLogger());
+        lookupService.start();
+        UuidUtil.setLookupService(lookupService);
+        UuidUtil.configureCache(Data.UUID_CACHE_MAX_SIZE, Data.UUID_CACHE_HIT_TTL_SECONDS * 1000, Data.UUID_CACHE_MISS_TTL_SECONDS * 1000);
 
         getLogger().info("Loading database...");
-        userData = new LocalDB("friends.db", this.getDataFolder().getAbsolutePath());
+        userData = createStore();
+        // The server thread never waits for the writer, a full queue only makes it go over the capacity
+        writeQueue = new WriteBehindQueue(userData, getLogger(), Data.DB_WRITE_QUEUE_CAPACITY, Data.DB_WRITE_FLUSH_INTERVAL_MS,
+                () -> !Bukkit.isPrimaryThread());
+        writeQueue.start();
         getLogger().info("Loaded database!");
 
         PlayerManager.init();
@@ -120,13 +173,64 @@ public class SimpleFriends extends JavaPlugin {
 
     /**
      * @brief This method is called when the plugin is disabled.
-     * Currently, it only prints a goodbye message to the console.
+     * It writes everything still queued to the database and closes it.
      */
     @Override
     public void onDisable(){
+        if (commandPipeline != null) {
+            commandPipeline.shutdown();
+            getLogger().info("Command pipeline: " + commandPipeline.getStats());
+            getLogger().info("Friend list: " + FriendListRenderer.getStats());
+        }
+        if (friendCommand != null) getLogger().info("Command rate limits: " + friendCommand.getRateLimitStats());
+        if (lookupService != null) lookupService.shutdown();
+        NotificationAggregator.clear();
+        getLogger().info("Presence notifications: " + NotificationAggregator.getStats());
+        getLogger().info("Chat broadcasts: " + ChatBroadcaster.getStats());
+        PlayerManager.deinit();
+        if (writeQueue != null) {
+            writeQueue.shutdown();
+            getLogger().info("Write queue: " + writeQueue.getStats());
+        }
+        if (userData != null) userData.close();
+        getLogger().info("Name lookups: " + UuidUtil.getStats());
         System.out.println("bye bye");
     }
 
+    /**
+     * @brief Creates the friend store selected by database.backend in the config.yml.
+     * @return The friend store.
+     */
+    private FriendStore createStore() {
+        String backend = Data.DB_BACKEND.toLowerCase(Locale.ROOT);
+        getLogger().info("Database backend: " + backend);
+
+        switch (backend) {
+            case "memory":
+                getLogger().warning("The memory backend does not save anything, all friends are lost on restart!");
+                return new MemoryFriendStore();
+            case "log":
+            case "journal":
+                try {
+                    LogFriendStore.Settings settings = new LogFriendStore.Settings();
+                    settings.chunkSizeBytes = (int) Math.min(Integer.MAX_VALUE / 2, Math.max(1, Data.DB_JOURNAL_CHUNK_SIZE_MB) * 1024 * 1024);
+                    settings.compactDeadRatio = Data.DB_JOURNAL_COMPACT_DEAD_RATIO;
+                    settings.compactMinRecords = Data.DB_JOURNAL_COMPACT_MIN_RECORDS;
+                    settings.compactCheckSeconds = Data.DB_JOURNAL_COMPACT_CHECK_SECONDS;
+                    return new LogFriendStore(new File(getDataFolder(), "friends.log"), getLogger(), settings);
+                } catch (IOException e) {
+                    getLogger().severe("Could not open friend log at: " + new File(getDataFolder(), "friends.log").getAbsolutePath() + " (" + e.getMessage() + ")");
+                    Bukkit.getServer().shutdown();
+                    return new MemoryFriendStore();
+                }
+            case "sqlite":
+                return new LocalDB("friends.db", this.getDataFolder().getAbsolutePath());
+            default:
+                getLogger().warning("Unknown database backend \"" + backend + "\", using sqlite.");
+                return new LocalDB("friends.db", this.getDataFolder().getAbsolutePath());
+        }
+    }
+
     /**
      * @brief Registers a command with the server's CommandMap.
      * @param command The command to register.
@@ -0,0 +1,213 @@
+/**
+ * @file CommandPipeline.java
+ * @author gwerry
+ * @brief The CommandPipeline class runs the slow parts of commands off the server thread.
+ * @version 1.0
+ * @date 2026/10/18
+ *
+ * Copyright 2024 gwerry
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gwerry.commands;
+
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+
+import com.gwerry.CustomPlayer;
+import com.gwerry.PlayerManager;
+import com.gwerry.utils.UuidUtil;
+
+/**
+ * @brief The CommandPipeline class runs the slow parts of commands off the server thread.
+ * A command that needs a name resolved is split into two stages composed as futures: the lookup runs on
+ * a small pool of command threads and the batched profile lookups, and the part that sends messages and changes
+ * player state hops back to the server thread through the scheduler. Persistence already goes through the write queue, so it never
+ * blocks either stage. Names of online players are resolved right away without leaving the server thread.
+ *
+ * Other slow work, like rendering a long friend list, can use the same two stages.
+ * Each stage is timed: resolve (off the server thread), hop (waiting for the server thread) and apply (on the server thread).
+ *
+ * @author gwerry
+ * @since 1.1
+ */
+public class CommandPipeline {
+
+    /**
+     * @brief Latency of one stage of the pipeline.
+     */
+    private static class Stage {
+        final String name;
+        final AtomicLong count = new AtomicLong();
+        final AtomicLong totalNanos = new AtomicLong();
+        final AtomicLong maxNanos = new AtomicLong();
+
+        Stage(String name) {
+            this.name = name;
+        }
+
+        void record(long nanos) {
+            count.incrementAndGet();
+            totalNanos.addAndGet(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        @Override
+        public String toString() {
+            long n = count.get();
+            double avg = n == 0 ? 0 : totalNanos.get() / 1_000_000.0 / n;
+            return String.format(Locale.ROOT, "%s(n=%d avgMs=%.2f maxMs=%.2f)", name, n, avg, maxNanos.get() / 1_000_000.0);
+        }
+    }
+
+    /**
+     * @brief The result of the stage that ran off the server thread and when it finished.
+     */
+    private static class Resolved<T> {
+        final T value;
+        final long at;
+
+        Resolved(T value, long at) {
+            this.value = value;
+            this.at = at;
+        }
+    }
+
+    private final Plugin plugin;
+    private final Logger logger;
+    private final ExecutorService workers;
+    private final Executor serverThread;
+
+    private final Stage resolve = new Stage("resolve");
+    private final Stage hop = new Stage("hop");
+    private final Stage apply = new Stage("apply");
+    private final AtomicLong failed = new AtomicLong();
+
+    /**
+     * @brief Constructs a new CommandPipeline.
+     *
+     * @param plugin The plugin the server thread tasks are scheduled for.
+     * @param threads The number of command threads.
+     */
+    public CommandPipeline(Plugin plugin, int threads) {
+        this.plugin = plugin;
+        this.logger = plugin.getLogger();
+
+        AtomicInteger counter = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "SimpleFriends-Command-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.serverThread = task -> Bukkit.getScheduler().runTask(this.plugin, task);
+    }
+
+    /**
+     * @brief Resolves a name and then runs an action for the player on the server thread.
+     * The action gets the UUID, or null if no player has that name, and is skipped if the player left in the meantime.
+     *
+     * @param player The player that ran the command.
+     * @param name The name to resolve.
+     * @param action The part of the command that needs the server thread.
+     * @return The future of the whole command.
+     */
+    public CompletableFuture<Void> resolveThen(CustomPlayer player, String name, Consumer<UUID> action) {
+        UUID online = PlayerManager.getOnlineUuid(name);
+        if (online != null) {
+            runAction(player, online, action);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        long submitted = System.nanoTime();
+        return UuidUtil.getUuidAsync(name, workers)
+                .thenApply(uuid -> {
+                    long resolved = System.nanoTime();
+                    resolve.record(resolved - submitted);
+                    return new Resolved<>(uuid, resolved);
+                })
+                .thenAcceptAsync(resolved -> {
+                    hop.record(System.nanoTime() - resolved.at);
+                    runAction(player, resolved.value, action);
+                }, serverThread)
+                .exceptionally(e -> {
+                    failed.incrementAndGet();
+                    logger.log(Level.WARNING, "Command for " + name + " failed after " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - submitted) + "ms", e);
+                    return null;
+                });
+    }
+
+    /**
+     * @brief Runs work on a command thread and then hands its result to an action for the player on the server thread.
+     * The action is skipped if the player left in the meantime.
+     *
+     * @param player The player that ran the command.
+     * @param work The part of the command that can run off the server thread.
+     * @param action The part of the command that needs the server thread.
+     * @return The future of the whole command.
+     */
+    public <T> CompletableFuture<Void> supplyThen(CustomPlayer player, Supplier<T> work, Consumer<T> action) {
+        long submitted = System.nanoTime();
+        return CompletableFuture
+                .supplyAsync(() -> {
+                    T result = work.get();
+                    resolve.record(System.nanoTime() - submitted);
+                    return new Resolved<>(result, System.nanoTime());
+                }, workers)
+                .thenAcceptAsync(resolved -> {
+                    hop.record(System.nanoTime() - resolved.at);
+                    runAction(player, resolved.value, action);
+                }, serverThread)
+                .exceptionally(e -> {
+                    failed.incrementAndGet();
+                    logger.log(Level.WARNING, "Command failed after " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - submitted) + "ms", e);
+                    return null;
+                });
+    }
+
+    /**
+     * @brief Gets a one line summary of the stage latencies.
+     * @return The pipeline metrics.
+     */
+    public String getStats() {
+        return resolve + " " + hop + " " + apply + " failed=" + failed.get();
+    }
+
+    /**
+     * @brief Stops the command threads. Commands still resolving are dropped.
+     */
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    private <T> void runAction(CustomPlayer player, T value, Consumer<T> action) {
+        if (PlayerManager.getPlayer(player.getPlayer().getUniqueId()) != player) return;
+
+        long started = System.nanoTime();
+        action.accept(value);
+        apply.record(System.nanoTime() - started);
+    }
+}
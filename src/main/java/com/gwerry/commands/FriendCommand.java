@@ -1,11 +1,7 @@
 package com.gwerry.commands;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.UUID;
 
-import org.bukkit.Bukkit;
-import org.bukkit.OfflinePlayer;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
 import org.bukkit.command.ConsoleCommandSender;
@@ -13,15 +9,31 @@ import org.bukkit.entity.Player;
 
 import com.gwerry.CustomPlayer;
 import com.gwerry.Data;
+import com.gwerry.FriendListRenderer;
 import com.gwerry.PlayerManager;
 import com.gwerry.SimpleFriends;
+import com.gwerry.utils.RateLimiter;
 
 public class FriendCommand extends Command {
     private SimpleFriends plugin;
+    // Every /friend command takes a token from commandLimiter, invites also take one from inviteLimiter
+    private final RateLimiter commandLimiter;
+    private final RateLimiter inviteLimiter;
 
     public FriendCommand(String name, String description, String usageMessage, List<String> aliases) {
         super(name, description, usageMessage, aliases);
         plugin = SimpleFriends.getInstance();
+        long idleMillis = Data.COMMAND_RATE_LIMIT_IDLE_SECONDS * 1000;
+        commandLimiter = new RateLimiter("commands", Data.COMMAND_RATE_LIMIT_PER_SECOND, Data.COMMAND_RATE_LIMIT_BURST, idleMillis);
+        inviteLimiter = new RateLimiter("invites", Data.INVITE_RATE_LIMIT_PER_SECOND, Data.INVITE_RATE_LIMIT_BURST, idleMillis);
+    }
+
+    /**
+     * @brief Gets the metrics of the command and invite rate limiters.
+     * @return The limiter metrics.
+     */
+    public String getRateLimitStats() {
+        return commandLimiter.getStats() + ", " + inviteLimiter.getStats();
     }
 
     @Override
@@ -32,6 +44,10 @@ public class FriendCommand extends Command {
         }
         Player sendPlayer = (Player)sender;
         CustomPlayer senderCustomPlayer = PlayerManager.getPlayer(sendPlayer.getUniqueId());
+        if(!commandLimiter.tryAcquire(sendPlayer.getUniqueId())) {
+            sendPlayer.sendMessage(Data.COMMAND_RATE_LIMITED);
+            return true;
+        }
         if(args.length == 0) {
             sendPlayer.sendMessage(Data.FRIEND_HELP_TEXT);
             return true;
@@ -46,18 +62,17 @@ public class FriendCommand extends Command {
         }
 
         else if(args[0].equalsIgnoreCase("list")) {
-            String toSend = Data.FRIEND_LIST;
-            StringBuilder friendList = new StringBuilder();
-            ArrayList<UUID> uuids = senderCustomPlayer.getFriendList();
-
-            for(UUID uuid : uuids) {
-                OfflinePlayer p = Bukkit.getOfflinePlayer(uuid);
-                String toAppend = Data.FRIEND_LIST_SINGLE.replace("%friend_name%", p.getName());
-                if(p.isOnline()) friendList.append(toAppend.replace("%online_status%", Data.ONLINE_TEXT) + "\n");
-                else friendList.append(toAppend.replace("%online_status%", Data.OFFLINE_TEXT) + "\n");
+            int page = 1;
+            if(args.length > 1) {
+                try {
+                    page = Integer.parseInt(args[1]);
+                } catch (NumberFormatException e) {
+                    sendPlayer.sendMessage(Data.FRIEND_CMD_USAGE);
+                    return true;
+                }
             }
-            sendPlayer.sendMessage(toSend.replace("%friends%", friendList.toString()));
 
+            FriendListRenderer.show(senderCustomPlayer, page);
             return true;
         }
 
@@ -71,20 +86,21 @@ public class FriendCommand extends Command {
         }
 
         if(args[0].equalsIgnoreCase("invite")) {
-            Player p = Bukkit.getPlayer(args[1]);
-            if(p == null) {
-                sendPlayer.sendMessage(Data.PLAYER_NOT_ONLINE);
+            if(!inviteLimiter.tryAcquire(sendPlayer.getUniqueId())) {
+                sendPlayer.sendMessage(Data.COMMAND_RATE_LIMITED);
                 return true;
             }
-
-            CustomPlayer target = PlayerManager.getPlayer(p.getUniqueId());
-            senderCustomPlayer.inviteFriend(target);
+            String name = args[1];
+            SimpleFriends.getCommandPipeline().resolveThen(senderCustomPlayer, name, id -> senderCustomPlayer.inviteFriend(id, name));
         } else if(args[0].equalsIgnoreCase("kick")) {
-            senderCustomPlayer.kickFriend(args[1]);
+            String name = args[1];
+            SimpleFriends.getCommandPipeline().resolveThen(senderCustomPlayer, name, id -> senderCustomPlayer.kickFriend(id, name));
         } else if (args[0].equalsIgnoreCase("accept")) {
-            senderCustomPlayer.acceptInvite(args[1]);
+            String name = args[1];
+            SimpleFriends.getCommandPipeline().resolveThen(senderCustomPlayer, name, id -> senderCustomPlayer.acceptInvite(id, name));
         } else if (args[0].equalsIgnoreCase("deny")) {
-            senderCustomPlayer.denyInvite(args[1]);
+            String name = args[1];
+            SimpleFriends.getCommandPipeline().resolveThen(senderCustomPlayer, name, id -> senderCustomPlayer.denyInvite(id, name));
         } else {
             sendPlayer.sendMessage(Data.FRIEND_CMD_USAGE);
         }
@@ -0,0 +1,200 @@
+/**
+ * @file FriendStore.java
+ * @author gwerry
+ * @brief The FriendStore is the interface every friend persistence backend implements.
+ * @version 1.0
+ * @date 2026/10/18
+ *
+ * Copyright 2024 gwerry
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gwerry.io;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * @brief The FriendStore is the interface every friend persistence backend implements.
+ * Friendships are stored as directed edges from an owner to a friend. Every method may be called from any thread,
+ * but only the write queue's thread writes during normal operation.
+ * The backend is picked with database.backend in the config.yml.
+ *
+ * @author gwerry
+ * @version 1.0
+ */
+public interface FriendStore {
+
+    /**
+     * @brief Loads a player's friends, registering the player if the backend has never seen them.
+     *
+     * @param player The UUID of the player.
+     * @return The UUIDs of the player's friends, or null if they could not be loaded.
+     */
+    ArrayList<UUID> loadFriends(UUID player);
+
+    /**
+     * @brief Adds a single friend edge.
+     *
+     * @param owner The UUID of the player whose friend list is to be updated.
+     * @param friend The UUID of the friend to add.
+     */
+    void addFriend(UUID owner, UUID friend);
+
+    /**
+     * @brief Removes a single friend edge.
+     *
+     * @param owner The UUID of the player whose friend list is to be updated.
+     * @param friend The UUID of the friend to remove.
+     */
+    void removeFriend(UUID owner, UUID friend);
+
+    /**
+     * @brief Adds a friendship as both of its edges. Backends that support it write both atomically,
+     * so a crash can never leave a one-sided friendship behind.
+     *
+     * @param first The UUID of one of the players.
+     * @param second The UUID of the other player.
+     */
+    default void addFriendship(UUID first, UUID second) {
+        addFriend(first, second);
+        addFriend(second, first);
+    }
+
+    /**
+     * @brief Removes a friendship as both of its edges. Backends that support it write both atomically.
+     *
+     * @param first The UUID of one of the players.
+     * @param second The UUID of the other player.
+     */
+    default void removeFriendship(UUID first, UUID second) {
+        removeFriend(first, second);
+        removeFriend(second, first);
+    }
+
+    /**
+     * @brief Replaces all of a player's friend edges.
+     *
+     * @param owner The UUID of the player to save.
+     * @param friends The friends of the player.
+     */
+    void saveFriends(UUID owner, Collection<UUID> friends);
+
+    /**
+     * @brief Looks up every player that has the given player as a friend.
+     *
+     * @param friend The UUID of the player to look up.
+     * @return The UUIDs of the owners of edges pointing at the player, or null if the lookup failed.
+     */
+    ArrayList<UUID> getFriendedBy(UUID friend);
+
+    /**
+     * @brief Remembers the last known name of a player, so their UUID can be found without the Mojang API.
+     * A name belongs to at most one player, whoever had it before loses it.
+     * Backends that do not keep names ignore this.
+     *
+     * @param player The UUID of the player.
+     * @param name The current name of the player.
+     */
+    default void saveName(UUID player, String name) {
+    }
+
+    /**
+     * @brief Looks up the player that last used a name, ignoring case.
+     *
+     * @param name The name to look up.
+     * @return The UUID of the player, or null if the name is unknown.
+     */
+    default UUID findUuidByName(String name) {
+        return null;
+    }
+
+    /**
+     * @brief Looks up the last known names of several players at once.
+     *
+     * @param players The UUIDs of the players.
+     * @return The names that are known, players without one are left out.
+     */
+    default HashMap<UUID, String> loadNames(Collection<UUID> players) {
+        return new HashMap<>();
+    }
+
+    /**
+     * @brief Stores a pending friend request, replacing an older one between the same players.
+     * Backends that do not keep requests ignore this, their requests only live until a restart.
+     *
+     * @param sender The UUID of the player who sent the request.
+     * @param receiver The UUID of the player who received the request.
+     * @param expiresAt When the request expires, in milliseconds since the epoch.
+     */
+    default void saveRequest(UUID sender, UUID receiver, long expiresAt) {
+    }
+
+    /**
+     * @brief Deletes a pending friend request because it was accepted or denied.
+     *
+     * @param sender The UUID of the player who sent the request.
+     * @param receiver The UUID of the player who received the request.
+     */
+    default void deleteRequest(UUID sender, UUID receiver) {
+    }
+
+    /**
+     * @brief Loads every request a player sent or received that has not expired yet.
+     *
+     * @param player The UUID of the player.
+     * @param now The current time in milliseconds since the epoch.
+     * @return The requests of the player, or null if they could not be loaded.
+     */
+    default ArrayList<StoredRequest> loadRequests(UUID player, long now) {
+        return new ArrayList<>();
+    }
+
+    /**
+     * @brief Deletes up to limit requests that expired.
+     *
+     * @param now The current time in milliseconds since the epoch.
+     * @param limit The maximum number of requests to delete.
+     * @return The number of deleted requests.
+     */
+    default int purgeExpiredRequests(long now, int limit) {
+        return 0;
+    }
+
+    /**
+     * @brief Writes a batch of queued changes. Backends that support it do this atomically.
+     * Snapshots are applied before edge changes.
+     *
+     * @param batch The pending changes, at most one entry per player.
+     * @throws FriendStoreException If the batch could not be written.
+     */
+    default void writeBatch(Collection<PendingWrites> batch) throws FriendStoreException {
+        for (PendingWrites writes : batch) {
+            if (writes.getSnapshot() != null) saveFriends(writes.getOwner(), writes.getSnapshot());
+        }
+        for (PendingWrites writes : batch) {
+            for (Map.Entry<UUID, Boolean> edge : writes.getEdges().entrySet()) {
+                if (edge.getValue()) addFriend(writes.getOwner(), edge.getKey());
+                else removeFriend(writes.getOwner(), edge.getKey());
+            }
+        }
+    }
+
+    /**
+     * @brief Flushes and closes the backend.
+     */
+    void close();
+}
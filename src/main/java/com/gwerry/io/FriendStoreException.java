@@ -0,0 +1,43 @@
+/**
+ * @file FriendStoreException.java
+ * @author gwerry
+ * @brief The FriendStoreException is thrown when a FriendStore could not complete a write.
+ * @version 1.0
+ * @date 2026/10/18
+ *
+ * Copyright 2024 gwerry
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gwerry.io;
+
+/**
+ * @brief The FriendStoreException is thrown when a FriendStore could not complete a write.
+ * It wraps whatever the backend failed with, such as an SQLException or an IOException.
+ *
+ * @author gwerry
+ * @since 1.1
+ */
+public class FriendStoreException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * @brief Constructs a new FriendStoreException.
+     *
+     * @param message What failed.
+     * @param cause The backend error.
+     */
+    public FriendStoreException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
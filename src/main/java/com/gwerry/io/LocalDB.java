@@ -22,6 +22,7 @@
 package com.gwerry.io;
 
 import java.io.File;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -29,31 +30,61 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.logging.Logger;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.UUID;
 
-import org.apache.commons.dbcp2.BasicDataSource;
 import org.bukkit.Bukkit;
-import org.bukkit.entity.Player;
 
-import com.gwerry.CustomPlayer;
 import com.gwerry.Data;
 import com.gwerry.SimpleFriends;
+import com.gwerry.utils.UuidCodec;
 
 /**
  * @brief The LocalDB class is responsible for managing the local database operations for the SimpleFriends plugin.
+ * It is the SQLite implementation of FriendStore and the default backend.
  * It provides methods to initialize and close the database connection, and to load player data from the database.
- * The class uses Apache Commons DBCP for connection pooling and SQLite as the database.
+ * The class uses SQLite as the database, accessed through a SqliteEngine with a single writer connection.
  *
  * @author gwerry
  * @since 1.0
  */
-public class LocalDB {
+public class LocalDB implements FriendStore {
+
+    private static final int SCHEMA_VERSION = 1;
+    private static final int MIGRATION_BATCH_SIZE = 500;
+
+    // The hot queries, kept as constants since the statement cache is keyed by the SQL text
+    private static final String SQL_USER_EXISTS = "SELECT 1 FROM users WHERE id = ?";
+    private static final String SQL_INSERT_USER = "INSERT OR IGNORE INTO users (id) VALUES (?)";
+    private static final String SQL_SELECT_FRIENDS = "SELECT friend FROM friendships WHERE owner = ?";
+    private static final String SQL_INSERT_FRIEND = "INSERT OR IGNORE INTO friendships (owner, friend) VALUES (?, ?)";
+    private static final String SQL_DELETE_FRIEND = "DELETE FROM friendships WHERE owner = ? AND friend = ?";
+    private static final String SQL_DELETE_FRIENDS = "DELETE FROM friendships WHERE owner = ?";
+    private static final String SQL_SELECT_FRIENDED_BY = "SELECT owner FROM friendships WHERE friend = ?";
+    private static final String SQL_SELECT_NAME = "SELECT name FROM users WHERE id = ?";
+    // Names are loaded this many at a time, well below SQLite's limit of bound parameters
+    private static final int NAME_CHUNK = 100;
+    private static final String SQL_SELECT_NAMES = "SELECT id, name FROM users WHERE name IS NOT NULL AND id IN ("
+            + String.join(", ", Collections.nCopies(NAME_CHUNK, "?")) + ")";
+    private static final String SQL_SELECT_UUID_BY_NAME = "SELECT id FROM users WHERE name = ? LIMIT 1";
+    private static final String SQL_RELEASE_NAME = "UPDATE users SET name = NULL WHERE name = ? AND id <> ?";
+    private static final String SQL_UPSERT_NAME = "INSERT INTO users (id, name) VALUES (?, ?) "
+            + "ON CONFLICT (id) DO UPDATE SET name = excluded.name";
+    private static final String SQL_UPSERT_REQUEST = "INSERT OR REPLACE INTO friend_requests (sender, receiver, expires_at) VALUES (?, ?, ?)";
+    private static final String SQL_DELETE_REQUEST = "DELETE FROM friend_requests WHERE sender = ? AND receiver = ?";
+    // Both halves are served by an index, the received half by friend_requests_receiver_idx and the sent half by the primary key
+    private static final String SQL_SELECT_REQUESTS = "SELECT sender, receiver, expires_at FROM friend_requests WHERE receiver = ? AND expires_at > ? "
+            + "UNION ALL SELECT sender, receiver, expires_at FROM friend_requests WHERE sender = ? AND expires_at > ?";
+    private static final String SQL_PURGE_REQUESTS = "DELETE FROM friend_requests WHERE (sender, receiver) IN "
+            + "(SELECT sender, receiver FROM friend_requests WHERE expires_at <= ? LIMIT ?)";
 
-    private final String SEP_DELIM = "|";
     private final String SEP_DELIM_SPLIT = "\\|";
-    private final SimpleFriends plugin;
     private final Logger logger;
-    private BasicDataSource dataSource;
+    private boolean packedUuids; // the format the friendships are stored in, only differs from the config if converting failed
+    private SqliteEngine engine;
 
     /**
      * @brief Constructs a new LocalDB object.
@@ -62,209 +93,566 @@ public class LocalDB {
      * @param path The path to the directory where the database file is located.
      */
     public LocalDB(String name, String path) {
-        plugin = SimpleFriends.getInstance();
-        logger = plugin.getLogger();
+        this(databaseFile(name, path), SimpleFriends.getInstance().getLogger(), engineSettings(), Data.DB_PACKED_UUIDS);
+    }
 
-        File pathFolder = new File(path);
+    /**
+     * @brief Constructs a new LocalDB object without going through the plugin or its config.
+     *
+     * @param dbFile The database file, whose directory has to exist.
+     * @param logger The logger used to report failures.
+     * @param settings How the SqliteEngine is set up.
+     * @param packedUuids true to store the UUIDs of friendships as 16 byte BLOBs.
+     */
+    LocalDB(File dbFile, Logger logger, SqliteEngine.Settings settings, boolean packedUuids) {
+        this.logger = logger;
+        this.packedUuids = packedUuids;
 
-        if (!(pathFolder.exists()) && !pathFolder.mkdirs()) {
-            Bukkit.getServer().shutdown();
+        try {
+            engine = new SqliteEngine(dbFile, logger, settings);
+            engine.write(statements -> {
+                fillDefaultDB(statements.getConnection());
+                addNameColumn(statements.getConnection());
+                migrateLegacyFriends(statements.getConnection());
+                convertUuidFormat(statements.getConnection());
+                return null;
+            });
+            engine.openReaders();
+            logger.info("Successfully setup database at: " + dbFile.getAbsolutePath());
+        } catch (SQLException | IllegalArgumentException e) {
+            logger.severe("Could not create/connect to database file at: " + dbFile.getAbsolutePath() + " (" + e.getMessage() + ")");
         }
+    }
 
-        File dbFile = new File(path, name);
+    /**
+     * @brief Closes the database, waiting for the writer to finish its current work before closing.
+     */
+    @Override
+    public void close() {
+        if (engine != null) {
+            engine.close();
+        }
+    }
 
-        dataSource = new BasicDataSource();
-        dataSource.setUrl("jdbc:sqlite:" + dbFile.getAbsolutePath());
-        dataSource.setInitialSize(Data.DB_INITIAL_CONNECTIONS);
-        dataSource.setMaxTotal(Data.DB_MAX_CONNECTIONS);
-        dataSource.setMaxIdle(Data.DB_MAX_IDLE_CONNECTIONS);
-        dataSource.setMinIdle(Data.DB_MIN_IDLE_CONNECTIONS);
+    /**
+     * @brief Loads a player's friends from the database, creating the player's row if it does not exist yet.
+     * This does not touch the Bukkit API, so it is safe to call from async threads such as the pre-login thread.
+     * Returning players are served entirely by a read connection, only new players need the writer.
+     *
+     * @param playerId The UUID of the player whose data is to be loaded.
+     * @return The UUIDs of the player's friends, or null if the player's data could not be loaded.
+     */
+    @Override
+    public ArrayList<UUID> loadFriends(UUID playerId) {
+        String id = playerId.toString();
 
-        logger.info("Database initial connections: " + Data.DB_INITIAL_CONNECTIONS);
-        logger.info("Database max connections: " + Data.DB_MAX_CONNECTIONS);
-        logger.info("Database max idle connections: " + Data.DB_MAX_IDLE_CONNECTIONS);
-        logger.info("Database min idle connections: " + Data.DB_MIN_IDLE_CONNECTIONS);
+        try {
+            ArrayList<UUID> friendList = new ArrayList<>();
+            boolean exists = engine().read(statements -> {
+                PreparedStatement existsStmt = statements.prepare(SQL_USER_EXISTS);
+                existsStmt.setString(1, id);
+                boolean found;
+                try (ResultSet rs = existsStmt.executeQuery()) {
+                    found = rs.next();
+                }
 
-        try (Connection conn = dataSource.getConnection()) {
-            fillDefaultDB(conn);
-            logger.info("Successfully setup database at: " + dbFile.getAbsolutePath());
+                PreparedStatement selectStmt = statements.prepare(SQL_SELECT_FRIENDS);
+                bindUuid(selectStmt, 1, playerId);
+                try (ResultSet rs = selectStmt.executeQuery()) {
+                    while (rs.next()) {
+                        friendList.add(readUuid(rs, 1));
+                    }
+                }
+                return found;
+            });
+
+            if (!exists) {
+                engine().write(statements -> {
+                    PreparedStatement insertStmt = statements.prepare(SQL_INSERT_USER);
+                    insertStmt.setString(1, id);
+                    return insertStmt.executeUpdate();
+                });
+            }
+            return friendList;
+        } catch (SQLException e) {
+            logger.severe("Could not load player from database! UUID: " + playerId);
+        }
+
+        return null;
+    }
+
+    /**
+     * @brief Saves a player's friend list to the database.
+     * The stored friend edges of the player are replaced with the given friend list in one transaction.
+     *
+     * @param uuid The UUID of the player whose data is to be saved.
+     * @param friends The friends of the player.
+     */
+    @Override
+    public void saveFriends(UUID uuid, Collection<UUID> friends) {
+
+        try {
+            engine().transaction(statements -> {
+                PreparedStatement deleteStmt = statements.prepare(SQL_DELETE_FRIENDS);
+                bindUuid(deleteStmt, 1, uuid);
+                deleteStmt.executeUpdate();
+
+                PreparedStatement insertStmt = statements.prepare(SQL_INSERT_FRIEND);
+                for (UUID friendUUID : friends) {
+                    bindUuid(insertStmt, 1, uuid);
+                    bindUuid(insertStmt, 2, friendUUID);
+                    insertStmt.addBatch();
+                }
+                return insertStmt.executeBatch();
+            });
         } catch (SQLException e) {
-            logger.severe("Could not create/connect to database file at: " + dbFile.getAbsolutePath());
+            logger.severe("Could not update user in database! UUID: " + uuid);
         }
     }
 
     /**
-     * @brief Closes the connection pool, waiting for all active connections to finish their tasks before closing.
+     * @brief Removes a friend from a player's friend list in the database.
+     *
+     * @param toUpdate The UUID of the player whose friend list is to be updated.
+     * @param toRemove The UUID of the friend to be removed from the player's friend list.
      */
-    public void deinit() {
+    @Override
+    public void removeFriend(UUID toUpdate, UUID toRemove) {
         try {
-            if (dataSource != null) {
-                dataSource.close();
-            }
+            engine().write(statements -> {
+                PreparedStatement pstmt = statements.prepare(SQL_DELETE_FRIEND);
+                bindUuid(pstmt, 1, toUpdate);
+                bindUuid(pstmt, 2, toRemove);
+                return pstmt.executeUpdate();
+            });
         } catch (SQLException e) {
-            logger.severe("Failed to close database connection pool!");
+            logger.severe("Could not do friend removal for player in database! UUID: " + toUpdate);
         }
     }
 
     /**
-     * @brief Loads a player's data from the database.
+     * @brief Adds a friend to a player's friend list in the database.
      *
-     * @param playerId The UUID of the player whose data is to be loaded.
-     * @return The CustomPlayer object representing the player, or null if the player's data could not be loaded.
+     * @param toUpdate The UUID of the player whose friend list is to be updated.
+     * @param toAdd The UUID of the friend to be added to the player's friend list.
      */
-    public CustomPlayer loadPlayer(UUID playerId) {
-        CustomPlayer player = null;
-        String selectSql = "SELECT user_friends FROM users WHERE id = ?";
+    @Override
+    public void addFriend(UUID toUpdate, UUID toAdd) {
+        try {
+            engine().write(statements -> {
+                PreparedStatement pstmt = statements.prepare(SQL_INSERT_FRIEND);
+                bindUuid(pstmt, 1, toUpdate);
+                bindUuid(pstmt, 2, toAdd);
+                return pstmt.executeUpdate();
+            });
+        } catch (SQLException e) {
+            logger.severe("Could not add friend for player in database! UUID: " + toUpdate);
+        }
+    }
 
-        try (Connection conn = dataSource.getConnection()) {
-            PreparedStatement pstmt = conn.prepareStatement(selectSql);
+    /**
+     * @brief Adds a friendship to the database, writing both of its edges in one transaction.
+     *
+     * @param first The UUID of one of the players.
+     * @param second The UUID of the other player.
+     */
+    @Override
+    public void addFriendship(UUID first, UUID second) {
+        try {
+            writeFriendship(SQL_INSERT_FRIEND, first, second);
+        } catch (SQLException e) {
+            logger.severe("Could not add friendship to database! UUIDs: " + first + ", " + second);
+        }
+    }
 
-            pstmt.setString(1, playerId.toString());
-            ResultSet rs = pstmt.executeQuery();
+    /**
+     * @brief Removes a friendship from the database, deleting both of its edges in one transaction.
+     *
+     * @param first The UUID of one of the players.
+     * @param second The UUID of the other player.
+     */
+    @Override
+    public void removeFriendship(UUID first, UUID second) {
+        try {
+            writeFriendship(SQL_DELETE_FRIEND, first, second);
+        } catch (SQLException e) {
+            logger.severe("Could not remove friendship from database! UUIDs: " + first + ", " + second);
+        }
+    }
 
-            if (rs.next()) {
-                String friendListStr = rs.getString("user_friends");
-                ArrayList<UUID> friendList = new ArrayList<>();
+    /**
+     * @brief Remembers the last known name of a player, taking it away from whoever had it before.
+     * The current name is checked on a read connection first, so a returning player with the same name costs no write.
+     *
+     * @param player The UUID of the player.
+     * @param name The current name of the player.
+     */
+    @Override
+    public void saveName(UUID player, String name) {
+        String id = player.toString();
 
-                for (String friendIdStr : friendListStr.split(SEP_DELIM_SPLIT)) {
-                    try{
-                        friendList.add(UUID.fromString(friendIdStr));
-                    }catch(Exception e) {}
+        try {
+            String stored = engine().read(statements -> {
+                PreparedStatement pstmt = statements.prepare(SQL_SELECT_NAME);
+                pstmt.setString(1, id);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    return rs.next() ? rs.getString(1) : null;
                 }
+            });
+            if (name.equals(stored)) return;
+
+            engine().transaction(statements -> {
+                PreparedStatement releaseStmt = statements.prepare(SQL_RELEASE_NAME);
+                releaseStmt.setString(1, name);
+                releaseStmt.setString(2, id);
+                releaseStmt.executeUpdate();
+
+                PreparedStatement upsertStmt = statements.prepare(SQL_UPSERT_NAME);
+                upsertStmt.setString(1, id);
+                upsertStmt.setString(2, name);
+                return upsertStmt.executeUpdate();
+            });
+        } catch (SQLException e) {
+            logger.severe("Could not save name of player in database! UUID: " + player);
+        }
+    }
 
-                Player p = Bukkit.getPlayer(playerId);
-                player = new CustomPlayer(p, friendList);
-            } else {
-                // Player not found in the database, so insert a new player
-                String insertSql = "INSERT INTO users (id, user_friends) VALUES (?, ?)";
-                PreparedStatement insertStmt = conn.prepareStatement(insertSql);
+    /**
+     * @brief Looks up the player that last used a name. The name column is indexed and compares without case.
+     *
+     * @param name The name to look up.
+     * @return The UUID of the player, or null if the name is unknown or the lookup failed.
+     */
+    @Override
+    public UUID findUuidByName(String name) {
+        try {
+            return engine().read(statements -> {
+                PreparedStatement pstmt = statements.prepare(SQL_SELECT_UUID_BY_NAME);
+                pstmt.setString(1, name);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    return rs.next() ? UUID.fromString(rs.getString(1)) : null;
+                }
+            });
+        } catch (SQLException | IllegalArgumentException e) {
+            logger.severe("Could not look up player by name in database! Name: " + name);
+        }
 
-                insertStmt.setString(1, playerId.toString());
-                insertStmt.setString(2, "");  // Assuming no friends initially
+        return null;
+    }
 
-                insertStmt.executeUpdate();
+    /**
+     * @brief Looks up the last known names of several players on one read connection, up to NAME_CHUNK of them
+     * per query. A short last chunk repeats its first UUID, so every query uses the same cached statement.
+     *
+     * @param players The UUIDs of the players.
+     * @return The names that are known, players without one are left out. Empty if the lookup failed.
+     */
+    @Override
+    public HashMap<UUID, String> loadNames(Collection<UUID> players) {
+        try {
+            return engine().read(statements -> {
+                HashMap<UUID, String> found = new HashMap<>();
+                ArrayList<UUID> ids = new ArrayList<>(players);
+                PreparedStatement pstmt = statements.prepare(SQL_SELECT_NAMES);
+                for (int start = 0; start < ids.size(); start += NAME_CHUNK) {
+                    for (int i = 0; i < NAME_CHUNK; i++) {
+                        int index = start + i < ids.size() ? start + i : start;
+                        pstmt.setString(i + 1, ids.get(index).toString());
+                    }
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) found.put(UUID.fromString(rs.getString(1)), rs.getString(2));
+                    }
+                }
+                return found;
+            });
+        } catch (SQLException | IllegalArgumentException e) {
+            logger.severe("Could not load names of players from database!");
+        }
 
-                Player p = Bukkit.getPlayer(playerId);
-                player = new CustomPlayer(p, new ArrayList<>());  // Assuming no friends initially
-            }
+        return new HashMap<>();
+    }
 
-            rs.close();
-            pstmt.closeOnCompletion();
+    /**
+     * @brief Stores a pending friend request, replacing an older one between the same players.
+     *
+     * @param sender The UUID of the player who sent the request.
+     * @param receiver The UUID of the player who received the request.
+     * @param expiresAt When the request expires, in milliseconds since the epoch.
+     */
+    @Override
+    public void saveRequest(UUID sender, UUID receiver, long expiresAt) {
+        try {
+            engine().write(statements -> {
+                PreparedStatement pstmt = statements.prepare(SQL_UPSERT_REQUEST);
+                pstmt.setString(1, sender.toString());
+                pstmt.setString(2, receiver.toString());
+                pstmt.setLong(3, expiresAt);
+                return pstmt.executeUpdate();
+            });
         } catch (SQLException e) {
-            logger.severe("Could not load player from database! UUID: " + playerId);
+            logger.severe("Could not save friend request in database! UUID: " + sender);
         }
-
-        return player;
     }
 
     /**
-     * @brief Saves a player's data to the database.
+     * @brief Deletes a pending friend request.
      *
-     * @param player The CustomPlayer object representing the player whose data is to be saved.
+     * @param sender The UUID of the player who sent the request.
+     * @param receiver The UUID of the player who received the request.
      */
-    public void savePlayer(CustomPlayer player) {
-        String uuid = player.getPlayer().getUniqueId().toString();
-        StringBuilder friendListBuilder = new StringBuilder();
-        for(UUID friendUUID : player.getFriendList()) friendListBuilder.append(friendUUID.toString() + SEP_DELIM);
+    @Override
+    public void deleteRequest(UUID sender, UUID receiver) {
+        try {
+            engine().write(statements -> {
+                PreparedStatement pstmt = statements.prepare(SQL_DELETE_REQUEST);
+                pstmt.setString(1, sender.toString());
+                pstmt.setString(2, receiver.toString());
+                return pstmt.executeUpdate();
+            });
+        } catch (SQLException e) {
+            logger.severe("Could not delete friend request from database! UUID: " + sender);
+        }
+    }
 
-        String friendList = friendListBuilder.toString();
+    /**
+     * @brief Loads every request a player sent or received that has not expired yet, in one query on a read connection.
+     *
+     * @param player The UUID of the player.
+     * @param now The current time in milliseconds since the epoch.
+     * @return The requests of the player, or null if the lookup failed.
+     */
+    @Override
+    public ArrayList<StoredRequest> loadRequests(UUID player, long now) {
+        String id = player.toString();
 
-        String sql = "UPDATE users SET user_friends = ? WHERE id = ?";
-        try (Connection conn = dataSource.getConnection()) {
-            PreparedStatement pstmt = conn.prepareStatement(sql);
+        try {
+            return engine().read(statements -> {
+                ArrayList<StoredRequest> found = new ArrayList<>();
+                PreparedStatement pstmt = statements.prepare(SQL_SELECT_REQUESTS);
+                pstmt.setString(1, id);
+                pstmt.setLong(2, now);
+                pstmt.setString(3, id);
+                pstmt.setLong(4, now);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        found.add(new StoredRequest(UUID.fromString(rs.getString(1)), UUID.fromString(rs.getString(2)), rs.getLong(3)));
+                    }
+                }
+                return found;
+            });
+        } catch (SQLException | IllegalArgumentException e) {
+            logger.severe("Could not load friend requests from database! UUID: " + player);
+        }
 
-            pstmt.setString(1, friendList);
-            pstmt.setString(2, uuid);
-            pstmt.executeUpdate();
+        return null;
+    }
 
-            pstmt.closeOnCompletion();
+    /**
+     * @brief Deletes up to limit expired requests in one short write, found through the expiry index.
+     *
+     * @param now The current time in milliseconds since the epoch.
+     * @param limit The maximum number of requests to delete.
+     * @return The number of deleted requests.
+     */
+    @Override
+    public int purgeExpiredRequests(long now, int limit) {
+        try {
+            return engine().write(statements -> {
+                PreparedStatement pstmt = statements.prepare(SQL_PURGE_REQUESTS);
+                pstmt.setLong(1, now);
+                pstmt.setInt(2, limit);
+                return pstmt.executeUpdate();
+            });
         } catch (SQLException e) {
-            logger.severe("Could not update user in database! User: " + player.getPlayer().getName() + "\nUUID: " + uuid);
+            logger.severe("Could not purge expired friend requests from database!");
         }
+
+        return 0;
     }
 
     /**
-     * @brief Removes a friend from a player's friend list in the database.
+     * @brief Writes a batch of queued changes in a single transaction.
+     * Snapshots are written first, edge changes afterwards, so a newer edge change always wins.
      *
-     * @param toUpdate The UUID of the player whose friend list is to be updated.
-     * @param toRemove The UUID of the friend to be removed from the player's friend list.
+     * @param batch The pending changes, at most one entry per player.
+     * @throws FriendStoreException If the transaction failed, in which case nothing was written.
      */
-    public void savePlayerRemoveFriend(UUID toUpdate, UUID toRemove) {
-        String getSQL = "SELECT user_friends FROM users WHERE id = ?";
-
-        try (Connection conn = dataSource.getConnection()) {
-            PreparedStatement pstmt = conn.prepareStatement(getSQL);
-
-            pstmt.setString(1, toUpdate.toString());
-            ResultSet rs = pstmt.executeQuery();
-
-            if (rs.next()) {
-                String friendListStr = rs.getString("user_friends");
-                String toRemoveIdStr = toRemove.toString();
-
-                friendListStr = friendListStr.replace(toRemoveIdStr + SEP_DELIM, "");
-                if(!friendListStr.endsWith(SEP_DELIM)) friendListStr += SEP_DELIM;
-                // Update the friend list of the player
-                String updateSQL = "UPDATE users SET user_friends = ? WHERE id = ?";
-                pstmt = conn.prepareStatement(updateSQL);
-                pstmt.setString(1, friendListStr);
-                pstmt.setString(2, toUpdate.toString());
-                pstmt.executeUpdate();
-            }
-
-            rs.close();
-            pstmt.closeOnCompletion();
+    @Override
+    public void writeBatch(Collection<PendingWrites> batch) throws FriendStoreException {
+        try {
+            writeBatchTransaction(batch);
         } catch (SQLException e) {
-            logger.severe("Could not do friend removal for player in database! UUID: " + toUpdate);
+            throw new FriendStoreException("Could not write batch to database", e);
         }
     }
 
     /**
-     * Adds a friend to a player's friend list in the database.
+     * @brief Looks up every player that has the given player as a friend, using the reverse index.
      *
-     * @param toUpdate The UUID of the player whose friend list is to be updated.
-     * @param toAdd The UUID of the friend to be added to the player's friend list.
+     * @param friend The UUID of the player to look up.
+     * @return The UUIDs of the players that have the player as a friend, or null if the lookup failed.
      */
-    public void savePlayerAddFriend(UUID toUpdate, UUID toAdd) {
-        String getSQL = "SELECT user_friends FROM users WHERE id = ?";
+    @Override
+    public ArrayList<UUID> getFriendedBy(UUID friend) {
+        try {
+            return engine().read(statements -> {
+                ArrayList<UUID> owners = new ArrayList<>();
+                PreparedStatement pstmt = statements.prepare(SQL_SELECT_FRIENDED_BY);
+                bindUuid(pstmt, 1, friend);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) owners.add(readUuid(rs, 1));
+                }
+                return owners;
+            });
+        } catch (SQLException e) {
+            logger.severe("Could not look up who is friends with player! UUID: " + friend);
+        }
 
-        try (Connection conn = dataSource.getConnection()) {
-            PreparedStatement pstmt = conn.prepareStatement(getSQL);
+        return null;
+    }
 
-            pstmt.setString(1, toUpdate.toString());
-            ResultSet rs = pstmt.executeQuery();
+    private void writeBatchTransaction(Collection<PendingWrites> batch) throws SQLException {
+        engine().transaction(statements -> {
+            PreparedStatement deleteAllStmt = statements.prepare(SQL_DELETE_FRIENDS);
+            PreparedStatement insertStmt = statements.prepare(SQL_INSERT_FRIEND);
+            PreparedStatement deleteStmt = statements.prepare(SQL_DELETE_FRIEND);
+
+            for (PendingWrites writes : batch) {
+                if (writes.getSnapshot() == null) continue;
+                bindUuid(deleteAllStmt, 1, writes.getOwner());
+                deleteAllStmt.addBatch();
+                for (UUID friend : writes.getSnapshot()) {
+                    bindUuid(insertStmt, 1, writes.getOwner());
+                    bindUuid(insertStmt, 2, friend);
+                    insertStmt.addBatch();
+                }
+            }
+            deleteAllStmt.executeBatch();
+            insertStmt.executeBatch();
+
+            for (PendingWrites writes : batch) {
+                for (Map.Entry<UUID, Boolean> edge : writes.getEdges().entrySet()) {
+                    PreparedStatement pstmt = edge.getValue() ? insertStmt : deleteStmt;
+                    bindUuid(pstmt, 1, writes.getOwner());
+                    bindUuid(pstmt, 2, edge.getKey());
+                    pstmt.addBatch();
+                }
+            }
+            deleteStmt.executeBatch();
+            insertStmt.executeBatch();
+            return null;
+        });
+    }
 
-            if (rs.next()) {
-                String friendListStr = rs.getString("user_friends");
-                String toAddIdStr = toAdd.toString();
+    private void writeFriendship(String sql, UUID first, UUID second) throws SQLException {
+        engine().transaction(statements -> {
+            PreparedStatement pstmt = statements.prepare(sql);
+            bindUuid(pstmt, 1, first);
+            bindUuid(pstmt, 2, second);
+            pstmt.addBatch();
+            bindUuid(pstmt, 1, second);
+            bindUuid(pstmt, 2, first);
+            pstmt.addBatch();
+            return pstmt.executeBatch();
+        });
+    }
 
-                // Add the id of the friend
-                friendListStr += SEP_DELIM + toAddIdStr + SEP_DELIM;
+    /**
+     * @brief Binds a UUID in the configured storage format, a 16 byte BLOB when packed and TEXT otherwise.
+     *
+     * @param pstmt The statement to bind to.
+     * @param index The index of the parameter.
+     * @param uuid The UUID to bind.
+     * @throws SQLException If the parameter could not be set.
+     */
+    private void bindUuid(PreparedStatement pstmt, int index, UUID uuid) throws SQLException {
+        if (packedUuids) pstmt.setBytes(index, UuidCodec.toBytes(uuid));
+        else pstmt.setString(index, uuid.toString());
+    }
 
-                // Update the friend list of the player
-                String updateSQL = "UPDATE users SET user_friends = ? WHERE id = ?";
-                pstmt = conn.prepareStatement(updateSQL);
-                pstmt.setString(1, friendListStr);
-                pstmt.setString(2, toUpdate.toString());
-                pstmt.executeUpdate();
-            }
+    /**
+     * @brief Reads a UUID column that may hold either format.
+     * Packed values are decoded straight from their bytes, only TEXT values go through a String.
+     *
+     * @param rs The result set to read from.
+     * @param index The index of the column.
+     * @return The UUID.
+     * @throws SQLException If the column could not be read.
+     */
+    private UUID readUuid(ResultSet rs, int index) throws SQLException {
+        byte[] bytes = rs.getBytes(index);
+        if (bytes.length == UuidCodec.UUID_BYTES) return UuidCodec.fromBytes(bytes);
+        return UUID.fromString(new String(bytes, StandardCharsets.US_ASCII));
+    }
 
-            rs.close();
-            pstmt.closeOnCompletion();
-        } catch (SQLException e) {
-            logger.severe("Could not add friend for player in database! UUID: " + toUpdate);
+    /**
+     * @brief Gets the database file, creating its directory. The server is shut down if that is not possible.
+     *
+     * @param name The name of the database file.
+     * @param path The path to the directory where the database file is located.
+     * @return The database file.
+     */
+    private static File databaseFile(String name, String path) {
+        File pathFolder = new File(path);
+
+        if (!(pathFolder.exists()) && !pathFolder.mkdirs()) {
+            Bukkit.getServer().shutdown();
         }
+
+        return new File(path, name);
+    }
+
+    /**
+     * @brief Gets the SqliteEngine settings from the config.
+     *
+     * @return The engine settings.
+     */
+    private static SqliteEngine.Settings engineSettings() {
+        SqliteEngine.Settings settings = new SqliteEngine.Settings();
+        settings.readConnections = Data.DB_READ_CONNECTIONS;
+        settings.journalMode = Data.DB_JOURNAL_MODE;
+        settings.synchronous = Data.DB_SYNCHRONOUS;
+        settings.mmapSizeBytes = Data.DB_MMAP_SIZE_MB * 1024L * 1024L;
+        settings.cacheSizeKb = Data.DB_CACHE_SIZE_KB;
+        settings.busyTimeoutMs = Data.DB_BUSY_TIMEOUT_MS;
+        settings.debug = Data.DB_DEBUG;
+        return settings;
+    }
+
+    /**
+     * @brief Gets the engine, failing like any other database error if it could not be opened.
+     *
+     * @return The SqliteEngine of this database.
+     * @throws SQLException If the database is not open.
+     */
+    private SqliteEngine engine() throws SQLException {
+        if (engine == null) throw new SQLException("Database is not open");
+        return engine;
     }
 
     /**
      * @brief Fills database with default paramaters.
      *
      * Structure is as folllows
-     * "delimiter" is defined as SEP_DELIM in this class
      * users {
      *     id varchar // UUID of player
-     *     user_friends varchar // player's friends' uuids separated delimeter
+     *     user_friends varchar // legacy delimited friend list, only read by the migration
+     *     name varchar // last known name of the player, compared without case
+     * }
+     * friendships {
+     *     owner varchar|blob // UUID of player
+     *     friend varchar|blob // UUID of one of the player's friends
      * }
+     * meta {
+     *     key varchar // name of the setting
+     *     value varchar // value of the setting
+     * }
+     * friend_requests {
+     *     sender varchar // UUID of the player who sent the request
+     *     receiver varchar // UUID of the player who received the request
+     *     expires_at integer // when the request expires, in milliseconds since the epoch
+     * }
+     * The UUIDs in friendships are 16 byte BLOBs when database.packed_uuids is on, and TEXT otherwise.
      *
      * @param conn Database Connection.
      */
@@ -274,12 +662,213 @@ public class LocalDB {
             // Create the "users" table
             stmt.execute("CREATE TABLE IF NOT EXISTS users ("
                     + "id TEXT PRIMARY KEY,"
-                    + "user_friends TEXT"
+                    + "user_friends TEXT,"
+                    + "name TEXT COLLATE NOCASE"
                     + ");");
 
+            // Create the "friendships" table, one row per directed friend edge
+            stmt.execute("CREATE TABLE IF NOT EXISTS friendships ("
+                    + "owner TEXT NOT NULL,"
+                    + "friend TEXT NOT NULL,"
+                    + "PRIMARY KEY (owner, friend)"
+                    + ") WITHOUT ROWID;");
+
+            // Small key/value table for settings that are baked into the file
+            stmt.execute("CREATE TABLE IF NOT EXISTS meta ("
+                    + "key TEXT PRIMARY KEY,"
+                    + "value TEXT"
+                    + ");");
+
+            // Reverse index for "who has this player as a friend" lookups
+            stmt.execute("CREATE INDEX IF NOT EXISTS friendships_friend_idx ON friendships (friend, owner);");
+
+            // Pending friend requests, short lived so their UUIDs always stay TEXT
+            stmt.execute("CREATE TABLE IF NOT EXISTS friend_requests ("
+                    + "sender TEXT NOT NULL,"
+                    + "receiver TEXT NOT NULL,"
+                    + "expires_at INTEGER NOT NULL,"
+                    + "PRIMARY KEY (sender, receiver)"
+                    + ") WITHOUT ROWID;");
+
+            // The inbox of a player is read at login, expired requests are purged in expiry order
+            stmt.execute("CREATE INDEX IF NOT EXISTS friend_requests_receiver_idx ON friend_requests (receiver, expires_at);");
+            stmt.execute("CREATE INDEX IF NOT EXISTS friend_requests_expiry_idx ON friend_requests (expires_at);");
+
             logger.info("Database setup sucessfully.");
         } catch (SQLException exception) {
             logger.severe("Failed to initialize tables for database!");
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * @brief Adds the name column to users tables created before it existed, and indexes it.
+     * The index inherits the NOCASE collation of the column, so case-insensitive lookups can use it.
+     *
+     * @param conn Database Connection.
+     */
+    private void addNameColumn(Connection conn) {
+        try (Statement stmt = conn.createStatement()) {
+            boolean found = false;
+            try (ResultSet rs = stmt.executeQuery("PRAGMA table_info(users);")) {
+                while (rs.next()) {
+                    if (rs.getString("name").equalsIgnoreCase("name")) found = true;
+                }
+            }
+            if (!found) {
+                stmt.execute("ALTER TABLE users ADD COLUMN name TEXT COLLATE NOCASE;");
+                logger.info("Added the name column to the users table.");
+            }
+
+            stmt.execute("CREATE INDEX IF NOT EXISTS users_name_idx ON users (name);");
+        } catch (SQLException exception) {
+            logger.severe("Failed to add the name column to the users table!");
+        }
+    }
+
+    /**
+     * @brief Moves the legacy delimited user_friends column into the friendships table.
+     * This only runs once per database file, the schema version is kept in PRAGMA user_version.
+     * Rows are streamed and written in batches of MIGRATION_BATCH_SIZE so large files never sit in memory at once.
+     *
+     * @param conn Database Connection.
+     */
+    private void migrateLegacyFriends(Connection conn) {
+        try (Statement stmt = conn.createStatement()) {
+            int version;
+            try (ResultSet rs = stmt.executeQuery("PRAGMA user_version;")) {
+                version = rs.next() ? rs.getInt(1) : 0;
+            }
+            if (version >= SCHEMA_VERSION) return;
+
+            logger.info("Migrating friend lists to the friendships table...");
+            long migrated = 0;
+            int pending = 0;
+
+            conn.setAutoCommit(false);
+            try (PreparedStatement selectStmt = conn.prepareStatement(
+                         "SELECT id, user_friends FROM users WHERE user_friends IS NOT NULL AND user_friends <> ''");
+                 PreparedStatement insertStmt = conn.prepareStatement(
+                         "INSERT OR IGNORE INTO friendships (owner, friend) VALUES (?, ?)")) {
+                selectStmt.setFetchSize(MIGRATION_BATCH_SIZE);
+
+                try (ResultSet rs = selectStmt.executeQuery()) {
+                    while (rs.next()) {
+                        String ownerStr = rs.getString(1);
+                        UUID owner;
+                        try {
+                            owner = UUID.fromString(ownerStr);
+                        } catch (IllegalArgumentException e) {
+                            logger.warning("Skipping friends of invalid UUID: " + ownerStr);
+                            continue;
+                        }
+                        for (String friendIdStr : rs.getString(2).split(SEP_DELIM_SPLIT)) {
+                            if (friendIdStr.isEmpty()) continue;
+                            UUID friend;
+                            try {
+                                friend = UUID.fromString(friendIdStr);
+                            } catch (IllegalArgumentException e) {
+                                logger.warning("Skipping invalid friend entry \"" + friendIdStr + "\" of UUID: " + owner);
+                                continue;
+                            }
+
+                            bindUuid(insertStmt, 1, owner);
+                            bindUuid(insertStmt, 2, friend);
+                            insertStmt.addBatch();
+
+                            if (++pending == MIGRATION_BATCH_SIZE) {
+                                insertStmt.executeBatch();
+                                migrated += pending;
+                                pending = 0;
+                            }
+                        }
+                    }
+                }
+
+                insertStmt.executeBatch();
+                migrated += pending;
+
+                stmt.executeUpdate("UPDATE users SET user_friends = NULL;");
+                stmt.execute("PRAGMA user_version = " + SCHEMA_VERSION + ";");
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+
+            logger.info("Migrated " + migrated + " friend entries.");
+        } catch (SQLException exception) {
+            logger.severe("Failed to migrate friend lists to the friendships table!");
+        }
+    }
+
+    /**
+     * @brief Converts the stored friend UUIDs to the configured format if the file was written in the other one.
+     * The current format is kept in the meta table, so this only does work after database.packed_uuids was changed.
+     * After packing, the file is vacuumed so the freed pages are actually given back.
+     * If the conversion fails it is rolled back, and this database keeps using the format of the file.
+     *
+     * @param conn Database Connection.
+     */
+    private void convertUuidFormat(Connection conn) {
+        String wanted = packedUuids ? "packed" : "text";
+        String current = "text";
+        int rows;
+
+        try (Statement stmt = conn.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery("SELECT value FROM meta WHERE key = 'uuid_format';")) {
+                if (rs.next()) current = rs.getString(1);
+            }
+            if (current.equals(wanted)) return;
+
+            logger.info("Converting stored friend UUIDs to the " + wanted + " format...");
+            conn.setAutoCommit(false);
+            try {
+                if (packedUuids) {
+                    rows = stmt.executeUpdate("UPDATE OR REPLACE friendships SET "
+                            + "owner = unhex(replace(owner, '-', '')), "
+                            + "friend = unhex(replace(friend, '-', '')) "
+                            + "WHERE typeof(owner) = 'text' OR typeof(friend) = 'text';");
+                } else {
+                    rows = stmt.executeUpdate("UPDATE OR REPLACE friendships SET "
+                            + "owner = " + hexToUuidSql("owner") + ", "
+                            + "friend = " + hexToUuidSql("friend") + " "
+                            + "WHERE typeof(owner) = 'blob' OR typeof(friend) = 'blob';");
+                }
+                stmt.executeUpdate("INSERT OR REPLACE INTO meta (key, value) VALUES ('uuid_format', '" + wanted + "');");
+                conn.commit();
+                logger.info("Converted " + rows + " friend entries.");
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException exception) {
+            // Everything was rolled back, keep reading and writing the format the file is still in
+            packedUuids = current.equals("packed");
+            logger.severe("Failed to convert stored friend UUIDs to the " + wanted + " format, they stay in the " + current + " format!");
+            return;
+        }
+
+        if (rows == 0 || !packedUuids) return;
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("VACUUM;");
+        } catch (SQLException exception) {
+            logger.warning("Failed to vacuum the database after packing friend UUIDs, the freed pages are reused later.");
+        }
+    }
+
+    /**
+     * @brief Builds the SQL expression that turns a packed UUID column back into its dashed text form.
+     *
+     * @param column The name of the column.
+     * @return The SQL expression.
+     */
+    private static String hexToUuidSql(String column) {
+        String hex = "lower(hex(" + column + "))";
+        return "substr(" + hex + ", 1, 8) || '-' || substr(" + hex + ", 9, 4) || '-' || substr(" + hex + ", 13, 4) || '-' || "
+                + "substr(" + hex + ", 17, 4) || '-' || substr(" + hex + ", 21, 12)";
+    }
+}
@@ -0,0 +1,858 @@
+/**
+ * @file LogFriendStore.java
+ * @author gwerry
+ * @brief The LogFriendStore class is a FriendStore backed by a memory-mapped append-only journal.
+ * @version 1.0
+ * @date 2026/10/18
+ *
+ * Copyright 2024 gwerry
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gwerry.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+import com.gwerry.utils.UuidCodec;
+
+/**
+ * @brief The LogFriendStore class is a FriendStore backed by a memory-mapped append-only journal.
+ * Every change is appended as a fixed size binary record straight into a mapping of the file, no SQL involved.
+ * On startup the journal is replayed into a MemoryFriendStore, which then answers every read.
+ * Every write is a transaction: its records followed by a COMMIT record, made durable with a single ranged force.
+ *
+ * The file starts with a 16 byte header (magic, format version) followed by 48 byte records:
+ * type (1 byte), the low 24 bits of the transaction sequence number (3 bytes), CRC32 of the other 44 bytes (4 bytes),
+ * owner UUID (16 bytes), friend UUID (16 bytes) and a payload long (8 bytes). NAME records keep the zero padded name
+ * in the friend slot, which fits any Java Edition name. REQUEST records store a pending friend request from owner
+ * to friend, with its expiry in the payload. A COMMIT record holds the full sequence number in the owner slot and
+ * the number of records it commits in the payload. The file grows by at least doubling, so the tail is zero filled.
+ *
+ * A ranged force is not atomic, the pages it covers can reach the disk partly and in any order. Replay therefore
+ * only applies transactions whose COMMIT record was found, after every one of their records passed its CRC and
+ * carried the expected sequence number. It stops at the first record that is all zero, fails its CRC or belongs to
+ * another transaction, and the records of a transaction that was not committed are dropped, so both edges of a
+ * friendship or a whole batch are recovered together or not at all. Everything behind the last commit is wiped so
+ * it can never be replayed later.
+ *
+ * Removed edges and answered or expired requests leave dead records behind. A background task rewrites the
+ * journal with only the live edges, names and requests once the share of dead records passes the configured ratio.
+ *
+ * @author gwerry
+ * @since 1.1
+ */
+public class LogFriendStore implements FriendStore {
+    private static final int MAGIC = 0x53464a4c; // "SFJL"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int RECORD_BYTES = 48;
+
+    private static final byte ADD = 1;
+    private static final byte REMOVE = 2;
+    private static final byte CLEAR = 3;
+    private static final byte NAME = 4;
+    private static final byte REQUEST = 5;
+    private static final byte UNREQUEST = 6;
+    private static final byte COMMIT = 7;
+    private static final int SEQUENCE_MASK = 0xFFFFFF;
+    private static final UUID NONE = new UUID(0, 0);
+
+    /**
+     * @brief The tuning knobs of the journal, usually filled from the config.yml.
+     */
+    public static class Settings {
+        public int chunkSizeBytes = 4 * 1024 * 1024;
+        public double compactDeadRatio = 0.5;
+        public long compactMinRecords = 10000;
+        public long compactCheckSeconds = 60;
+    }
+
+    private final File file;
+    private final Logger logger;
+    private final Settings settings;
+    private final MemoryFriendStore index = new MemoryFriendStore();
+    private final CRC32 crc = new CRC32();
+    private final byte[] scratch = new byte[RECORD_BYTES];
+    private final ScheduledExecutorService compactor;
+
+    private FileChannel channel;
+    private MappedByteBuffer map;
+    private int writePos;
+    private long records;
+    // COMMIT records among records, they are never live
+    private long commits;
+    private long compactions;
+    // Sequence number of the next transaction, restarts at 0 with every rewritten journal
+    private long sequence;
+    // Records appended by the open transaction, not counting its COMMIT
+    private long pendingRecords;
+    private int txStart;
+    private long txStartRecords;
+    private long txStartCommits;
+
+    /**
+     * @brief Opens the journal, creating it if needed, and replays it into memory.
+     *
+     * @param file The journal file.
+     * @param logger The logger to report to.
+     * @param settings The tuning knobs of the journal.
+     * @throws IOException If the journal could not be opened or read.
+     */
+    public LogFriendStore(File file, Logger logger, Settings settings) throws IOException {
+        this.file = file;
+        this.logger = logger;
+        this.settings = settings;
+
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = channel.size();
+
+        if (size > 0 && !hasHeader()) {
+            channel.close();
+            throw new IOException(file.getName() + " is not a friend journal");
+        }
+        map(Math.max(size, HEADER_BYTES + settings.chunkSizeBytes));
+        if (size == 0) writeHeader();
+        int version = map.getInt(4);
+        if (version != FORMAT_VERSION) {
+            release();
+            throw new IOException(file.getName() + " has the unknown journal format " + version);
+        }
+        replay();
+
+        logger.info("Replayed " + records + " friend journal records from " + file.getAbsolutePath());
+
+        compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "SimpleFriends-JournalCompactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, settings.compactCheckSeconds);
+        compactor.scheduleWithFixedDelay(this::compactIfNeeded, period, period, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @brief Loads a player's friends from memory.
+     *
+     * @param player The UUID of the player.
+     * @return The UUIDs of the player's friends.
+     */
+    @Override
+    public ArrayList<UUID> loadFriends(UUID player) {
+        return index.loadFriends(player);
+    }
+
+    /**
+     * @brief Appends and applies a single friend edge.
+     *
+     * @param owner The UUID of the player whose friend list is to be updated.
+     * @param friend The UUID of the friend to add.
+     */
+    @Override
+    public synchronized void addFriend(UUID owner, UUID friend) {
+        try {
+            int start = begin();
+            append(ADD, owner, friend, 0);
+            commit(start);
+        } catch (IOException e) {
+            abort();
+            logger.severe("Could not append to friend journal! UUID: " + owner);
+            return;
+        }
+        index.addFriend(owner, friend);
+    }
+
+    /**
+     * @brief Appends and applies the removal of a single friend edge.
+     *
+     * @param owner The UUID of the player whose friend list is to be updated.
+     * @param friend The UUID of the friend to remove.
+     */
+    @Override
+    public synchronized void removeFriend(UUID owner, UUID friend) {
+        try {
+            int start = begin();
+            append(REMOVE, owner, friend, 0);
+            commit(start);
+        } catch (IOException e) {
+            abort();
+            logger.severe("Could not append to friend journal! UUID: " + owner);
+            return;
+        }
+        index.removeFriend(owner, friend);
+    }
+
+    /**
+     * @brief Appends both edges of a friendship and forces them to disk together.
+     *
+     * @param first The UUID of one of the players.
+     * @param second The UUID of the other player.
+     */
+    @Override
+    public synchronized void addFriendship(UUID first, UUID second) {
+        try {
+            int start = begin();
+            append(ADD, first, second, 0);
+            append(ADD, second, first, 0);
+            commit(start);
+        } catch (IOException e) {
+            abort();
+            logger.severe("Could not append to friend journal! UUIDs: " + first + ", " + second);
+            return;
+        }
+        index.addFriendship(first, second);
+    }
+
+    /**
+     * @brief Appends the removal of both edges of a friendship and forces them to disk together.
+     *
+     * @param first The UUID of one of the players.
+     * @param second The UUID of the other player.
+     */
+    @Override
+    public synchronized void removeFriendship(UUID first, UUID second) {
+        try {
+            int start = begin();
+            append(REMOVE, first, second, 0);
+            append(REMOVE, second, first, 0);
+            commit(start);
+        } catch (IOException e) {
+            abort();
+            logger.severe("Could not append to friend journal! UUIDs: " + first + ", " + second);
+            return;
+        }
+        index.removeFriendship(first, second);
+    }
+
+    /**
+     * @brief Appends a CLEAR record followed by one ADD record per friend.
+     *
+     * @param owner The UUID of the player to save.
+     * @param friends The friends of the player.
+     */
+    @Override
+    public synchronized void saveFriends(UUID owner, Collection<UUID> friends) {
+        try {
+            int start = begin();
+            append(CLEAR, owner, NONE, 0);
+            for (UUID friend : friends) append(ADD, owner, friend, 0);
+            commit(start);
+        } catch (IOException e) {
+            abort();
+            logger.severe("Could not append to friend journal! UUID: " + owner);
+            return;
+        }
+        index.saveFriends(owner, friends);
+    }
+
+    /**
+     * @brief Looks up every player that has the given player as a friend.
+     *
+     * @param friend The UUID of the player to look up.
+     * @return The UUIDs of the owners of edges pointing at the player.
+     */
+    @Override
+    public ArrayList<UUID> getFriendedBy(UUID friend) {
+        return index.getFriendedBy(friend);
+    }
+
+    /**
+     * @brief Appends the name of a player if it changed.
+     * Names that do not fit into a record are not remembered.
+     *
+     * @param player The UUID of the player.
+     * @param name The current name of the player.
+     */
+    @Override
+    public synchronized void saveName(UUID player, String name) {
+        if (name.equals(index.getName(player))) return;
+        UUID packed = packName(name);
+        if (packed == null) return;
+
+        try {
+            int start = begin();
+            append(NAME, player, packed, 0);
+            commit(start);
+        } catch (IOException e) {
+            abort();
+            logger.severe("Could not append to friend journal! UUID: " + player);
+            return;
+        }
+        index.saveName(player, name);
+    }
+
+    /**
+     * @brief Looks up the player that last used a name, ignoring case.
+     *
+     * @param name The name to look up.
+     * @return The UUID of the player, or null if the name is unknown.
+     */
+    @Override
+    public UUID findUuidByName(String name) {
+        return index.findUuidByName(name);
+    }
+
+    /**
+     * @brief Looks up the last known names of several players at once.
+     *
+     * @param players The UUIDs of the players.
+     * @return The names that are known, players without one are left out.
+     */
+    @Override
+    public HashMap<UUID, String> loadNames(Collection<UUID> players) {
+        return index.loadNames(players);
+    }
+
+    /**
+     * @brief Appends a pending friend request.
+     *
+     * @param sender The UUID of the player who sent the request.
+     * @param receiver The UUID of the player who received the request.
+     * @param expiresAt When the request expires, in milliseconds since the epoch.
+     */
+    @Override
+    public synchronized void saveRequest(UUID sender, UUID receiver, long expiresAt) {
+        try {
+            int start = begin();
+            append(REQUEST, sender, receiver, expiresAt);
+            commit(start);
+        } catch (IOException e) {
+            abort();
+            logger.severe("Could not append to friend journal! UUID: " + sender);
+            return;
+        }
+        index.saveRequest(sender, receiver, expiresAt);
+    }
+
+    /**
+     * @brief Appends the deletion of a pending friend request.
+     *
+     * @param sender The UUID of the player who sent the request.
+     * @param receiver The UUID of the player who received the request.
+     */
+    @Override
+    public synchronized void deleteRequest(UUID sender, UUID receiver) {
+        try {
+            int start = begin();
+            append(UNREQUEST, sender, receiver, 0);
+            commit(start);
+        } catch (IOException e) {
+            abort();
+            logger.severe("Could not append to friend journal! UUID: " + sender);
+            return;
+        }
+        index.deleteRequest(sender, receiver);
+    }
+
+    /**
+     * @brief Loads every request a player sent or received that has not expired yet, from memory.
+     *
+     * @param player The UUID of the player.
+     * @param now The current time in milliseconds since the epoch.
+     * @return The requests of the player.
+     */
+    @Override
+    public ArrayList<StoredRequest> loadRequests(UUID player, long now) {
+        return index.loadRequests(player, now);
+    }
+
+    /**
+     * @brief Forgets up to limit expired requests. Nothing is appended, expired requests are never loaded
+     * and the next compaction drops their records.
+     *
+     * @param now The current time in milliseconds since the epoch.
+     * @param limit The maximum number of requests to forget.
+     * @return The number of forgotten requests.
+     */
+    @Override
+    public int purgeExpiredRequests(long now, int limit) {
+        return index.purgeExpiredRequests(now, limit);
+    }
+
+    /**
+     * @brief Appends a whole batch and forces it to disk once, then applies it to memory.
+     *
+     * @param batch The pending changes, at most one entry per player.
+     * @throws FriendStoreException If the journal could not be written, in which case memory is left untouched.
+     */
+    @Override
+    public synchronized void writeBatch(Collection<PendingWrites> batch) throws FriendStoreException {
+        int start = begin();
+        try {
+            for (PendingWrites writes : batch) {
+                if (writes.getSnapshot() == null) continue;
+                append(CLEAR, writes.getOwner(), NONE, 0);
+                for (UUID friend : writes.getSnapshot()) append(ADD, writes.getOwner(), friend, 0);
+            }
+            for (PendingWrites writes : batch) {
+                for (Map.Entry<UUID, Boolean> edge : writes.getEdges().entrySet()) {
+                    append(edge.getValue() ? ADD : REMOVE, writes.getOwner(), edge.getKey(), 0);
+                }
+            }
+            commit(start);
+        } catch (IOException e) {
+            abort();
+            throw new FriendStoreException("Could not append batch to friend journal", e);
+        }
+        index.writeBatch(batch);
+    }
+
+    /**
+     * @brief Gets the number of records in the journal, live and dead.
+     * @return The number of records.
+     */
+    public synchronized long getRecordCount() {
+        return records;
+    }
+
+    /**
+     * @brief Gets how many times the journal was compacted since startup.
+     * @return The number of compactions.
+     */
+    public synchronized long getCompactionCount() {
+        return compactions;
+    }
+
+    /**
+     * @brief Stops the compactor, then flushes and closes the journal.
+     */
+    @Override
+    public void close() {
+        compactor.shutdownNow();
+        synchronized (this) {
+            try {
+                release();
+            } catch (IOException e) {
+                logger.severe("Failed to close friend journal!");
+            }
+        }
+        index.close();
+    }
+
+    /**
+     * @brief Rewrites the journal with only the live edges if enough of it is dead.
+     * COMMIT records are left out of the ratio, otherwise a journal of single record transactions would always
+     * look half dead.
+     */
+    private synchronized void compactIfNeeded() {
+        long data = records - commits;
+        if (data < settings.compactMinRecords) return;
+
+        long live = index.getEdgeCount() + index.getNameCount() + index.getRequestCount();
+        double deadRatio = 1.0 - (double) live / data;
+        if (deadRatio < settings.compactDeadRatio) return;
+
+        long before = records;
+        try {
+            release();
+            rewrite();
+            compactions++;
+            logger.info("Compacted friend journal from " + before + " to " + records + " records.");
+        } catch (IOException e) {
+            logger.severe("Failed to compact friend journal: " + e.getMessage());
+            // The rewrite may have failed with the journal already open again
+            releaseQuietly();
+            try {
+                reopen();
+            } catch (IOException reopenFailure) {
+                releaseQuietly();
+                logger.severe("Failed to reopen friend journal after a failed compaction! Friend changes will not be saved.");
+            }
+        }
+    }
+
+    /**
+     * @brief Writes the live edges, names and requests of the index into a fresh file and swaps it in for the journal.
+     * The new file is fully synced before the rename and the directory after it, so a crash leaves either the old
+     * or the new journal. The old journal must already be released, a file that is still mapped can not be
+     * replaced on Windows.
+     */
+    private void rewrite() throws IOException {
+        HashMap<UUID, ArrayList<UUID>> live = index.snapshot();
+        HashMap<UUID, String> names = index.getNames();
+        ArrayList<StoredRequest> requests = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (StoredRequest request : index.getRequests()) {
+            if (request.expiresAt > now) requests.add(request);
+        }
+        File tmp = new File(file.getParentFile(), file.getName() + ".compact");
+
+        long count = names.size() + requests.size();
+        for (ArrayList<UUID> friends : live.values()) count += friends.size();
+
+        try (FileChannel out = FileChannel.open(tmp.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(RECORD_BYTES * 1024);
+            buffer.put(header());
+            for (Map.Entry<UUID, ArrayList<UUID>> entry : live.entrySet()) {
+                for (UUID friend : entry.getValue()) {
+                    if (buffer.remaining() < RECORD_BYTES) drain(out, buffer);
+                    encode(ADD, entry.getKey(), friend, 0, 0);
+                    buffer.put(scratch);
+                }
+            }
+            for (Map.Entry<UUID, String> entry : names.entrySet()) {
+                if (buffer.remaining() < RECORD_BYTES) drain(out, buffer);
+                encode(NAME, entry.getKey(), packName(entry.getValue()), 0, 0);
+                buffer.put(scratch);
+            }
+            for (StoredRequest request : requests) {
+                if (buffer.remaining() < RECORD_BYTES) drain(out, buffer);
+                encode(REQUEST, request.sender, request.receiver, request.expiresAt, 0);
+                buffer.put(scratch);
+            }
+            // The whole rewritten journal is the first transaction, sequence 0
+            if (buffer.remaining() < RECORD_BYTES) drain(out, buffer);
+            encode(COMMIT, NONE, NONE, count, 0);
+            buffer.put(scratch);
+            drain(out, buffer);
+            out.force(true);
+        }
+
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory();
+        reopen();
+        if (records != count + 1) throw new IOException("Compacted journal has " + records + " records, expected " + (count + 1));
+    }
+
+    /**
+     * @brief Opens and maps the journal file again and finds its end. The index is left as it is.
+     */
+    private void reopen() throws IOException {
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        map(Math.max(channel.size(), HEADER_BYTES + settings.chunkSizeBytes));
+        scan(false);
+    }
+
+    private void replay() throws IOException {
+        scan(true);
+    }
+
+    /**
+     * @brief Finds the end of the last committed transaction, wipes everything behind it and optionally applies
+     * the committed records. The first pass only validates, so nothing of a transaction is applied before its
+     * COMMIT record was seen.
+     *
+     * @param apply true to apply the committed records to the index.
+     */
+    private void scan(boolean apply) throws IOException {
+        int pos = HEADER_BYTES;
+        int committedEnd = HEADER_BYTES;
+        long committedRecords = 0;
+        long committedCommits = 0;
+        long txSequence = 0;
+        long txRecords = 0;
+        long seen = 0;
+
+        while (pos + RECORD_BYTES <= map.capacity()) {
+            map.get(pos, scratch);
+            byte type = scratch[0];
+            if (type == 0) break;
+            if (checksum() != readInt(scratch, 4)) {
+                logger.warning("Found a torn record at byte " + pos + " of " + file.getName() + ", recovering from before it.");
+                break;
+            }
+            if (readSequence() != (txSequence & SEQUENCE_MASK)) {
+                logger.warning("Found a record of another transaction at byte " + pos + " of " + file.getName() + ", recovering from before it.");
+                break;
+            }
+
+            seen++;
+            pos += RECORD_BYTES;
+            if (type != COMMIT) {
+                txRecords++;
+                continue;
+            }
+            if (readLong(scratch, 8) != txSequence || readLong(scratch, 40) != txRecords) {
+                logger.warning("Found a COMMIT that does not match its transaction in " + file.getName() + ", recovering from before it.");
+                break;
+            }
+            committedEnd = pos;
+            committedRecords = seen;
+            committedCommits++;
+            txSequence++;
+            txRecords = 0;
+        }
+
+        long dropped = (pos - HEADER_BYTES) / RECORD_BYTES - committedRecords;
+        if (dropped > 0) logger.warning("Dropped " + dropped + " uncommitted records from the end of " + file.getName() + ".");
+
+        if (apply) {
+            for (int at = HEADER_BYTES; at < committedEnd; at += RECORD_BYTES) {
+                map.get(at, scratch);
+                apply(scratch[0]);
+            }
+        }
+
+        records = committedRecords;
+        commits = committedCommits;
+        sequence = txSequence;
+        writePos = committedEnd;
+        wipe(committedEnd, map.capacity());
+        map.force();
+    }
+
+    /**
+     * @brief Applies the record in scratch to the index.
+     *
+     * @param type The type of the record.
+     */
+    private void apply(byte type) {
+        UUID owner = UuidCodec.readUuid(scratch, 8);
+        UUID friend = UuidCodec.readUuid(scratch, 24);
+        if (type == ADD) index.addFriend(owner, friend);
+        else if (type == REMOVE) index.removeFriend(owner, friend);
+        else if (type == CLEAR) index.saveFriends(owner, new ArrayList<>());
+        else if (type == NAME) index.saveName(owner, unpackName(friend));
+        else if (type == REQUEST) index.saveRequest(owner, friend, readLong(scratch, 40));
+        else if (type == UNREQUEST) index.deleteRequest(owner, friend);
+    }
+
+    private int readSequence() {
+        return ((scratch[1] & 0xFF) << 16) | ((scratch[2] & 0xFF) << 8) | (scratch[3] & 0xFF);
+    }
+
+    private void append(byte type, UUID owner, UUID friend, long payload) throws IOException {
+        if (map == null) throw new IOException("Friend journal is not open");
+        if (writePos + RECORD_BYTES > map.capacity()) grow();
+        encode(type, owner, friend, payload, sequence);
+        map.put(writePos, scratch);
+        writePos += RECORD_BYTES;
+        records++;
+        if (type == COMMIT) commits++;
+        else pendingRecords++;
+    }
+
+    private void encode(byte type, UUID owner, UUID friend, long payload, long txSequence) {
+        scratch[0] = type;
+        scratch[1] = (byte) (txSequence >>> 16);
+        scratch[2] = (byte) (txSequence >>> 8);
+        scratch[3] = (byte) txSequence;
+        UuidCodec.writeUuid(scratch, 8, owner);
+        UuidCodec.writeUuid(scratch, 24, friend);
+        for (int i = 7; i >= 0; i--) {
+            scratch[40 + i] = (byte) payload;
+            payload >>>= 8;
+        }
+        writeInt(scratch, 4, checksum());
+    }
+
+    private static UUID packName(String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > UuidCodec.UUID_BYTES) return null;
+
+        byte[] padded = new byte[UuidCodec.UUID_BYTES];
+        System.arraycopy(bytes, 0, padded, 0, bytes.length);
+        return UuidCodec.fromBytes(padded);
+    }
+
+    private static String unpackName(UUID packed) {
+        byte[] bytes = UuidCodec.toBytes(packed);
+        int length = 0;
+        while (length < bytes.length && bytes[length] != 0) length++;
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @brief Starts a transaction at the current end of the journal.
+     * @return Where the transaction starts.
+     */
+    private int begin() {
+        txStart = writePos;
+        txStartRecords = records;
+        txStartCommits = commits;
+        pendingRecords = 0;
+        return txStart;
+    }
+
+    /**
+     * @brief Appends the COMMIT record of the open transaction and forces the transaction to disk.
+     *
+     * @param start Where the transaction starts.
+     */
+    private void commit(int start) throws IOException {
+        if (pendingRecords == 0) return;
+        append(COMMIT, new UUID(sequence, 0), NONE, pendingRecords);
+        sequence++;
+        force(start);
+    }
+
+    /**
+     * @brief Wipes what the open transaction appended, so a later commit can never be mistaken to cover it.
+     */
+    private void abort() {
+        if (writePos > txStart) wipe(txStart, writePos);
+        writePos = txStart;
+        records = txStartRecords;
+        commits = txStartCommits;
+        pendingRecords = 0;
+    }
+
+    private int checksum() {
+        crc.reset();
+        crc.update(scratch, 0, 4);
+        crc.update(scratch, 8, RECORD_BYTES - 8);
+        return (int) crc.getValue();
+    }
+
+    private void force(int start) {
+        if (writePos > start) map.force(start, writePos - start);
+    }
+
+    /**
+     * @brief Maps a larger part of the file. The mapping at least doubles, so a journal of n bytes is remapped
+     * O(log n) times, and the old mapping is released right away instead of waiting for the GC.
+     */
+    private void grow() throws IOException {
+        if (map.capacity() == Integer.MAX_VALUE) throw new IOException("Friend journal is full, it can not be mapped past 2 GiB");
+        long size = Math.max((long) map.capacity() * 2, (long) map.capacity() + settings.chunkSizeBytes);
+        map(Math.min(size, Integer.MAX_VALUE));
+    }
+
+    private void map(long size) throws IOException {
+        if (size > Integer.MAX_VALUE) throw new IOException("Friend journal is too large to be mapped");
+        MappedByteBuffer old = map;
+        map = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        // Both mappings share the page cache, nothing written through the old one is lost
+        if (old != null) unmap(old);
+    }
+
+    /**
+     * @brief Forces and unmaps the journal and closes its channel.
+     */
+    private void release() throws IOException {
+        if (map != null) {
+            try {
+                map.force();
+            } finally {
+                unmap(map);
+                map = null;
+            }
+        }
+        channel.close();
+    }
+
+    /**
+     * @brief Releases the journal, ignoring errors. Afterwards no journal is open and writes fail.
+     */
+    private void releaseQuietly() {
+        try {
+            release();
+        } catch (IOException | RuntimeException e) {
+            // Nothing left to do for it
+        }
+    }
+
+    /**
+     * @brief Unmaps a mapping now. The JDK only offers this through sun.misc.Unsafe, if that is not available
+     * the mapping stays until it is garbage collected.
+     *
+     * @param buffer The mapping, which must not be used afterwards.
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafeClass.getMethod("invokeCleaner", ByteBuffer.class).invoke(field.get(null), buffer);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Left to the garbage collector
+        }
+    }
+
+    /**
+     * @brief Fsyncs the directory of the journal so a rename in it is durable. Not every platform can open a
+     * directory, Windows can not, there the rename is as durable as the file system makes it.
+     */
+    private void syncDirectory() {
+        File directory = file.getAbsoluteFile().getParentFile();
+        if (directory == null) return;
+        try (FileChannel dir = FileChannel.open(directory.toPath(), StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException e) {
+            // Not supported here
+        }
+    }
+
+    /**
+     * @brief Zeroes a range of the mapping. Blocks that are already zero are only read, so wiping the mostly empty
+     * tail of a large journal does not dirty every page of it.
+     */
+    private void wipe(int from, int to) {
+        byte[] zeros = new byte[RECORD_BYTES * 64];
+        byte[] block = new byte[zeros.length];
+        for (int pos = from; pos < to; pos += zeros.length) {
+            int length = Math.min(zeros.length, to - pos);
+            map.get(pos, block, 0, length);
+            if (!Arrays.equals(block, 0, length, zeros, 0, length)) map.put(pos, zeros, 0, length);
+        }
+    }
+
+    private boolean hasHeader() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8);
+        channel.read(buffer, 0);
+        buffer.flip();
+        return buffer.remaining() == 8 && buffer.getInt() == MAGIC;
+    }
+
+    private void writeHeader() {
+        map.put(0, header());
+        map.force(0, HEADER_BYTES);
+    }
+
+    private static byte[] header() {
+        byte[] header = new byte[HEADER_BYTES];
+        writeInt(header, 0, MAGIC);
+        writeInt(header, 4, FORMAT_VERSION);
+        return header;
+    }
+
+    private static void drain(FileChannel out, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) out.write(buffer);
+        buffer.clear();
+    }
+
+    private static void writeInt(byte[] out, int offset, int value) {
+        out[offset] = (byte) (value >>> 24);
+        out[offset + 1] = (byte) (value >>> 16);
+        out[offset + 2] = (byte) (value >>> 8);
+        out[offset + 3] = (byte) value;
+    }
+
+    private static int readInt(byte[] in, int offset) {
+        return ((in[offset] & 0xFF) << 24) | ((in[offset + 1] & 0xFF) << 16) | ((in[offset + 2] & 0xFF) << 8) | (in[offset + 3] & 0xFF);
+    }
+
+    private static long readLong(byte[] in, int offset) {
+        return ((long) readInt(in, offset) << 32) | (readInt(in, offset + 4) & 0xFFFFFFFFL);
+    }
+}
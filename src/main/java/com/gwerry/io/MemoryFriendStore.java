@@ -0,0 +1,350 @@
+/**
+ * @file MemoryFriendStore.java
+ * @author gwerry
+ * @brief The MemoryFriendStore class is a FriendStore that only keeps friendships in memory.
+ * @version 1.0
+ * @date 2026/10/18
+ *
+ * Copyright 2024 gwerry
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gwerry.io;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * @brief The MemoryFriendStore class is a FriendStore that only keeps friendships in memory.
+ * Nothing survives a restart, so it is meant for tests and benchmarks. It also serves as the index
+ * of the file based backends, which replay their file into it on startup.
+ * Every method locks the whole store, which keeps batches atomic for readers.
+ *
+ * @author gwerry
+ * @since 1.1
+ */
+public class MemoryFriendStore implements FriendStore {
+    private final HashMap<UUID, LinkedHashSet<UUID>> friends = new HashMap<>();
+    private final HashMap<UUID, LinkedHashSet<UUID>> friendedBy = new HashMap<>();
+    private final HashMap<UUID, String> names = new HashMap<>();
+    private final HashMap<String, UUID> byName = new HashMap<>();
+    private final HashMap<UUID, HashMap<UUID, StoredRequest>> requestsBySender = new HashMap<>();
+    private final HashMap<UUID, HashMap<UUID, StoredRequest>> requestsByReceiver = new HashMap<>();
+
+    /**
+     * @brief Loads a player's friends.
+     *
+     * @param player The UUID of the player.
+     * @return A copy of the player's friends, empty if the player is unknown.
+     */
+    @Override
+    public synchronized ArrayList<UUID> loadFriends(UUID player) {
+        LinkedHashSet<UUID> set = friends.get(player);
+        return set != null ? new ArrayList<>(set) : new ArrayList<>();
+    }
+
+    /**
+     * @brief Adds a single friend edge.
+     *
+     * @param owner The UUID of the player whose friend list is to be updated.
+     * @param friend The UUID of the friend to add.
+     */
+    @Override
+    public synchronized void addFriend(UUID owner, UUID friend) {
+        friends.computeIfAbsent(owner, key -> new LinkedHashSet<>()).add(friend);
+        friendedBy.computeIfAbsent(friend, key -> new LinkedHashSet<>()).add(owner);
+    }
+
+    /**
+     * @brief Removes a single friend edge.
+     *
+     * @param owner The UUID of the player whose friend list is to be updated.
+     * @param friend The UUID of the friend to remove.
+     */
+    @Override
+    public synchronized void removeFriend(UUID owner, UUID friend) {
+        remove(friends, owner, friend);
+        remove(friendedBy, friend, owner);
+    }
+
+    /**
+     * @brief Adds both edges of a friendship while holding the store lock.
+     *
+     * @param first The UUID of one of the players.
+     * @param second The UUID of the other player.
+     */
+    @Override
+    public synchronized void addFriendship(UUID first, UUID second) {
+        addFriend(first, second);
+        addFriend(second, first);
+    }
+
+    /**
+     * @brief Removes both edges of a friendship while holding the store lock.
+     *
+     * @param first The UUID of one of the players.
+     * @param second The UUID of the other player.
+     */
+    @Override
+    public synchronized void removeFriendship(UUID first, UUID second) {
+        removeFriend(first, second);
+        removeFriend(second, first);
+    }
+
+    /**
+     * @brief Replaces all of a player's friend edges.
+     *
+     * @param owner The UUID of the player to save.
+     * @param newFriends The friends of the player.
+     */
+    @Override
+    public synchronized void saveFriends(UUID owner, Collection<UUID> newFriends) {
+        LinkedHashSet<UUID> old = friends.remove(owner);
+        if (old != null) {
+            for (UUID friend : old) remove(friendedBy, friend, owner);
+        }
+        for (UUID friend : newFriends) addFriend(owner, friend);
+    }
+
+    /**
+     * @brief Looks up every player that has the given player as a friend.
+     *
+     * @param friend The UUID of the player to look up.
+     * @return A copy of the owners of edges pointing at the player.
+     */
+    @Override
+    public synchronized ArrayList<UUID> getFriendedBy(UUID friend) {
+        LinkedHashSet<UUID> set = friendedBy.get(friend);
+        return set != null ? new ArrayList<>(set) : new ArrayList<>();
+    }
+
+    /**
+     * @brief Remembers the last known name of a player, taking it away from whoever had it before.
+     *
+     * @param player The UUID of the player.
+     * @param name The current name of the player.
+     */
+    @Override
+    public synchronized void saveName(UUID player, String name) {
+        String key = name.toLowerCase(Locale.ROOT);
+        String old = names.put(player, name);
+        if (old != null) byName.remove(old.toLowerCase(Locale.ROOT), player);
+
+        UUID previous = byName.put(key, player);
+        if (previous != null && !previous.equals(player)) names.remove(previous);
+    }
+
+    /**
+     * @brief Looks up the player that last used a name, ignoring case.
+     *
+     * @param name The name to look up.
+     * @return The UUID of the player, or null if the name is unknown.
+     */
+    @Override
+    public synchronized UUID findUuidByName(String name) {
+        return byName.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * @brief Looks up the last known names of several players at once.
+     *
+     * @param players The UUIDs of the players.
+     * @return The names that are known, players without one are left out.
+     */
+    @Override
+    public synchronized HashMap<UUID, String> loadNames(Collection<UUID> players) {
+        HashMap<UUID, String> found = new HashMap<>();
+        for (UUID player : players) {
+            String name = names.get(player);
+            if (name != null) found.put(player, name);
+        }
+        return found;
+    }
+
+    /**
+     * @brief Gets the last known name of a player.
+     *
+     * @param player The UUID of the player.
+     * @return The name, or null if the player has none.
+     */
+    public synchronized String getName(UUID player) {
+        return names.get(player);
+    }
+
+    /**
+     * @brief Gets the number of remembered names.
+     * @return The number of names.
+     */
+    public synchronized int getNameCount() {
+        return names.size();
+    }
+
+    /**
+     * @brief Gets a copy of every remembered name.
+     * @return The last known name of every player that has one.
+     */
+    public synchronized HashMap<UUID, String> getNames() {
+        return new HashMap<>(names);
+    }
+
+    /**
+     * @brief Stores a pending friend request, replacing an older one between the same players.
+     *
+     * @param sender The UUID of the player who sent the request.
+     * @param receiver The UUID of the player who received the request.
+     * @param expiresAt When the request expires, in milliseconds since the epoch.
+     */
+    @Override
+    public synchronized void saveRequest(UUID sender, UUID receiver, long expiresAt) {
+        StoredRequest request = new StoredRequest(sender, receiver, expiresAt);
+        requestsBySender.computeIfAbsent(sender, key -> new HashMap<>()).put(receiver, request);
+        requestsByReceiver.computeIfAbsent(receiver, key -> new HashMap<>()).put(sender, request);
+    }
+
+    /**
+     * @brief Deletes a pending friend request.
+     *
+     * @param sender The UUID of the player who sent the request.
+     * @param receiver The UUID of the player who received the request.
+     */
+    @Override
+    public synchronized void deleteRequest(UUID sender, UUID receiver) {
+        removeRequest(requestsBySender, sender, receiver);
+        removeRequest(requestsByReceiver, receiver, sender);
+    }
+
+    /**
+     * @brief Loads every request a player sent or received that has not expired yet.
+     *
+     * @param player The UUID of the player.
+     * @param now The current time in milliseconds since the epoch.
+     * @return Copies of the requests of the player.
+     */
+    @Override
+    public synchronized ArrayList<StoredRequest> loadRequests(UUID player, long now) {
+        ArrayList<StoredRequest> found = new ArrayList<>();
+        addLive(found, requestsByReceiver.get(player), now);
+        addLive(found, requestsBySender.get(player), now);
+        return found;
+    }
+
+    /**
+     * @brief Deletes up to limit requests that expired.
+     *
+     * @param now The current time in milliseconds since the epoch.
+     * @param limit The maximum number of requests to delete.
+     * @return The number of deleted requests.
+     */
+    @Override
+    public synchronized int purgeExpiredRequests(long now, int limit) {
+        ArrayList<StoredRequest> expired = new ArrayList<>();
+        for (HashMap<UUID, StoredRequest> sent : requestsBySender.values()) {
+            for (StoredRequest request : sent.values()) {
+                if (expired.size() >= limit) break;
+                if (request.expiresAt <= now) expired.add(request);
+            }
+        }
+        for (StoredRequest request : expired) deleteRequest(request.sender, request.receiver);
+        return expired.size();
+    }
+
+    /**
+     * @brief Gets a copy of every stored request, expired or not.
+     * @return The stored requests.
+     */
+    public synchronized ArrayList<StoredRequest> getRequests() {
+        ArrayList<StoredRequest> copy = new ArrayList<>();
+        for (HashMap<UUID, StoredRequest> sent : requestsBySender.values()) copy.addAll(sent.values());
+        return copy;
+    }
+
+    /**
+     * @brief Gets the number of stored requests, expired or not.
+     * @return The number of requests.
+     */
+    public synchronized int getRequestCount() {
+        int count = 0;
+        for (HashMap<UUID, StoredRequest> sent : requestsBySender.values()) count += sent.size();
+        return count;
+    }
+
+    /**
+     * @brief Writes a batch of queued changes while holding the store lock, so readers see all of it or none.
+     *
+     * @param batch The pending changes, at most one entry per player.
+     * @throws FriendStoreException Never for this backend.
+     */
+    @Override
+    public synchronized void writeBatch(Collection<PendingWrites> batch) throws FriendStoreException {
+        FriendStore.super.writeBatch(batch);
+    }
+
+    /**
+     * @brief Gets the number of stored friend edges.
+     * @return The number of edges.
+     */
+    public synchronized int getEdgeCount() {
+        int count = 0;
+        for (LinkedHashSet<UUID> set : friends.values()) count += set.size();
+        return count;
+    }
+
+    /**
+     * @brief Gets a copy of every player's friends.
+     * @return A map of player UUID to the player's friends.
+     */
+    public synchronized HashMap<UUID, ArrayList<UUID>> snapshot() {
+        HashMap<UUID, ArrayList<UUID>> copy = new HashMap<>();
+        for (Map.Entry<UUID, LinkedHashSet<UUID>> entry : friends.entrySet()) copy.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+        return copy;
+    }
+
+    /**
+     * @brief Drops everything. Nothing to flush for this backend.
+     */
+    @Override
+    public synchronized void close() {
+        friends.clear();
+        friendedBy.clear();
+        names.clear();
+        byName.clear();
+        requestsBySender.clear();
+        requestsByReceiver.clear();
+    }
+
+    private static void remove(HashMap<UUID, LinkedHashSet<UUID>> map, UUID key, UUID value) {
+        LinkedHashSet<UUID> set = map.get(key);
+        if (set == null) return;
+        set.remove(value);
+        if (set.isEmpty()) map.remove(key);
+    }
+
+    private static void addLive(ArrayList<StoredRequest> out, HashMap<UUID, StoredRequest> requests, long now) {
+        if (requests == null) return;
+        for (StoredRequest request : requests.values()) {
+            if (request.expiresAt > now) out.add(request);
+        }
+    }
+
+    private static void removeRequest(HashMap<UUID, HashMap<UUID, StoredRequest>> map, UUID key, UUID other) {
+        HashMap<UUID, StoredRequest> requests = map.get(key);
+        if (requests == null) return;
+        requests.remove(other);
+        if (requests.isEmpty()) map.remove(key);
+    }
+}
@@ -0,0 +1,128 @@
+/**
+ * @file PendingWrites.java
+ * @author gwerry
+ * @brief The PendingWrites class holds the queued friend changes of a single player.
+ * @version 1.0
+ * @date 2026/10/18
+ *
+ * Copyright 2024 gwerry
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gwerry.io;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * @brief The PendingWrites class holds the queued friend changes of a single player.
+ * If a snapshot is set, the player's stored friends are replaced by it before the edge changes are applied.
+ * Instances are only changed by the WriteBehindQueue while they are queued, stores only read them.
+ *
+ * @author gwerry
+ * @since 1.1
+ */
+public class PendingWrites {
+    private final UUID owner;
+    private final long queuedAt;
+    private ArrayList<UUID> snapshot;
+    private final LinkedHashMap<UUID, Boolean> edges = new LinkedHashMap<>(); // friend -> true if added, false if removed
+
+    /**
+     * @brief Constructs a new, empty PendingWrites.
+     *
+     * @param owner The UUID of the player the changes belong to.
+     * @param queuedAt The System.nanoTime() of the first change.
+     */
+    PendingWrites(UUID owner, long queuedAt) {
+        this.owner = owner;
+        this.queuedAt = queuedAt;
+    }
+
+    /**
+     * @brief Gets the player the changes belong to.
+     * @return The UUID of the player.
+     */
+    public UUID getOwner() {
+        return owner;
+    }
+
+    /**
+     * @brief Gets when the first of these changes was queued.
+     * @return The System.nanoTime() of the first change.
+     */
+    public long getQueuedAt() {
+        return queuedAt;
+    }
+
+    /**
+     * @brief Gets the full friend list that replaces the stored one.
+     * @return The friend list, or null if only edges changed.
+     */
+    public ArrayList<UUID> getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * @brief Gets the single friend changes, applied after the snapshot.
+     * @return A map of friend UUID to true if the friend was added, false if it was removed.
+     */
+    public Map<UUID, Boolean> getEdges() {
+        return edges;
+    }
+
+    /**
+     * @brief Gets the number of operations these changes stand for.
+     * @return The number of edge changes, plus one if there is a snapshot.
+     */
+    public int getOperationCount() {
+        return edges.size() + (snapshot != null ? 1 : 0);
+    }
+
+    void setSnapshot(ArrayList<UUID> snapshot) {
+        this.snapshot = snapshot;
+        edges.clear();
+    }
+
+    boolean putEdge(UUID friend, boolean add) {
+        return edges.put(friend, add) != null;
+    }
+
+    /**
+     * @brief Adds these changes on top of another set of changes of the same player.
+     *
+     * @param target The changes to update.
+     */
+    void copyTo(PendingWrites target) {
+        if (snapshot != null) target.setSnapshot(new ArrayList<>(snapshot));
+        for (Map.Entry<UUID, Boolean> edge : edges.entrySet()) target.putEdge(edge.getKey(), edge.getValue());
+    }
+
+    /**
+     * @brief Applies these changes on top of a friend list.
+     *
+     * @param friends The friend list to update.
+     */
+    void applyTo(ArrayList<UUID> friends) {
+        if (snapshot != null) {
+            friends.clear();
+            friends.addAll(snapshot);
+        }
+        for (Map.Entry<UUID, Boolean> edge : edges.entrySet()) {
+            friends.remove(edge.getKey());
+            if (edge.getValue()) friends.add(edge.getKey());
+        }
+    }
+}
@@ -0,0 +1,245 @@
+/**
+ * @file SqliteEngine.java
+ * @author gwerry
+ * @brief The SqliteEngine class hands out SQLite connections the way SQLite wants to be used.
+ * @version 1.0
+ * @date 2026/10/18
+ *
+ * Copyright 2024 gwerry
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gwerry.io;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
+
+import org.sqlite.SQLiteConfig;
+
+/**
+ * @brief The SqliteEngine class hands out SQLite connections the way SQLite wants to be used.
+ * SQLite only allows one writer at a time, so there is exactly one write connection guarded by a lock,
+ * plus a small fixed pool of read-only connections. In WAL mode readers never block the writer and the
+ * writer never blocks readers, so the only contention left is between writers, which the lock serializes
+ * instead of letting them fight over the file lock and fail with SQLITE_BUSY.
+ *
+ * @author gwerry
+ * @since 1.1
+ */
+public class SqliteEngine {
+
+    /**
+     * @brief A unit of work that runs on a borrowed connection.
+     *
+     * @param <T> The type of the result.
+     */
+    @FunctionalInterface
+    public interface SqlWork<T> {
+        T run(StatementCache statements) throws SQLException;
+    }
+
+    /**
+     * @brief The tuning knobs of the engine, usually filled from the config.yml.
+     */
+    public static class Settings {
+        public int readConnections = 4;
+        public String journalMode = "WAL";
+        public String synchronous = "NORMAL";
+        public long mmapSizeBytes = 64L * 1024 * 1024;
+        public int cacheSizeKb = 8192;
+        public int busyTimeoutMs = 5000;
+        public boolean debug = false;
+    }
+
+    private final String url;
+    private final Logger logger;
+    private final Settings settings;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ArrayBlockingQueue<StatementCache> readers;
+    private final ArrayList<Connection> allReaders = new ArrayList<>();
+    private final ArrayList<StatementCache> caches = new ArrayList<>();
+    private Connection writer;
+    private StatementCache writerStatements;
+    private volatile boolean closed;
+
+    /**
+     * @brief Opens the write connection and applies the configured pragmas.
+     * The read connections are opened by openReaders() once the schema exists.
+     *
+     * @param dbFile The database file.
+     * @param logger The logger to report to.
+     * @param settings The tuning knobs of the engine.
+     * @throws SQLException If the database could not be opened.
+     */
+    public SqliteEngine(File dbFile, Logger logger, Settings settings) throws SQLException {
+        this.url = "jdbc:sqlite:" + dbFile.getAbsolutePath();
+        this.logger = logger;
+        this.settings = settings;
+        this.readers = new ArrayBlockingQueue<>(Math.max(1, settings.readConnections));
+
+        SQLiteConfig config = baseConfig();
+        config.setJournalMode(SQLiteConfig.JournalMode.valueOf(settings.journalMode.toUpperCase(Locale.ROOT)));
+        config.setSynchronous(SQLiteConfig.SynchronousMode.valueOf(settings.synchronous.toUpperCase(Locale.ROOT)));
+        writer = config.createConnection(url);
+        applyConnectionPragmas(writer);
+        writerStatements = new StatementCache(writer, logger, settings.debug);
+        caches.add(writerStatements);
+
+        logger.info("Database journal mode: " + settings.journalMode + ", synchronous: " + settings.synchronous);
+        logger.info("Database read connections: " + readers.remainingCapacity());
+        if (settings.debug) logger.info("Database debug mode is on, leaked statements will be reported.");
+        logger.info("Database mmap size: " + settings.mmapSizeBytes + " bytes, cache size: " + settings.cacheSizeKb + " KiB");
+    }
+
+    /**
+     * @brief Opens the pool of read-only connections.
+     *
+     * @throws SQLException If a connection could not be opened.
+     */
+    public void openReaders() throws SQLException {
+        SQLiteConfig config = baseConfig();
+        config.setReadOnly(true);
+
+        while (readers.remainingCapacity() > 0) {
+            Connection conn = config.createConnection(url);
+            applyConnectionPragmas(conn);
+            StatementCache statements = new StatementCache(conn, logger, settings.debug);
+            allReaders.add(conn);
+            caches.add(statements);
+            readers.add(statements);
+        }
+    }
+
+    /**
+     * @brief Runs work on one of the read-only connections.
+     * If every reader is busy this waits up to the busy timeout for one to be returned.
+     *
+     * @param work The work to run.
+     * @return The result of the work.
+     * @throws SQLException If the work failed or no connection became free in time.
+     */
+    public <T> T read(SqlWork<T> work) throws SQLException {
+        if (closed) throw new SQLException("Database is closed");
+        if (allReaders.isEmpty()) return write(work);
+
+        StatementCache statements;
+        try {
+            statements = readers.poll(settings.busyTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a read connection", e);
+        }
+        if (statements == null) throw new SQLException("Timed out waiting for a read connection");
+
+        try {
+            return work.run(statements);
+        } finally {
+            statements.checkLeaks();
+            readers.add(statements);
+        }
+    }
+
+    /**
+     * @brief Runs work on the write connection in auto-commit mode.
+     *
+     * @param work The work to run.
+     * @return The result of the work.
+     * @throws SQLException If the work failed.
+     */
+    public <T> T write(SqlWork<T> work) throws SQLException {
+        writeLock.lock();
+        try {
+            if (closed) throw new SQLException("Database is closed");
+            try {
+                return work.run(writerStatements);
+            } finally {
+                writerStatements.checkLeaks();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * @brief Runs work on the write connection inside one transaction.
+     * The transaction is committed if the work returns and rolled back if it throws.
+     *
+     * @param work The work to run.
+     * @return The result of the work.
+     * @throws SQLException If the work or the commit failed.
+     */
+    public <T> T transaction(SqlWork<T> work) throws SQLException {
+        return write(statements -> {
+            Connection conn = statements.getConnection();
+            conn.setAutoCommit(false);
+            try {
+                T result = work.run(statements);
+                conn.commit();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        });
+    }
+
+    /**
+     * @brief Closes every connection, waiting for the writer to finish its current work.
+     */
+    public void close() {
+        writeLock.lock();
+        try {
+            if (closed) return;
+            closed = true;
+
+            for (StatementCache statements : caches) statements.close();
+            for (Connection conn : allReaders) closeQuietly(conn);
+            closeQuietly(writer);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private SQLiteConfig baseConfig() {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setBusyTimeout(settings.busyTimeoutMs);
+        // Negative values are KiB instead of pages
+        config.setCacheSize(-settings.cacheSizeKb);
+        return config;
+    }
+
+    private void applyConnectionPragmas(Connection conn) throws SQLException {
+        // no need for prepared statements here no user input
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("PRAGMA mmap_size = " + Math.max(0, settings.mmapSizeBytes) + ";");
+        }
+    }
+
+    private void closeQuietly(Connection conn) {
+        try {
+            if (conn != null) conn.close();
+        } catch (SQLException e) {
+            logger.severe("Failed to close database connection!");
+        }
+    }
+}
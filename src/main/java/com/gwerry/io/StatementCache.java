@@ -0,0 +1,203 @@
+/**
+ * @file StatementCache.java
+ * @author gwerry
+ * @brief The StatementCache class keeps the prepared statements of one connection alive between calls.
+ * @version 1.0
+ * @date 2026/10/18
+ *
+ * Copyright 2024 gwerry
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gwerry.io;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * @brief The StatementCache class keeps the prepared statements of one connection alive between calls.
+ * Statements are keyed by their SQL text, so the hot queries are parsed once per connection instead of once per call.
+ * Cached statements are owned by the cache and must not be closed by the caller, their result sets still must be.
+ * The cache is only ever used by the thread that currently holds its connection, so it needs no locking.
+ *
+ * In debug mode every statement the caller creates on the connection directly is tracked together with the
+ * stack trace that created it. Anything left open, including result sets of cached statements, is reported
+ * and closed once the work on the connection is done.
+ *
+ * @author gwerry
+ * @since 1.1
+ */
+public class StatementCache {
+    private static final int MAX_STATEMENTS = 32;
+
+    private final Connection connection;
+    private final Connection exposed;
+    private final Logger logger;
+    private final boolean debug;
+    private final LinkedHashMap<String, PreparedStatement> statements;
+    private final ArrayList<TrackedStatement> tracked = new ArrayList<>();
+
+    /**
+     * @brief A statement that was created outside the cache in debug mode.
+     */
+    private static class TrackedStatement {
+        final Statement statement;
+        final Throwable createdAt;
+
+        TrackedStatement(Statement statement, Throwable createdAt) {
+            this.statement = statement;
+            this.createdAt = createdAt;
+        }
+    }
+
+    /**
+     * @brief Constructs a new StatementCache for a connection.
+     *
+     * @param connection The connection the statements are prepared on.
+     * @param logger The logger leaks are reported to.
+     * @param debug true to track statements created outside the cache and report leaks.
+     */
+    public StatementCache(Connection connection, Logger logger, boolean debug) {
+        this.connection = connection;
+        this.logger = logger;
+        this.debug = debug;
+        this.exposed = debug ? trackingProxy(connection) : connection;
+        this.statements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() <= MAX_STATEMENTS) return false;
+                closeQuietly(eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    /**
+     * @brief Gets the cached statement for the given SQL, preparing it on first use.
+     * The statement comes back with its parameters and batch cleared.
+     *
+     * @param sql The SQL text of the statement.
+     * @return The prepared statement. Do not close it.
+     * @throws SQLException If the statement could not be prepared.
+     */
+    public PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement stmt = statements.get(sql);
+        if (stmt == null || stmt.isClosed()) {
+            stmt = connection.prepareStatement(sql);
+            statements.put(sql, stmt);
+        } else {
+            stmt.clearParameters();
+            stmt.clearBatch();
+        }
+        return stmt;
+    }
+
+    /**
+     * @brief Gets the connection, for transaction control and one-off statements.
+     * Statements created on it must be closed by the caller.
+     *
+     * @return The connection of this cache.
+     */
+    public Connection getConnection() {
+        return exposed;
+    }
+
+    /**
+     * @brief Reports and closes everything that was left open by the last piece of work.
+     * This does nothing outside of debug mode.
+     */
+    void checkLeaks() {
+        if (!debug) return;
+
+        for (Map.Entry<String, PreparedStatement> entry : statements.entrySet()) {
+            try {
+                ResultSet rs = entry.getValue().getResultSet();
+                if (rs != null && !rs.isClosed()) {
+                    logger.warning("Leaked result set of cached statement: " + entry.getKey());
+                    rs.close();
+                }
+            } catch (SQLException ignored) {
+                // A statement that can not tell us about its result set has none open
+            }
+        }
+
+        Iterator<TrackedStatement> it = tracked.iterator();
+        while (it.hasNext()) {
+            TrackedStatement entry = it.next();
+            try {
+                if (!entry.statement.isClosed()) {
+                    logger.warning("Leaked statement, created at:\n" + stackTrace(entry.createdAt));
+                    entry.statement.close();
+                }
+            } catch (SQLException ignored) {
+                // Nothing else can be done about a statement that fails to close
+            }
+            it.remove();
+        }
+    }
+
+    /**
+     * @brief Closes every cached statement. The connection itself is left open.
+     */
+    void close() {
+        for (PreparedStatement stmt : statements.values()) closeQuietly(stmt);
+        statements.clear();
+    }
+
+    private Connection trackingProxy(Connection target) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (result instanceof Statement && isStatementFactory(method)) {
+                tracked.add(new TrackedStatement((Statement) result, new Throwable()));
+            }
+            return result;
+        };
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class }, handler);
+    }
+
+    private static boolean isStatementFactory(Method method) {
+        String name = method.getName();
+        return name.equals("createStatement") || name.equals("prepareStatement") || name.equals("prepareCall");
+    }
+
+    private static String stackTrace(Throwable throwable) {
+        StringBuilder sb = new StringBuilder();
+        for (StackTraceElement element : throwable.getStackTrace()) sb.append("    at ").append(element).append('\n');
+        return sb.toString();
+    }
+
+    private static void closeQuietly(Statement stmt) {
+        try {
+            stmt.close();
+        } catch (SQLException ignored) {
+            // The statement is dropped either way
+        }
+    }
+}
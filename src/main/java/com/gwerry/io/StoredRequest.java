@@ -0,0 +1,49 @@
+/**
+ * @file StoredRequest.java
+ * @author gwerry
+ * @brief The StoredRequest class is a pending friend request as it is persisted.
+ * @version 1.0
+ * @date 2026/10/18
+ *
+ * Copyright 2024 gwerry
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gwerry.io;
+
+import java.util.UUID;
+
+/**
+ * @brief The StoredRequest class is a pending friend request as it is persisted.
+ *
+ * @author gwerry
+ * @since 1.1
+ */
+public class StoredRequest {
+    public final UUID sender;
+    public final UUID receiver;
+    public final long expiresAt;
+
+    /**
+     * @brief Constructs a new StoredRequest.
+     *
+     * @param sender The UUID of the player who sent the request.
+     * @param receiver The UUID of the player who received the request.
+     * @param expiresAt When the request expires, in milliseconds since the epoch.
+     */
+    public StoredRequest(UUID sender, UUID receiver, long expiresAt) {
+        this.sender = sender;
+        this.receiver = receiver;
+        this.expiresAt = expiresAt;
+    }
+}
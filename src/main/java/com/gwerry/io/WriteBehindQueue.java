@@ -0,0 +1,461 @@
+/**
+ * @file WriteBehindQueue.java
+ * @author gwerry
+ * @brief The WriteBehindQueue class moves database writes off the server thread.
+ * @version 1.0
+ * @date 2026/10/18
+ *
+ * Copyright 2024 gwerry
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gwerry.io;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
+
+/**
+ * @brief The WriteBehindQueue class moves database writes off the server thread.
+ * Mutations are queued per player and coalesced, so an add followed by a remove of the same friend
+ * only writes the final state, and a full save replaces every older change of that player.
+ * A single writer thread drains everything that is pending and hands it to the FriendStore as one batch,
+ * which the SQLite backend commits in one transaction.
+ * When the queue is full, producers wait for the writer (back-pressure) instead of growing memory.
+ * Producers that must not block, like the server thread, go over the capacity instead. Their writes are still
+ * coalesced into the pending map, so the overflow only grows with the number of distinct friendships changed.
+ *
+ * @author gwerry
+ * @since 1.1
+ */
+public class WriteBehindQueue {
+    private static final int MAX_ATTEMPTS = 3;
+    private static final ArrayList<PendingWrites> NO_LOADS = new ArrayList<>();
+
+    private final FriendStore store;
+    private final Logger logger;
+    private final int capacity;
+    private final long flushIntervalNanos;
+    private final BooleanSupplier mayWait;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final Condition flushNow = lock.newCondition();
+
+    private LinkedHashMap<UUID, PendingWrites> pending = new LinkedHashMap<>();
+    private LinkedHashMap<UUID, PendingWrites> inFlight;
+    private final HashMap<UUID, ArrayList<PendingWrites>> loads = new HashMap<>();
+    private int size;
+    private boolean running;
+    private Thread writer;
+
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong producerWaits = new AtomicLong();
+    private final AtomicLong overflows = new AtomicLong();
+    private final AtomicLong lastLagMillis = new AtomicLong();
+    private final AtomicLong maxLagMillis = new AtomicLong();
+
+    /**
+     * @brief Constructs a new WriteBehindQueue.
+     *
+     * @param store The store the queued writes are committed to.
+     * @param logger The logger used to report failures.
+     * @param capacity The maximum number of pending operations before producers have to wait.
+     * @param flushIntervalMillis How long the writer waits for more operations before committing a batch.
+     */
+    public WriteBehindQueue(FriendStore store, Logger logger, int capacity, long flushIntervalMillis) {
+        this(store, logger, capacity, flushIntervalMillis, () -> true);
+    }
+
+    /**
+     * @brief Constructs a new WriteBehindQueue whose producers do not all wait when it is full.
+     *
+     * @param store The store the queued writes are committed to.
+     * @param logger The logger used to report failures.
+     * @param capacity The maximum number of pending operations before producers have to wait.
+     * @param flushIntervalMillis How long the writer waits for more operations before committing a batch.
+     * @param mayWait Tells if the calling producer may wait for space, producers that may not go over the capacity.
+     */
+    public WriteBehindQueue(FriendStore store, Logger logger, int capacity, long flushIntervalMillis, BooleanSupplier mayWait) {
+        this.store = store;
+        this.logger = logger;
+        this.capacity = Math.max(1, capacity);
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, flushIntervalMillis));
+        this.mayWait = mayWait;
+    }
+
+    /**
+     * @brief Starts the writer thread.
+     */
+    public void start() {
+        lock.lock();
+        try {
+            if (running) return;
+            running = true;
+        } finally {
+            lock.unlock();
+        }
+
+        writer = new Thread(this::run, "SimpleFriends-Writer");
+        writer.start();
+    }
+
+    /**
+     * @brief Stops the writer thread after everything that is still pending has been written.
+     */
+    public void shutdown() {
+        lock.lock();
+        try {
+            running = false;
+            notEmpty.signalAll();
+            flushNow.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        if (writer == null) return;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @brief Queues adding a friend to a player's friend list.
+     *
+     * @param owner The UUID of the player whose friend list is to be updated.
+     * @param friend The UUID of the friend to add.
+     */
+    public void addFriend(UUID owner, UUID friend) {
+        queueEdge(owner, friend, true);
+    }
+
+    /**
+     * @brief Queues removing a friend from a player's friend list.
+     *
+     * @param owner The UUID of the player whose friend list is to be updated.
+     * @param friend The UUID of the friend to remove.
+     */
+    public void removeFriend(UUID owner, UUID friend) {
+        queueEdge(owner, friend, false);
+    }
+
+    /**
+     * @brief Queues adding a friendship as both of its edges.
+     * Both edges are queued under one lock, so they always end up in the same batch and the same transaction.
+     *
+     * @param first The UUID of one of the players.
+     * @param second The UUID of the other player.
+     */
+    public void addFriendship(UUID first, UUID second) {
+        queueFriendship(first, second, true);
+    }
+
+    /**
+     * @brief Queues removing a friendship as both of its edges, in the same batch.
+     *
+     * @param first The UUID of one of the players.
+     * @param second The UUID of the other player.
+     */
+    public void removeFriendship(UUID first, UUID second) {
+        queueFriendship(first, second, false);
+    }
+
+    /**
+     * @brief Queues replacing a player's whole friend list.
+     *
+     * @param owner The UUID of the player to save.
+     * @param friends The friends of the player. They are copied.
+     */
+    public void savePlayer(UUID owner, Iterable<UUID> friends) {
+        ArrayList<UUID> snapshot = new ArrayList<>();
+        for (UUID friend : friends) snapshot.add(friend);
+
+        lock.lock();
+        try {
+            awaitSpace();
+            PendingWrites writes = pendingFor(owner);
+            enqueued.incrementAndGet();
+
+            int replaced = writes.getOperationCount();
+            coalesced.addAndGet(replaced);
+            size += 1 - replaced;
+
+            writes.setSnapshot(snapshot);
+            for (PendingWrites recorded : loads.getOrDefault(owner, NO_LOADS)) recorded.setSnapshot(new ArrayList<>(snapshot));
+            signalWriter();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @brief Starts recording the writes of a player whose friend list is about to be read from the store.
+     * The recording starts out with every write of the player that was not committed yet, in flight or pending,
+     * and picks up every write queued until finishLoad. A batch the writer commits while the read is running is
+     * therefore still applied, whether or not the read saw it, which keeps a player that rejoins before the
+     * writer caught up from seeing stale data.
+     *
+     * @param owner The UUID of the player that is about to be loaded.
+     * @return The recording, to be handed to finishLoad once the read is done.
+     */
+    public PendingWrites beginLoad(UUID owner) {
+        PendingWrites recorded = new PendingWrites(owner, System.nanoTime());
+        lock.lock();
+        try {
+            if (inFlight != null && inFlight.containsKey(owner)) inFlight.get(owner).copyTo(recorded);
+            if (pending.containsKey(owner)) pending.get(owner).copyTo(recorded);
+            loads.computeIfAbsent(owner, key -> new ArrayList<>()).add(recorded);
+        } finally {
+            lock.unlock();
+        }
+        return recorded;
+    }
+
+    /**
+     * @brief Stops a recording started by beginLoad and applies it to the friend list that was read.
+     *
+     * @param recorded The recording returned by beginLoad.
+     * @param friends The friend list read from the store, or null if the read failed and only the recording is dropped.
+     */
+    public void finishLoad(PendingWrites recorded, ArrayList<UUID> friends) {
+        lock.lock();
+        try {
+            ArrayList<PendingWrites> recordings = loads.get(recorded.getOwner());
+            if (recordings != null) {
+                recordings.remove(recorded);
+                if (recordings.isEmpty()) loads.remove(recorded.getOwner());
+            }
+            if (friends == null) return;
+
+            synchronized (friends) {
+                recorded.applyTo(friends);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @brief Gets the number of operations waiting to be written.
+     * @return The number of pending operations.
+     */
+    public int getPendingCount() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @brief Gets how long the oldest write of the last batch waited before it was committed.
+     * @return The lag of the last batch in milliseconds.
+     */
+    public long getLastLagMillis() {
+        return lastLagMillis.get();
+    }
+
+    /**
+     * @brief Gets the highest lag seen since startup.
+     * @return The highest lag in milliseconds.
+     */
+    public long getMaxLagMillis() {
+        return maxLagMillis.get();
+    }
+
+    /**
+     * @brief Gets how many times a producer had to wait because the queue was full.
+     * @return The number of back-pressure waits.
+     */
+    public long getProducerWaits() {
+        return producerWaits.get();
+    }
+
+    /**
+     * @brief Gets how many times a producer that may not wait went over the capacity.
+     * @return The number of overflows.
+     */
+    public long getOverflows() {
+        return overflows.get();
+    }
+
+    /**
+     * @brief Gets a one line summary of the queue metrics.
+     * @return The queue metrics.
+     */
+    public String getStats() {
+        return "pending=" + getPendingCount()
+                + " enqueued=" + enqueued.get()
+                + " coalesced=" + coalesced.get()
+                + " written=" + written.get()
+                + " batches=" + batches.get()
+                + " failed=" + failed.get()
+                + " producerWaits=" + producerWaits.get()
+                + " overflows=" + overflows.get()
+                + " lastLagMs=" + lastLagMillis.get()
+                + " maxLagMs=" + maxLagMillis.get();
+    }
+
+    private void queueEdge(UUID owner, UUID friend, boolean add) {
+        lock.lock();
+        try {
+            awaitSpace();
+            PendingWrites writes = pendingFor(owner);
+            enqueued.incrementAndGet();
+
+            if (writes.putEdge(friend, add)) coalesced.incrementAndGet();
+            else size++;
+            record(owner, friend, add);
+
+            signalWriter();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void queueFriendship(UUID first, UUID second, boolean add) {
+        lock.lock();
+        try {
+            awaitSpace();
+            enqueued.addAndGet(2);
+
+            if (pendingFor(first).putEdge(second, add)) coalesced.incrementAndGet();
+            else size++;
+            if (pendingFor(second).putEdge(first, add)) coalesced.incrementAndGet();
+            else size++;
+            record(first, second, add);
+            record(second, first, add);
+
+            signalWriter();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private PendingWrites pendingFor(UUID owner) {
+        PendingWrites writes = pending.get(owner);
+        if (writes == null) {
+            writes = new PendingWrites(owner, System.nanoTime());
+            pending.put(owner, writes);
+        }
+        return writes;
+    }
+
+    private void record(UUID owner, UUID friend, boolean add) {
+        for (PendingWrites recorded : loads.getOrDefault(owner, NO_LOADS)) recorded.putEdge(friend, add);
+    }
+
+    private void awaitSpace() {
+        if (size < capacity || !running) return;
+
+        flushNow.signal();
+        if (!mayWait.getAsBoolean()) {
+            // The writer is already told to hurry, the write is coalesced into pending like any other
+            overflows.incrementAndGet();
+            return;
+        }
+        producerWaits.incrementAndGet();
+        boolean interrupted = false;
+        while (size >= capacity && running) {
+            try {
+                notFull.await();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    private void signalWriter() {
+        notEmpty.signal();
+        if (size * 2 >= capacity) flushNow.signal();
+    }
+
+    private void run() {
+        while (true) {
+            LinkedHashMap<UUID, PendingWrites> batch;
+
+            lock.lock();
+            try {
+                while (pending.isEmpty() && running) notEmpty.awaitUninterruptibly();
+                if (pending.isEmpty()) return;
+
+                // Give other writes a moment to pile up so they share the commit
+                if (running && size * 2 < capacity && flushIntervalNanos > 0) {
+                    try {
+                        flushNow.awaitNanos(flushIntervalNanos);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+
+                batch = pending;
+                inFlight = batch;
+                pending = new LinkedHashMap<>();
+                size = 0;
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+
+            write(batch);
+
+            lock.lock();
+            try {
+                inFlight = null;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void write(LinkedHashMap<UUID, PendingWrites> batch) {
+        long oldest = batch.values().iterator().next().getQueuedAt();
+        int operations = 0;
+        for (PendingWrites writes : batch.values()) operations += writes.getOperationCount();
+
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            try {
+                store.writeBatch(batch.values());
+
+                long lag = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - oldest);
+                lastLagMillis.set(lag);
+                maxLagMillis.accumulateAndGet(lag, Math::max);
+                written.addAndGet(operations);
+                batches.incrementAndGet();
+                return;
+            } catch (FriendStoreException e) {
+                logger.warning("Failed to write " + operations + " queued database operations (attempt " + attempt + "/" + MAX_ATTEMPTS + "): " + e.getMessage());
+            }
+        }
+
+        failed.addAndGet(operations);
+        logger.severe("Dropped " + operations + " queued database operations after " + MAX_ATTEMPTS + " attempts!");
+    }
+}
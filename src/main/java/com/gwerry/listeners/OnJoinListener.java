@@ -21,17 +21,15 @@
  */
 package com.gwerry.listeners;
 
-import com.gwerry.CustomPlayer;
-import com.gwerry.Data;
+import com.gwerry.NotificationAggregator;
 import com.gwerry.PlayerManager;
+import com.gwerry.PresenceIndex;
 
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerJoinEvent;
 
-import java.util.UUID;
-
 /**
  * @brief The OnJoinListener class handles the event when a player joins the server.
  * It implements the Listener interface, which means it can register events.
@@ -44,21 +42,18 @@ public class OnJoinListener implements Listener {
 
     /**
      * @brief This method is called whenever a player joins the server.
-     * It first retrieves the CustomPlayer object associated with the joining player.
-     * Then, it iterates over the joining player's friend list, and for each friend that is online,
-     * it sends them a message notifying them that the player has joined the server.
+     * It first binds the joining player to the friend data that was loaded during pre-login.
+     * Then, it looks up the online players that have the joining player as a friend in the PresenceIndex,
+     * and hands them to the NotificationAggregator, which tells them in the next batch that the player has joined the server.
      *
      * @param event The PlayerJoinEvent object containing information about the joining player.
      */
     @EventHandler
     public void onPlayerJoin(PlayerJoinEvent event) {
         Player p = event.getPlayer();
-        CustomPlayer player = PlayerManager.addPlayer(p.getUniqueId());
+        PlayerManager.addPlayer(p);
         String name = p.getName();
 
-        for(UUID uuid : player.getFriendList()) {
-            CustomPlayer other = PlayerManager.getPlayer(uuid);
-            if(other != null) other.getPlayer().sendMessage(Data.FRIEND_JOIN.replace("%friend_name%", name));
-        }
+        NotificationAggregator.joined(p.getUniqueId(), name, PresenceIndex.getWatchers(p.getUniqueId()));
     }
 }
\ No newline at end of file
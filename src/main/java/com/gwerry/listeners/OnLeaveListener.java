@@ -21,16 +21,14 @@
  */
 package com.gwerry.listeners;
 
-import java.util.UUID;
-
 import org.bukkit.event.Listener;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.player.PlayerQuitEvent;
 
-import com.gwerry.CustomPlayer;
-import com.gwerry.Data;
+import com.gwerry.NotificationAggregator;
 import com.gwerry.PlayerManager;
+import com.gwerry.PresenceIndex;
 
 /**
  * @brief The OnLeaveListener class handles the event when a player leaves the server.
@@ -44,9 +42,8 @@ public class OnLeaveListener implements Listener {
 
     /**
      * This method is called whenever a player leaves the server.
-     * It first retrieves the CustomPlayer object associated with the leaving player.
-     * Then, it iterates over the leaving player's friend list, and for each friend that is online,
-     * it sends them a message notifying them that the player has left the server.
+     * It looks up the online players that have the leaving player as a friend in the PresenceIndex,
+     * and hands them to the NotificationAggregator, which tells them in the next batch that the player has left the server.
      * Finally, it removes the player from the PlayerManager.
      *
      * @param event The PlayerQuitEvent object containing information about the leaving player.
@@ -54,12 +51,8 @@ public class OnLeaveListener implements Listener {
     @EventHandler
     public void onPlayerLeave(PlayerQuitEvent event) {
         Player p = event.getPlayer();
-        CustomPlayer player = PlayerManager.getPlayer(p.getUniqueId());
         String name = p.getName();
-        for(UUID uuid : player.getFriendList()) {
-            CustomPlayer other = PlayerManager.getPlayer(uuid);
-            if(other != null) other.getPlayer().sendMessage(Data.FRIEND_LEAVE.replace("%friend_name%", name));
-        }
+        NotificationAggregator.left(p.getUniqueId(), name, PresenceIndex.getWatchers(p.getUniqueId()));
 
         PlayerManager.removePlayer(p.getUniqueId());
     }
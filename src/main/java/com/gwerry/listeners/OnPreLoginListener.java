@@ -0,0 +1,71 @@
+/**
+ * @file OnPreLoginListener.java
+ * @author gwerry
+ * @brief The OnPreLoginListener class loads a player's friends while they are logging in.
+ * @version 1.0
+ * @date 2026/10/18
+ *
+ * Copyright 2024 gwerry
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gwerry.listeners;
+
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+
+import com.gwerry.Data;
+import com.gwerry.PlayerManager;
+
+/**
+ * @brief The OnPreLoginListener class loads a player's friends while they are logging in.
+ * AsyncPlayerPreLoginEvent runs on its own thread, so the database work happens there instead of
+ * on the main thread during PlayerJoinEvent.
+ *
+ * @author gwerry
+ * @since 1.1
+ */
+public class OnPreLoginListener implements Listener {
+
+    /**
+     * @brief This method is called on the async login thread before the player joins.
+     * It loads the player's friends into the staging cache of the PlayerManager.
+     * If that fails and the failure policy is KICK, the login is denied.
+     *
+     * @param event The AsyncPlayerPreLoginEvent object containing information about the player logging in.
+     */
+    @EventHandler(priority = EventPriority.HIGH)
+    public void onPreLogin(AsyncPlayerPreLoginEvent event) {
+        if(event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) return;
+
+        boolean loaded = PlayerManager.preloadPlayer(event.getUniqueId(), event.getName());
+        if(!loaded && Data.LOGIN_KICK_ON_LOAD_FAILURE) {
+            event.disallow(AsyncPlayerPreLoginEvent.Result.KICK_OTHER, Data.LOGIN_LOAD_FAILED);
+        }
+    }
+
+    /**
+     * @brief This method is called once every other plugin had its say about the login.
+     * If the login was denied after the friends were loaded, the staged data is dropped.
+     *
+     * @param event The AsyncPlayerPreLoginEvent object containing information about the player logging in.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPreLoginResult(AsyncPlayerPreLoginEvent event) {
+        if(event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            PlayerManager.discardPreload(event.getUniqueId());
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/**
+ * @file ChatBroadcaster.java
+ * @author gwerry
+ * @brief The ChatBroadcaster class sends the same chat message to many players at once.
+ * @version 1.0
+ * @date 2026/10/18
+ *
+ * Copyright 2024 gwerry
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gwerry.utils;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+
+/**
+ * @brief The ChatBroadcaster class sends the same chat message to many players at once.
+ * With ProtocolLib the message is turned into a system chat packet once and that packet is written to every
+ * player, where Player.sendMessage parses the legacy text and builds a new component and packet per player.
+ * Without ProtocolLib, or once sending a packet failed, it falls back to Player.sendMessage.
+ *
+ * Must be used from the server thread.
+ *
+ * @author gwerry
+ * @since 1.1
+ */
+public class ChatBroadcaster {
+    private static Logger logger;
+    private static ProtocolLibChat packets;
+
+    private static final AtomicLong broadcasts = new AtomicLong();
+    private static final AtomicLong packetsBuilt = new AtomicLong();
+    private static final AtomicLong packetRecipients = new AtomicLong();
+    private static final AtomicLong fallbackSends = new AtomicLong();
+
+    /**
+     * @brief Picks the packet path if ProtocolLib is enabled. Call once the plugins are enabled.
+     *
+     * @param log The logger to report the chosen path and failures to.
+     */
+    public static void init(Logger log) {
+        logger = log;
+        packets = null;
+        if (!Bukkit.getPluginManager().isPluginEnabled("ProtocolLib")) {
+            logger.info("ProtocolLib is not installed, friend notifications are sent one by one.");
+            return;
+        }
+
+        try {
+            packets = new ProtocolLibChat();
+            logger.info("Friend notifications are sent as shared ProtocolLib packets.");
+        } catch (LinkageError | RuntimeException e) {
+            logger.log(Level.WARNING, "Could not use ProtocolLib, friend notifications are sent one by one.", e);
+        }
+    }
+
+    /**
+     * @brief Sends a message to every player given.
+     *
+     * @param message The message, with legacy color codes.
+     * @param players The players to send it to.
+     */
+    public static void broadcast(String message, Collection<? extends Player> players) {
+        if (players.isEmpty()) return;
+        broadcasts.incrementAndGet();
+
+        ProtocolLibChat current = packets;
+        if (current != null) {
+            try {
+                packetsBuilt.addAndGet(current.send(message, players));
+                packetRecipients.addAndGet(players.size());
+                return;
+            } catch (LinkageError | RuntimeException e) {
+                // A ProtocolLib that does not match the server version, do not try again
+                packets = null;
+                logger.log(Level.WARNING, "Sending a chat packet failed, falling back to sendMessage.", e);
+            }
+        }
+
+        for (Player player : players) player.sendMessage(message);
+        fallbackSends.addAndGet(players.size());
+    }
+
+    /**
+     * @brief Gets a one line summary of the broadcast metrics.
+     * @return The broadcast metrics.
+     */
+    public static String getStats() {
+        return "broadcasts=" + broadcasts.get()
+                + " packetsBuilt=" + packetsBuilt.get()
+                + " packetRecipients=" + packetRecipients.get()
+                + " fallbackSends=" + fallbackSends.get();
+    }
+}
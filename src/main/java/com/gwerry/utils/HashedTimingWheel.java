@@ -0,0 +1,262 @@
+/**
+ * @file HashedTimingWheel.java
+ * @author gwerry
+ * @brief The HashedTimingWheel class runs delayed tasks from a single thread.
+ * @version 1.0
+ * @date 2026/10/18
+ *
+ * Copyright 2024 gwerry
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gwerry.utils;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * @brief The HashedTimingWheel class runs delayed tasks from a single thread.
+ * Time is cut into ticks and the wheel has one bucket per tick, each a doubly linked list of timeouts.
+ * A timeout lands in the bucket its deadline hashes to, with the number of full turns of the wheel left
+ * before it is due. Every tick the worker walks one bucket and runs what is due, so scheduling and
+ * cancelling are O(1) no matter how many timeouts are pending. Deadlines are only as precise as a tick.
+ *
+ * New and cancelled timeouts go through lock-free queues that only the worker drains, so callers never block.
+ *
+ * @author gwerry
+ * @since 1.1
+ */
+public class HashedTimingWheel {
+
+    /**
+     * @brief A scheduled task that can be cancelled.
+     */
+    public static class Timeout {
+        private static final int PENDING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private final HashedTimingWheel wheel;
+        private final Runnable task;
+        private final long deadline;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+
+        // Only touched by the worker thread
+        private long remainingRounds;
+        private Bucket bucket;
+        private Timeout prev;
+        private Timeout next;
+
+        private Timeout(HashedTimingWheel wheel, Runnable task, long deadline) {
+            this.wheel = wheel;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * @brief Cancels the task if it did not run yet.
+         * @return true if the task was cancelled, false if it already ran or was cancelled before.
+         */
+        public boolean cancel() {
+            if (!state.compareAndSet(PENDING, CANCELLED)) return false;
+            wheel.cancelled.add(this);
+            return true;
+        }
+
+        /**
+         * @brief Checks whether the task was cancelled.
+         * @return true if the task was cancelled.
+         */
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        /**
+         * @brief Checks whether the task ran.
+         * @return true if the task ran.
+         */
+        public boolean isExpired() {
+            return state.get() == EXPIRED;
+        }
+    }
+
+    /**
+     * @brief One slot of the wheel.
+     */
+    private static class Bucket {
+        Timeout head;
+        Timeout tail;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.prev != null) timeout.prev.next = timeout.next;
+            else head = timeout.next;
+            if (timeout.next != null) timeout.next.prev = timeout.prev;
+            else tail = timeout.prev;
+            timeout.prev = timeout.next = null;
+            timeout.bucket = null;
+        }
+    }
+
+    private final Logger logger;
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final ConcurrentLinkedQueue<Timeout> added = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+    private final AtomicLong pending = new AtomicLong();
+    private final Thread worker;
+
+    private volatile boolean running;
+    private long startTime;
+    private long tick;
+
+    /**
+     * @brief Constructs a new HashedTimingWheel. The worker thread is started by start().
+     *
+     * @param name The name of the worker thread.
+     * @param logger The logger that tasks that throw are reported to.
+     * @param tickMillis How long a tick is, the precision of the deadlines.
+     * @param ticksPerWheel How many buckets the wheel has, rounded up to a power of two.
+     */
+    public HashedTimingWheel(String name, Logger logger, long tickMillis, int ticksPerWheel) {
+        this.logger = logger;
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, tickMillis));
+
+        int size = Integer.highestOneBit(Math.max(1, ticksPerWheel - 1)) << 1;
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) wheel[i] = new Bucket();
+        this.mask = size - 1;
+
+        this.worker = new Thread(this::run, name);
+        this.worker.setDaemon(true);
+    }
+
+    /**
+     * @brief Starts the worker thread.
+     */
+    public synchronized void start() {
+        if (running) return;
+        startTime = System.nanoTime();
+        running = true;
+        worker.start();
+    }
+
+    /**
+     * @brief Stops the worker thread. Pending tasks never run.
+     */
+    public void stop() {
+        running = false;
+        worker.interrupt();
+    }
+
+    /**
+     * @brief Schedules a task to run once after a delay, on the worker thread.
+     * The task should be short, every other timeout of the same tick waits for it.
+     *
+     * @param task The task to run.
+     * @param delay How long to wait.
+     * @param unit The unit of the delay.
+     * @return The handle to cancel the task with.
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        Timeout timeout = new Timeout(this, task, System.nanoTime() + unit.toNanos(Math.max(0, delay)));
+        pending.incrementAndGet();
+        added.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * @brief Gets the number of tasks that neither ran nor were cancelled yet.
+     * @return The number of pending tasks.
+     */
+    public long getPendingCount() {
+        return pending.get();
+    }
+
+    private void run() {
+        while (running) {
+            long deadline = startTime + (tick + 1) * tickNanos;
+            long sleep = deadline - System.nanoTime();
+            if (sleep > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleep);
+                } catch (InterruptedException e) {
+                    if (!running) return;
+                    continue;
+                }
+            }
+
+            removeCancelled();
+            transferAdded();
+            expire(wheel[(int) (tick & mask)]);
+            tick++;
+        }
+    }
+
+    private void transferAdded() {
+        Timeout timeout;
+        while ((timeout = added.poll()) != null) {
+            if (timeout.state.get() != Timeout.PENDING) continue;
+
+            // Ticks from the start of the wheel until the deadline, never in the past
+            long due = Math.max(tick, (timeout.deadline - startTime) / tickNanos);
+            timeout.remainingRounds = (due - tick) / wheel.length;
+            wheel[(int) (due & mask)].add(timeout);
+        }
+    }
+
+    private void removeCancelled() {
+        Timeout timeout;
+        while ((timeout = cancelled.poll()) != null) {
+            // A timeout cancelled before it was transferred is simply skipped later
+            if (timeout.bucket != null) timeout.bucket.remove(timeout);
+            pending.decrementAndGet();
+        }
+    }
+
+    private void expire(Bucket bucket) {
+        Timeout timeout = bucket.head;
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            if (timeout.remainingRounds > 0) {
+                timeout.remainingRounds--;
+            } else {
+                bucket.remove(timeout);
+                if (timeout.state.compareAndSet(Timeout.PENDING, Timeout.EXPIRED)) {
+                    pending.decrementAndGet();
+                    try {
+                        timeout.task.run();
+                    } catch (RuntimeException e) {
+                        logger.log(Level.WARNING, "A scheduled task threw an exception", e);
+                    }
+                }
+            }
+            timeout = next;
+        }
+    }
+}
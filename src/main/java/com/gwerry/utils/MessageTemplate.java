@@ -0,0 +1,198 @@
+/**
+ * @file MessageTemplate.java
+ * @author gwerry
+ * @brief The MessageTemplate class is a config message parsed once into literal text and placeholders.
+ * @version 1.0
+ * @date 2026/10/18
+ *
+ * Copyright 2024 gwerry
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gwerry.utils;
+
+import java.util.ArrayList;
+
+/**
+ * @brief The MessageTemplate class is a config message parsed once into literal text and placeholders.
+ * A placeholder is a name of letters, digits and underscores between two percent signs, like %friend_name%.
+ * Rendering walks the segments once and appends them to a builder that is reused per thread, where a chain of
+ * String.replace calls would scan and copy the whole message once per placeholder.
+ * Placeholders that are not given a value are kept as they are, like String.replace would.
+ *
+ * Templates are immutable and can be rendered from any thread.
+ *
+ * @author gwerry
+ * @since 1.1
+ */
+public class MessageTemplate {
+    // Builders that grew past this are not kept, so one huge message does not pin memory forever
+    private static final int MAX_KEPT_CAPACITY = 8192;
+    private static final ThreadLocal<StringBuilder> BUILDER = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+    private final String source;
+    // literals[i] comes before placeholders[i], the last literal ends the message
+    private final String[] literals;
+    private final String[] placeholders;
+    private final int literalLength;
+
+    private MessageTemplate(String source, String[] literals, String[] placeholders) {
+        this.source = source;
+        this.literals = literals;
+        this.placeholders = placeholders;
+
+        int length = 0;
+        for (String literal : literals) length += literal.length();
+        this.literalLength = length;
+    }
+
+    /**
+     * @brief Parses a message into a template.
+     *
+     * @param source The message, as it is written in the config. null is treated as an empty message.
+     * @return The template.
+     */
+    public static MessageTemplate compile(String source) {
+        if (source == null) source = "";
+
+        ArrayList<String> literals = new ArrayList<>();
+        ArrayList<String> placeholders = new ArrayList<>();
+        int literalStart = 0;
+        int i = 0;
+        while (i < source.length()) {
+            int end = placeholderEnd(source, i);
+            if (end < 0) {
+                i++;
+                continue;
+            }
+            literals.add(source.substring(literalStart, i));
+            placeholders.add(source.substring(i + 1, end));
+            literalStart = i = end + 1;
+        }
+        literals.add(source.substring(literalStart));
+
+        return new MessageTemplate(source, literals.toArray(new String[0]), placeholders.toArray(new String[0]));
+    }
+
+    /**
+     * @brief Renders the template with one placeholder filled in.
+     *
+     * @param name The name of the placeholder, without the percent signs.
+     * @param value The text to put in its place.
+     * @return The rendered message.
+     */
+    public String render(String name, String value) {
+        return render(name, value, null, null, null, null);
+    }
+
+    /**
+     * @brief Renders the template with two placeholders filled in.
+     *
+     * @param name1 The name of the first placeholder, without the percent signs.
+     * @param value1 The text to put in its place.
+     * @param name2 The name of the second placeholder.
+     * @param value2 The text to put in its place.
+     * @return The rendered message.
+     */
+    public String render(String name1, String value1, String name2, String value2) {
+        return render(name1, value1, name2, value2, null, null);
+    }
+
+    /**
+     * @brief Renders the template with three placeholders filled in.
+     *
+     * @param name1 The name of the first placeholder, without the percent signs.
+     * @param value1 The text to put in its place.
+     * @param name2 The name of the second placeholder.
+     * @param value2 The text to put in its place.
+     * @param name3 The name of the third placeholder.
+     * @param value3 The text to put in its place.
+     * @return The rendered message.
+     */
+    public String render(String name1, String value1, String name2, String value2, String name3, String value3) {
+        StringBuilder builder = BUILDER.get();
+        builder.setLength(0);
+        appendTo(builder, name1, value1, name2, value2, name3, value3);
+        String message = builder.toString();
+        if (builder.capacity() > MAX_KEPT_CAPACITY) BUILDER.remove();
+        return message;
+    }
+
+    /**
+     * @brief Renders the template with two placeholders filled in, straight into a builder.
+     *
+     * @param builder The builder to append to.
+     * @param name1 The name of the first placeholder, without the percent signs.
+     * @param value1 The text to put in its place.
+     * @param name2 The name of the second placeholder.
+     * @param value2 The text to put in its place.
+     * @return The builder.
+     */
+    public StringBuilder appendTo(StringBuilder builder, String name1, String value1, String name2, String value2) {
+        return appendTo(builder, name1, value1, name2, value2, null, null);
+    }
+
+    /**
+     * @brief Renders the template with up to three placeholders filled in, straight into a builder.
+     * Unused names may be null.
+     *
+     * @param builder The builder to append to.
+     * @param name1 The name of the first placeholder, without the percent signs.
+     * @param value1 The text to put in its place.
+     * @param name2 The name of the second placeholder.
+     * @param value2 The text to put in its place.
+     * @param name3 The name of the third placeholder.
+     * @param value3 The text to put in its place.
+     * @return The builder.
+     */
+    public StringBuilder appendTo(StringBuilder builder, String name1, String value1, String name2, String value2, String name3, String value3) {
+        builder.ensureCapacity(builder.length() + literalLength + 16 * placeholders.length);
+        for (int i = 0; i < placeholders.length; i++) {
+            builder.append(literals[i]);
+            String placeholder = placeholders[i];
+            if (placeholder.equals(name1)) builder.append(value1);
+            else if (placeholder.equals(name2)) builder.append(value2);
+            else if (placeholder.equals(name3)) builder.append(value3);
+            else builder.append('%').append(placeholder).append('%');
+        }
+        return builder.append(literals[placeholders.length]);
+    }
+
+    /**
+     * @brief Gets the message as it was written in the config.
+     * @return The unrendered message.
+     */
+    @Override
+    public String toString() {
+        return source;
+    }
+
+    /**
+     * @brief Finds the closing percent sign of a placeholder that starts at the given index.
+     *
+     * @param source The message.
+     * @param start The index of the opening percent sign.
+     * @return The index of the closing percent sign, or -1 if no placeholder starts there.
+     */
+    private static int placeholderEnd(String source, int start) {
+        if (source.charAt(start) != '%') return -1;
+        int i = start + 1;
+        while (i < source.length()) {
+            char c = source.charAt(i);
+            if (c == '%') return i > start + 1 ? i : -1;
+            if (!Character.isLetterOrDigit(c) && c != '_') return -1;
+            i++;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,319 @@
+/**
+ * @file ProfileLookupService.java
+ * @author gwerry
+ * @brief The ProfileLookupService class batches name to UUID lookups against the profile API.
+ * @version 1.0
+ * @date 2026/10/18
+ *
+ * Copyright 2024 gwerry
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gwerry.utils;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.JSONValue;
+
+/**
+ * @brief The ProfileLookupService class batches name to UUID lookups against the profile API.
+ * Names are collected for a short window and sent together through the bulk endpoint, up to
+ * MAX_BATCH_SIZE per request. A name that is only looked up by itself uses the single profile endpoint.
+ * Concurrent lookups of the same name share one future, and every request first takes a token from a
+ * TokenBucket, so a burst of commands can not push us over the API's rate limit.
+ * Both URLs are configurable, so a local HTTP server can stand in for the real API.
+ * Names that can not belong to a player are answered with null right away and never sent.
+ *
+ * @author gwerry
+ * @since 1.1
+ */
+public class ProfileLookupService {
+    public static final int MAX_BATCH_SIZE = 10;
+    // What the API accepts as a player name, anything else would fail the whole batch it is sent in
+    private static final Pattern VALID_NAME = Pattern.compile("[A-Za-z0-9_]{1,16}");
+
+    /**
+     * @brief The tuning knobs of the service, usually filled from the config.yml.
+     */
+    public static class Settings {
+        public String profileUrl = "https://api.mojang.com/users/profiles/minecraft/";
+        public String bulkUrl = "https://api.minecraftservices.com/minecraft/profile/lookup/bulk/byname";
+        public long batchWindowMillis = 20;
+        public double ratePerSecond = 2;
+        public int burst = 10;
+        public long timeoutMillis = 5000;
+    }
+
+    private final Settings settings;
+    private final Logger logger;
+    private final TokenBucket bucket;
+    private final HttpClient client;
+
+    private final Object lock = new Object();
+    // Lower case name to the future every caller of that name shares, until the future completes
+    private final HashMap<String, CompletableFuture<UUID>> inFlight = new HashMap<>();
+    // Lower case name to the name as it was first asked for, waiting to be sent
+    private final LinkedHashMap<String, String> pending = new LinkedHashMap<>();
+    private boolean running;
+    private Thread sender;
+
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong invalidNames = new AtomicLong();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong namesSent = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong throttledNanos = new AtomicLong();
+
+    /**
+     * @brief Constructs a new ProfileLookupService.
+     *
+     * @param settings The tuning knobs of the service.
+     * @param logger The logger used to report failures.
+     */
+    public ProfileLookupService(Settings settings, Logger logger) {
+        this.settings = settings;
+        this.logger = logger;
+        this.bucket = new TokenBucket(settings.ratePerSecond, settings.burst);
+        this.client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(settings.timeoutMillis))
+                .build();
+    }
+
+    /**
+     * @brief Starts the thread that sends the batches.
+     */
+    public void start() {
+        synchronized (lock) {
+            if (running) return;
+            running = true;
+        }
+
+        sender = new Thread(this::run, "SimpleFriends-ProfileLookup");
+        sender.setDaemon(true);
+        sender.start();
+    }
+
+    /**
+     * @brief Stops the sender thread. Lookups that were not answered yet fail.
+     */
+    public void shutdown() {
+        ArrayList<CompletableFuture<UUID>> unanswered;
+        synchronized (lock) {
+            running = false;
+            unanswered = new ArrayList<>(inFlight.values());
+            inFlight.clear();
+            pending.clear();
+            lock.notifyAll();
+        }
+        if (sender != null) sender.interrupt();
+        for (CompletableFuture<UUID> future : unanswered) {
+            future.completeExceptionally(new IOException("Profile lookups were shut down"));
+        }
+    }
+
+    /**
+     * @brief Looks a name up.
+     *
+     * @param name The name to look up.
+     * @return A future of the UUID, completed with null if no player has that name, or exceptionally if the lookup failed.
+     */
+    public CompletableFuture<UUID> lookup(String name) {
+        lookups.incrementAndGet();
+        if (!isValidName(name)) {
+            invalidNames.incrementAndGet();
+            return CompletableFuture.completedFuture(null);
+        }
+        String key = name.toLowerCase(Locale.ROOT);
+
+        synchronized (lock) {
+            CompletableFuture<UUID> future = inFlight.get(key);
+            if (future != null) {
+                coalesced.incrementAndGet();
+                return future;
+            }
+
+            future = new CompletableFuture<>();
+            if (!running) {
+                future.completeExceptionally(new IOException("Profile lookups are not running"));
+                return future;
+            }
+            inFlight.put(key, future);
+            pending.put(key, name);
+            lock.notifyAll();
+            return future;
+        }
+    }
+
+    /**
+     * @brief Checks if a name can belong to a player at all.
+     *
+     * @param name The name to check.
+     * @return true if the name is 1 to 16 letters, digits or underscores.
+     */
+    public static boolean isValidName(String name) {
+        return name != null && VALID_NAME.matcher(name).matches();
+    }
+
+    /**
+     * @brief Gets how many lookups did not need a request of their own, because they were coalesced or batched.
+     * @return The number of saved requests.
+     */
+    public long getSavedRequests() {
+        return lookups.get() - requests.get();
+    }
+
+    /**
+     * @brief Gets a one line summary of the service metrics.
+     * @return The service metrics.
+     */
+    public String getStats() {
+        return "lookups=" + lookups.get()
+                + " coalesced=" + coalesced.get()
+                + " invalid=" + invalidNames.get()
+                + " requests=" + requests.get()
+                + " namesSent=" + namesSent.get()
+                + " saved=" + getSavedRequests()
+                + " failures=" + failures.get()
+                + " throttledMs=" + TimeUnit.NANOSECONDS.toMillis(throttledNanos.get());
+    }
+
+    private void run() {
+        while (true) {
+            try {
+                synchronized (lock) {
+                    while (pending.isEmpty() && running) lock.wait();
+                    if (!running) return;
+
+                    // Give other lookups a moment to join the batch
+                    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(settings.batchWindowMillis);
+                    long left;
+                    while (pending.size() < MAX_BATCH_SIZE && running && (left = deadline - System.nanoTime()) > 0) {
+                        TimeUnit.NANOSECONDS.timedWait(lock, left);
+                    }
+                }
+
+                // Names that arrive while we wait for a token still make it into this batch
+                throttledNanos.addAndGet(bucket.acquire());
+            } catch (InterruptedException e) {
+                synchronized (lock) {
+                    if (!running) return;
+                }
+                continue;
+            }
+
+            LinkedHashMap<String, String> batch = new LinkedHashMap<>();
+            synchronized (lock) {
+                Iterator<Map.Entry<String, String>> it = pending.entrySet().iterator();
+                while (it.hasNext() && batch.size() < MAX_BATCH_SIZE) {
+                    Map.Entry<String, String> entry = it.next();
+                    batch.put(entry.getKey(), entry.getValue());
+                    it.remove();
+                }
+            }
+            if (batch.isEmpty()) continue;
+
+            send(batch);
+        }
+    }
+
+    private void send(LinkedHashMap<String, String> batch) {
+        requests.incrementAndGet();
+        namesSent.addAndGet(batch.size());
+
+        HashMap<String, UUID> found;
+        try {
+            found = batch.size() == 1 ? fetchSingle(batch.values().iterator().next()) : fetchBulk(batch.values());
+        } catch (Exception e) {
+            failures.incrementAndGet();
+            logger.warning("Failed to look up " + batch.size() + " player names: " + e.getMessage());
+            for (String key : batch.keySet()) complete(key, null, e);
+            return;
+        }
+
+        for (String key : batch.keySet()) complete(key, found.get(key), null);
+    }
+
+    private void complete(String key, UUID uuid, Exception failure) {
+        CompletableFuture<UUID> future;
+        synchronized (lock) {
+            future = inFlight.remove(key);
+        }
+        if (future == null) return;
+
+        if (failure != null) future.completeExceptionally(failure);
+        else future.complete(uuid);
+    }
+
+    private HashMap<String, UUID> fetchSingle(String name) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(settings.profileUrl + name))
+                .timeout(Duration.ofMillis(settings.timeoutMillis))
+                .GET()
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+
+        HashMap<String, UUID> found = new HashMap<>();
+        // The API answers 404 or 204 for names nobody has
+        if (response.statusCode() == 404 || response.statusCode() == 204 || response.body().isEmpty()) return found;
+        if (response.statusCode() != 200) throw new IOException("HTTP " + response.statusCode());
+
+        addProfile(found, (JSONObject) JSONValue.parseWithException(response.body()));
+        return found;
+    }
+
+    private HashMap<String, UUID> fetchBulk(Iterable<String> names) throws Exception {
+        ArrayList<String> body = new ArrayList<>();
+        for (String name : names) body.add(name);
+
+        HttpRequest request = HttpRequest.newBuilder(URI.create(settings.bulkUrl))
+                .timeout(Duration.ofMillis(settings.timeoutMillis))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(JSONArray.toJSONString(body)))
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) throw new IOException("HTTP " + response.statusCode());
+
+        // Names nobody has are simply missing from the answer
+        HashMap<String, UUID> found = new HashMap<>();
+        for (Object profile : (JSONArray) JSONValue.parseWithException(response.body())) {
+            addProfile(found, (JSONObject) profile);
+        }
+        return found;
+    }
+
+    private static void addProfile(HashMap<String, UUID> found, JSONObject profile) {
+        Object id = profile.get("id");
+        Object name = profile.get("name");
+        if (id == null || name == null) return;
+        found.put(name.toString().toLowerCase(Locale.ROOT), UuidUtil.fromUndashed(id.toString()));
+    }
+}
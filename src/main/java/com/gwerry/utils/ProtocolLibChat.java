@@ -0,0 +1,68 @@
+/**
+ * @file ProtocolLibChat.java
+ * @author gwerry
+ * @brief The ProtocolLibChat class sends system chat packets through ProtocolLib.
+ * @version 1.0
+ * @date 2026/10/18
+ *
+ * Copyright 2024 gwerry
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gwerry.utils;
+
+import java.util.Collection;
+
+import org.bukkit.entity.Player;
+
+import com.comphenix.protocol.PacketType;
+import com.comphenix.protocol.ProtocolLibrary;
+import com.comphenix.protocol.ProtocolManager;
+import com.comphenix.protocol.events.PacketContainer;
+import com.comphenix.protocol.wrappers.WrappedChatComponent;
+
+/**
+ * @brief The ProtocolLibChat class sends system chat packets through ProtocolLib.
+ * Every ProtocolLib class is only referenced from here, so the plugin still loads when ProtocolLib is missing
+ * as long as this class is never touched. ChatBroadcaster makes sure of that.
+ *
+ * @author gwerry
+ * @since 1.1
+ */
+class ProtocolLibChat {
+    private final ProtocolManager manager;
+
+    ProtocolLibChat() {
+        this.manager = ProtocolLibrary.getProtocolManager();
+    }
+
+    /**
+     * @brief Builds the packets of a message once and sends the same packets to every player.
+     * Like Player.sendMessage, every line of the message is a packet of its own.
+     *
+     * @param message The message, with legacy color codes.
+     * @param players The players to send it to.
+     * @return The number of packets that were built.
+     */
+    int send(String message, Collection<? extends Player> players) {
+        WrappedChatComponent[] lines = WrappedChatComponent.fromChatMessage(message);
+        for (WrappedChatComponent line : lines) {
+            PacketContainer packet = manager.createPacket(PacketType.Play.Server.SYSTEM_CHAT);
+            packet.getChatComponents().write(0, line);
+            // Chat box, not the action bar
+            packet.getBooleans().write(0, false);
+            manager.broadcastServerPacket(packet, players);
+        }
+        return lines.length;
+    }
+}
@@ -0,0 +1,126 @@
+/**
+ * @file RateLimiter.java
+ * @author gwerry
+ * @brief The RateLimiter class limits how often each player may do something.
+ * @version 1.0
+ * @date 2026/10/18
+ *
+ * Copyright 2024 gwerry
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gwerry.utils;
+
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @brief The RateLimiter class limits how often each player may do something.
+ * Every player gets their own TokenBucket, so the state of a player is a single AtomicLong and checking it
+ * takes no lock. Buckets that stayed full for the idle time are dropped, which costs nothing but a fresh,
+ * full bucket the next time that player shows up. The sweep piggybacks on tryAcquire at most once per
+ * idle time, so there is no extra thread.
+ *
+ * @author gwerry
+ * @since 1.1
+ */
+public class RateLimiter {
+    private final String name;
+    private final double ratePerSecond;
+    private final int burst;
+    private final long idleNanos;
+    private final ConcurrentHashMap<UUID, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong lastSweep = new AtomicLong(System.nanoTime());
+
+    private final AtomicLong allowed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+
+    /**
+     * @brief Constructs a new RateLimiter.
+     *
+     * @param name The name the metrics are reported under.
+     * @param ratePerSecond How many events each player may cause per second on average.
+     * @param burst How many events each player may cause back to back.
+     * @param idleMillis How long a player's bucket has to be full before it is dropped.
+     */
+    public RateLimiter(String name, double ratePerSecond, int burst, long idleMillis) {
+        this.name = name;
+        this.ratePerSecond = ratePerSecond;
+        this.burst = burst;
+        this.idleNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, idleMillis));
+    }
+
+    /**
+     * @brief Takes a token from a player's bucket if one is available.
+     *
+     * @param player The UUID of the player.
+     * @return true if the player may go ahead, false if they have to be rejected.
+     */
+    public boolean tryAcquire(UUID player) {
+        sweepIfDue();
+
+        TokenBucket bucket = buckets.get(player);
+        if (bucket == null) bucket = buckets.computeIfAbsent(player, key -> new TokenBucket(ratePerSecond, burst));
+
+        if (bucket.tryAcquire()) {
+            allowed.incrementAndGet();
+            return true;
+        }
+        rejected.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * @brief Gets the number of players that currently have a bucket.
+     * @return The number of tracked players.
+     */
+    public int size() {
+        return buckets.size();
+    }
+
+    /**
+     * @brief Gets how many calls were rejected since startup.
+     * @return The number of rejected calls.
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    /**
+     * @brief Gets a one line summary of the limiter metrics.
+     * @return The limiter metrics.
+     */
+    public String getStats() {
+        long total = allowed.get() + rejected.get();
+        return name + ": tracked=" + size()
+                + " allowed=" + allowed.get()
+                + " rejected=" + rejected.get()
+                + String.format(Locale.ROOT, " rejectedRatio=%.3f", total == 0 ? 0 : (double) rejected.get() / total)
+                + " expired=" + expired.get();
+    }
+
+    private void sweepIfDue() {
+        long now = System.nanoTime();
+        long last = lastSweep.get();
+        if (now - last < idleNanos || !lastSweep.compareAndSet(last, now)) return;
+
+        // A bucket that is used again right as it is dropped is simply recreated full, the worst case is one extra burst
+        buckets.forEach((player, bucket) -> {
+            if (bucket.getIdleNanos() >= idleNanos && buckets.remove(player, bucket)) expired.incrementAndGet();
+        });
+    }
+}
@@ -0,0 +1,100 @@
+/**
+ * @file TokenBucket.java
+ * @author gwerry
+ * @brief The TokenBucket class limits how often something may happen.
+ * @version 1.0
+ * @date 2026/10/18
+ *
+ * Copyright 2024 gwerry
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gwerry.utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @brief A lock-free token bucket, implemented as the generic cell rate algorithm (GCRA).
+ * Instead of counting tokens it keeps a single timestamp, the theoretical arrival time of the next event.
+ * Every event pushes it forward by one emission interval, and an event is allowed as long as that time
+ * is no further ahead of now than the burst allows. The whole state is one AtomicLong updated with CAS.
+ *
+ * @author gwerry
+ * @since 1.1
+ */
+public class TokenBucket {
+    private final long emissionNanos;
+    private final long toleranceNanos;
+    private final AtomicLong theoreticalArrival;
+
+    /**
+     * @brief Constructs a new TokenBucket that starts full.
+     *
+     * @param ratePerSecond How many events are allowed per second on average.
+     * @param burst How many events may happen back to back.
+     */
+    public TokenBucket(double ratePerSecond, int burst) {
+        this.emissionNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / Math.max(ratePerSecond, 1e-9)));
+        this.toleranceNanos = emissionNanos * (Math.max(1, burst) - 1);
+        this.theoreticalArrival = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * @brief Takes a token if one is available right now.
+     * @return true if the event is allowed, false if it has to be rejected.
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            long now = System.nanoTime();
+            long tat = theoreticalArrival.get();
+            long start = tat - now > 0 ? tat : now;
+            if (start - now > toleranceNanos) return false;
+            if (theoreticalArrival.compareAndSet(tat, start + emissionNanos)) return true;
+        }
+    }
+
+    /**
+     * @brief Reserves the next token, even if it is not available yet.
+     * @return How long the caller has to wait before using the token, in nanoseconds. 0 if it can go right away.
+     */
+    public long reserve() {
+        while (true) {
+            long now = System.nanoTime();
+            long tat = theoreticalArrival.get();
+            long start = tat - now > 0 ? tat : now;
+            if (theoreticalArrival.compareAndSet(tat, start + emissionNanos)) {
+                return Math.max(0, start - toleranceNanos - now);
+            }
+        }
+    }
+
+    /**
+     * @brief Gets how long the bucket has been full, which is how long it has not been needed.
+     * @return The idle time in nanoseconds, 0 if the bucket is not full.
+     */
+    public long getIdleNanos() {
+        return Math.max(0, System.nanoTime() - theoreticalArrival.get());
+    }
+
+    /**
+     * @brief Waits until a token is available and takes it.
+     * @return How long the caller waited, in nanoseconds.
+     * @throws InterruptedException If the thread was interrupted while waiting. The token is used up anyway.
+     */
+    public long acquire() throws InterruptedException {
+        long wait = reserve();
+        if (wait > 0) TimeUnit.NANOSECONDS.sleep(wait);
+        return wait;
+    }
+}
@@ -0,0 +1,97 @@
+/**
+ * @file UserCacheFile.java
+ * @author gwerry
+ * @brief The UserCacheFile class reads player names from the server's usercache.json.
+ * @version 1.0
+ * @date 2026/10/18
+ *
+ * Copyright 2024 gwerry
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gwerry.utils;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.UUID;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.JSONValue;
+
+/**
+ * @brief The UserCacheFile class reads player names from the server's usercache.json.
+ * The server writes every player that joined into that file, so it knows the names of friends that have not
+ * joined since the plugin started remembering names itself. This is what Bukkit.getOfflinePlayer(uuid).getName()
+ * read from, without going through Bukkit. The file is parsed again only when it changed.
+ *
+ * Blocks on the file system, do not call it from the server thread.
+ *
+ * @author gwerry
+ * @since 1.1
+ */
+public class UserCacheFile {
+    private final File file;
+    private HashMap<UUID, String> names = new HashMap<>();
+    private long loadedModified = -1;
+
+    /**
+     * @brief Constructs a new UserCacheFile.
+     *
+     * @param file The usercache.json of the server, which does not have to exist.
+     */
+    public UserCacheFile(File file) {
+        this.file = file;
+    }
+
+    /**
+     * @brief Looks up the names of several players.
+     *
+     * @param players The UUIDs of the players.
+     * @return The names that are in the file, players without one are left out.
+     */
+    public synchronized HashMap<UUID, String> lookup(Collection<UUID> players) {
+        reloadIfChanged();
+        HashMap<UUID, String> found = new HashMap<>();
+        for (UUID player : players) {
+            String name = names.get(player);
+            if (name != null) found.put(player, name);
+        }
+        return found;
+    }
+
+    private void reloadIfChanged() {
+        long modified = file.lastModified();
+        if (modified == loadedModified) return;
+        loadedModified = modified;
+
+        HashMap<UUID, String> loaded = new HashMap<>();
+        if (modified != 0) {
+            try {
+                String json = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+                for (Object entry : (JSONArray) JSONValue.parseWithException(json)) {
+                    JSONObject profile = (JSONObject) entry;
+                    Object uuid = profile.get("uuid");
+                    Object name = profile.get("name");
+                    if (uuid != null && name != null) loaded.put(UUID.fromString(uuid.toString()), name.toString());
+                }
+            } catch (Exception e) {
+                // A broken or half written file is read again once it changes
+            }
+        }
+        names = loaded;
+    }
+}
@@ -0,0 +1,203 @@
+/**
+ * @file UuidCache.java
+ * @author gwerry
+ * @brief The UuidCache class remembers which UUID belongs to which player name.
+ * @version 1.0
+ * @date 2026/10/18
+ *
+ * Copyright 2024 gwerry
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gwerry.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @brief A size bounded cache from player names to UUIDs with least recently used eviction.
+ * Names are case-insensitive, like Minecraft names. A name that does not exist is cached as well,
+ * with its own, usually shorter, time to live, so a repeated typo does not hit the network every time.
+ * Loads are asynchronous and run outside the cache lock, so a slow lookup never blocks lookups of other names.
+ *
+ * @author gwerry
+ * @since 1.1
+ */
+public class UuidCache {
+
+    /**
+     * @brief Looks up the UUID of a name that is not cached.
+     */
+    @FunctionalInterface
+    public interface Loader {
+        /**
+         * @param name The name to look up.
+         * @return A future of the UUID, completed with null if no player has that name,
+         *         or exceptionally if the lookup failed. Failures are not cached.
+         */
+        CompletableFuture<UUID> load(String name);
+    }
+
+    private static class Entry {
+        final UUID uuid;
+        final long expiresAt;
+
+        Entry(UUID uuid, long expiresAt) {
+            this.uuid = uuid;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final int maxSize;
+    private final long hitTtlNanos;
+    private final long missTtlNanos;
+    private final LinkedHashMap<String, Entry> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong negativeHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong loadFailures = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong loadNanos = new AtomicLong();
+    private final AtomicLong maxLoadNanos = new AtomicLong();
+
+    /**
+     * @brief Constructs a new UuidCache.
+     *
+     * @param maxSize The maximum number of cached names.
+     * @param hitTtlMillis How long a found UUID is kept.
+     * @param missTtlMillis How long a name that does not exist is remembered as such.
+     */
+    public UuidCache(int maxSize, long hitTtlMillis, long missTtlMillis) {
+        this.maxSize = Math.max(1, maxSize);
+        this.hitTtlNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, hitTtlMillis));
+        this.missTtlNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, missTtlMillis));
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() <= UuidCache.this.maxSize) return false;
+                evictions.incrementAndGet();
+                return true;
+            }
+        };
+    }
+
+    /**
+     * @brief Gets the UUID of a name, loading and caching it if needed.
+     *
+     * @param name The name to look up.
+     * @param loader Looks the name up if it is not cached.
+     * @return A future of the UUID, completed with null if no player has that name or the lookup failed.
+     */
+    public CompletableFuture<UUID> get(String name, Loader loader) {
+        String key = name.toLowerCase(Locale.ROOT);
+        long now = System.nanoTime();
+
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && now - entry.expiresAt < 0) {
+                if (entry.uuid != null) hits.incrementAndGet();
+                else negativeHits.incrementAndGet();
+                return CompletableFuture.completedFuture(entry.uuid);
+            }
+            if (entry != null) entries.remove(key);
+        }
+
+        misses.incrementAndGet();
+        CompletableFuture<UUID> load;
+        try {
+            load = loader.load(name);
+        } catch (RuntimeException e) {
+            load = CompletableFuture.failedFuture(e);
+        }
+
+        return load.handle((uuid, failure) -> {
+            long took = System.nanoTime() - now;
+            loadNanos.addAndGet(took);
+            maxLoadNanos.accumulateAndGet(took, Math::max);
+
+            if (failure != null) {
+                loadFailures.incrementAndGet();
+                return null;
+            }
+            store(key, uuid, uuid != null ? hitTtlNanos : missTtlNanos);
+            return uuid;
+        });
+    }
+
+    /**
+     * @brief Caches a name that is known to belong to a UUID, for example of a player that just joined.
+     *
+     * @param name The name of the player.
+     * @param uuid The UUID of the player.
+     */
+    public void put(String name, UUID uuid) {
+        store(name.toLowerCase(Locale.ROOT), uuid, hitTtlNanos);
+    }
+
+    /**
+     * @brief Gets the number of cached names.
+     * @return The number of cached names.
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * @brief Gets the share of lookups answered from the cache, found and not found alike.
+     * @return The hit ratio between 0 and 1.
+     */
+    public double getHitRatio() {
+        long cached = hits.get() + negativeHits.get();
+        long total = cached + misses.get();
+        return total == 0 ? 0 : (double) cached / total;
+    }
+
+    /**
+     * @brief Gets the average time a load took.
+     * @return The average load latency in milliseconds.
+     */
+    public double getAverageLoadMillis() {
+        long loads = misses.get();
+        return loads == 0 ? 0 : loadNanos.get() / 1_000_000.0 / loads;
+    }
+
+    /**
+     * @brief Gets a one line summary of the cache metrics.
+     * @return The cache metrics.
+     */
+    public String getStats() {
+        return "size=" + size()
+                + " hits=" + hits.get()
+                + " negativeHits=" + negativeHits.get()
+                + " misses=" + misses.get()
+                + " loadFailures=" + loadFailures.get()
+                + " evictions=" + evictions.get()
+                + String.format(Locale.ROOT, " hitRatio=%.3f avgLoadMs=%.1f", getHitRatio(), getAverageLoadMillis())
+                + " maxLoadMs=" + TimeUnit.NANOSECONDS.toMillis(maxLoadNanos.get());
+    }
+
+    private void store(String key, UUID uuid, long ttlNanos) {
+        if (ttlNanos <= 0) return;
+        synchronized (entries) {
+            entries.put(key, new Entry(uuid, System.nanoTime() + ttlNanos));
+        }
+    }
+}
@@ -21,39 +21,137 @@
  */
 package com.gwerry.utils;
 
-import java.io.InputStream;
-import java.net.URI;
-import java.nio.charset.StandardCharsets;
 import java.util.UUID;
-import org.apache.commons.io.IOUtils;
-import org.json.simple.JSONObject;
-import org.json.simple.JSONValue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.gwerry.PlayerManager;
+import com.gwerry.SimpleFriends;
+import com.gwerry.io.FriendStore;
 
 
 /**
  * @brief A utility class that provides methods to get UUIDs from names.
+ * Names are resolved in tiers, cheapest first: players that are online, then the UuidCache,
+ * then the last known names kept by the friend store, and only then the profile API through the ProfileLookupService.
  * @author gwerry
  * @version 1.0
  */
 public class UuidUtil {
+    private static UuidCache cache = new UuidCache(1000, 3600000, 60000);
+    private static ProfileLookupService lookupService;
+
+    private static final AtomicLong onlineHits = new AtomicLong();
+    private static final AtomicLong storeHits = new AtomicLong();
+    private static final AtomicLong remoteLookups = new AtomicLong();
+
+    /**
+     * @brief Sets the service that looks names up with the profile API.
+     * @param service the lookup service, or null to never ask the API
+     */
+    public static void setLookupService(ProfileLookupService service) {
+        lookupService = service;
+    }
+
+    /**
+     * @brief Replaces the name cache with one using the given limits.
+     * @param maxSize the maximum number of cached names
+     * @param hitTtlMillis how long a found UUID is kept
+     * @param missTtlMillis how long a name that does not exist is remembered as such
+     */
+    public static void configureCache(int maxSize, long hitTtlMillis, long missTtlMillis) {
+        cache = new UuidCache(maxSize, hitTtlMillis, missTtlMillis);
+    }
+
+    /**
+     * @brief Gets the name cache.
+     * @return the name cache
+     */
+    public static UuidCache getCache() {
+        return cache;
+    }
+
+    /**
+     * @brief Caches the UUID of a player whose name is known, so looking them up never needs the API.
+     * @param name the name of the player
+     * @param uuid the UUID of the player
+     */
+    public static void remember(String name, UUID uuid) {
+        cache.put(name, uuid);
+    }
 
     /**
      * @brief Gets the UUID of a Minecraft player from their name.
+     * This blocks until the name is resolved, so it must not be called on the server thread.
      * @param name the name of the Minecraft player
      * @return the UUID of the player, or null if not found
      */
     public static UUID getUuid(String name) {
-        String url = "https://api.mojang.com/users/profiles/minecraft/" + name;
-        try {
-            InputStream inputStream = new URI(url).toURL().openStream();
-            String UUIDJson = IOUtils.toString(inputStream, StandardCharsets.UTF_8);
-            if (UUIDJson.isEmpty()) return null;
-            JSONObject UUIDObject = (JSONObject) JSONValue.parseWithException(UUIDJson);
-            return UUID.fromString(insertDashUUID(UUIDObject.get("id").toString()));
-        } catch (Exception e) {
-            e.printStackTrace();
+        return getUuidAsync(name, Runnable::run).join();
+    }
+
+    /**
+     * @brief Gets the UUID of a Minecraft player from their name without blocking on the API.
+     * @param name the name of the Minecraft player
+     * @param executor runs the friend store lookup
+     * @return a future of the UUID of the player, completed with null if not found
+     */
+    public static CompletableFuture<UUID> getUuidAsync(String name, Executor executor) {
+        UUID online = PlayerManager.getOnlineUuid(name);
+        if (online != null) {
+            onlineHits.incrementAndGet();
+            return CompletableFuture.completedFuture(online);
         }
-        return null;
+        // Typed by a player, no one can have it, so neither the store nor the API are asked
+        if (!ProfileLookupService.isValidName(name)) return CompletableFuture.completedFuture(null);
+        return cache.get(name, key -> CompletableFuture
+                .supplyAsync(() -> findStored(key), executor)
+                .thenCompose(stored -> stored != null ? CompletableFuture.completedFuture(stored) : fetchUuid(key)));
+    }
+
+    /**
+     * @brief Gets a one line summary of where names were resolved.
+     * @return the resolver metrics
+     */
+    public static String getStats() {
+        return "online=" + onlineHits.get()
+                + " stored=" + storeHits.get()
+                + " remote=" + remoteLookups.get()
+                + " cache: " + cache.getStats()
+                + (lookupService != null ? " api: " + lookupService.getStats() : "");
+    }
+
+    /**
+     * @brief Gets the UUID of a name from the last known names kept by the friend store.
+     * @param name the name of the Minecraft player
+     * @return the UUID of the player, or null if the store does not know the name
+     */
+    private static UUID findStored(String name) {
+        FriendStore store = SimpleFriends.getStore();
+        UUID stored = store != null ? store.findUuidByName(name) : null;
+        if (stored != null) storeHits.incrementAndGet();
+        return stored;
+    }
+
+    /**
+     * @brief Asks the profile API for the UUID of a name.
+     * @param name the name of the Minecraft player
+     * @return a future of the UUID of the player, completed with null if no player has that name
+     */
+    private static CompletableFuture<UUID> fetchUuid(String name) {
+        if (lookupService == null) return CompletableFuture.completedFuture(null);
+        remoteLookups.incrementAndGet();
+        return lookupService.lookup(name);
+    }
+
+    /**
+     * @brief Turns a UUID string without dashes, as the profile API sends them, into a UUID.
+     * @param uuid the UUID string without dashes
+     * @return the UUID
+     */
+    public static UUID fromUndashed(String uuid) {
+        return UUID.fromString(insertDashUUID(uuid));
     }
 
     /**
@@ -0,0 +1,124 @@
+/**
+ * @file FriendRequestIndexBenchmark.java
+ * @author gwerry
+ * @brief Compares FriendRequestIndex with the synchronized list of requests it replaced.
+ * @version 1.0
+ * @date 2026/10/18
+ *
+ * Copyright 2024 gwerry
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gwerry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * @brief Compares FriendRequestIndex with the synchronized list of requests it replaced.
+ * Both hold 10,000 pending requests between 2,000 players while 8 threads look up incoming requests, or send
+ * a request and take it back again. The list baseline does what PlayerManager did before, a scan under the
+ * list lock for every lookup, the duplicate checks and the removal.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class FriendRequestIndexBenchmark {
+    private static final int PLAYERS = 2000;
+    private static final int REQUESTS = 10000;
+
+    private final UUID[] players = new UUID[PLAYERS];
+    private final FriendRequestIndex index = new FriendRequestIndex();
+    private final List<FriendRequest> list = Collections.synchronizedList(new ArrayList<>());
+
+    @Setup
+    public void fill() {
+        for (int i = 0; i < PLAYERS; i++) players[i] = UUID.randomUUID();
+        int added = 0;
+        while (added < REQUESTS) {
+            FriendRequest request = new FriendRequest(randomPlayer(), randomPlayer(), 0);
+            if (request.sender.equals(request.receiver) || index.addIfAbsent(request) != null) continue;
+            list.add(request);
+            added++;
+        }
+    }
+
+    @Benchmark
+    public ArrayList<UUID> indexIncoming() {
+        return index.getIncoming(randomPlayer());
+    }
+
+    @Benchmark
+    public ArrayList<UUID> listIncoming() {
+        UUID receiver = randomPlayer();
+        ArrayList<UUID> senders = new ArrayList<>();
+        synchronized (list) {
+            for (FriendRequest request : list) {
+                if (request.receiver.equals(receiver)) senders.add(request.sender);
+            }
+        }
+        return senders;
+    }
+
+    @Benchmark
+    public boolean indexSendAndCancel() {
+        // A sender no other request uses, so every thread adds a request of its own
+        FriendRequest request = new FriendRequest(UUID.randomUUID(), randomPlayer(), 0);
+        if (index.addIfAbsent(request) != null) return false;
+        return index.remove(request.sender, request.receiver) != null;
+    }
+
+    @Benchmark
+    public boolean listSendAndCancel() {
+        FriendRequest request = new FriendRequest(UUID.randomUUID(), randomPlayer(), 0);
+        synchronized (list) {
+            for (FriendRequest other : list) {
+                if (other.sender.equals(request.sender) && other.receiver.equals(request.receiver)) return false;
+                if (other.sender.equals(request.receiver) && other.receiver.equals(request.sender)) return false;
+            }
+            list.add(request);
+        }
+        synchronized (list) {
+            for (FriendRequest other : list) {
+                if (other.sender.equals(request.sender) && other.receiver.equals(request.receiver)) {
+                    return list.remove(other);
+                }
+            }
+        }
+        return false;
+    }
+
+    private UUID randomPlayer() {
+        return players[ThreadLocalRandom.current().nextInt(PLAYERS)];
+    }
+}
@@ -0,0 +1,164 @@
+/**
+ * @file FriendRequestIndexTest.java
+ * @author gwerry
+ * @brief Tests for FriendRequestIndex.
+ * @version 1.0
+ * @date 2026/10/18
+ *
+ * Copyright 2024 gwerry
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gwerry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @brief Tests for FriendRequestIndex.
+ */
+public class FriendRequestIndexTest {
+    private final FriendRequestIndex index = new FriendRequestIndex();
+    private final UUID alice = UUID.randomUUID();
+    private final UUID bob = UUID.randomUUID();
+    private final UUID carol = UUID.randomUUID();
+
+    @Test
+    void indexesBySenderAndReceiver() {
+        FriendRequest toBob = new FriendRequest(alice, bob, 0);
+        FriendRequest toCarol = new FriendRequest(alice, carol, 0);
+        FriendRequest carolToBob = new FriendRequest(carol, bob, 0);
+
+        assertNull(index.addIfAbsent(toBob));
+        assertNull(index.addIfAbsent(toCarol));
+        assertNull(index.addIfAbsent(carolToBob));
+
+        assertEquals(3, index.size());
+        assertSame(toBob, index.get(alice, bob));
+        assertNull(index.get(bob, alice));
+        assertEquals(Set.of(bob, carol), new HashSet<>(index.getOutgoing(alice)));
+        assertEquals(Set.of(alice, carol), new HashSet<>(index.getIncoming(bob)));
+        assertTrue(index.getIncoming(alice).isEmpty());
+    }
+
+    @Test
+    void rejectsDuplicatesInBothDirections() {
+        FriendRequest first = new FriendRequest(alice, bob, 0);
+        assertNull(index.addIfAbsent(first));
+
+        assertSame(first, index.addIfAbsent(new FriendRequest(alice, bob, 1)));
+        assertSame(first, index.addIfAbsent(new FriendRequest(bob, alice, 1)));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void removesFromBothIndexes() {
+        index.addIfAbsent(new FriendRequest(alice, bob, 0));
+
+        assertTrue(index.remove(alice, bob) != null);
+        assertNull(index.remove(alice, bob));
+        assertEquals(0, index.size());
+        assertTrue(index.getOutgoing(alice).isEmpty());
+        assertTrue(index.getIncoming(bob).isEmpty());
+        assertNull(index.addIfAbsent(new FriendRequest(bob, alice, 0)), "the pair is free again");
+    }
+
+    @Test
+    void removingAnOldRequestKeepsTheNewerOne() {
+        FriendRequest old = new FriendRequest(alice, bob, 0);
+        index.addIfAbsent(old);
+        index.remove(old);
+        FriendRequest newer = new FriendRequest(alice, bob, 1);
+        index.addIfAbsent(newer);
+
+        assertFalse(index.remove(old));
+        assertSame(newer, index.get(alice, bob));
+        assertEquals(List.of(alice), index.getIncoming(bob));
+    }
+
+    @Test
+    void clearRemovesEverything() {
+        index.addIfAbsent(new FriendRequest(alice, bob, 0));
+        index.addIfAbsent(new FriendRequest(carol, alice, 0));
+
+        index.clear();
+
+        assertEquals(0, index.size());
+        assertTrue(index.getIncoming(bob).isEmpty());
+        assertTrue(index.getOutgoing(carol).isEmpty());
+    }
+
+    @Test
+    void onlyOneOfTwoCrossedRequestsIsAdded() throws Exception {
+        for (int round = 0; round < 500; round++) {
+            FriendRequestIndex crossed = new FriendRequestIndex();
+            UUID first = UUID.randomUUID();
+            UUID second = UUID.randomUUID();
+            CyclicBarrier start = new CyclicBarrier(2);
+            CountDownLatch done = new CountDownLatch(2);
+            AtomicInteger added = new AtomicInteger();
+
+            for (FriendRequest request : List.of(new FriendRequest(first, second, 0), new FriendRequest(second, first, 0))) {
+                new Thread(() -> {
+                    try {
+                        start.await();
+                        if (crossed.addIfAbsent(request) == null) added.incrementAndGet();
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    } finally {
+                        done.countDown();
+                    }
+                }).start();
+            }
+
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            assertEquals(1, added.get(), "requests added in round " + round);
+            assertEquals(1, crossed.size());
+        }
+    }
+
+    @Test
+    void concurrentAddAndRemoveLeaveNoOrphans() throws Exception {
+        int threads = 4;
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    FriendRequest request = new FriendRequest(alice, bob, i);
+                    index.addIfAbsent(request);
+                    index.remove(alice, bob);
+                }
+                done.countDown();
+            }).start();
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(0, index.size());
+        assertTrue(index.getIncoming(bob).isEmpty());
+        assertTrue(index.getOutgoing(alice).isEmpty());
+    }
+}
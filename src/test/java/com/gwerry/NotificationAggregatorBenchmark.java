@@ -0,0 +1,196 @@
+/**
+ * @file NotificationAggregatorBenchmark.java
+ * @author gwerry
+ * @brief Measures a window of friend joins through NotificationAggregator and how many texts it builds for them.
+ * @version 1.0
+ * @date 2026/10/18
+ *
+ * Copyright 2024 gwerry
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gwerry;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.bukkit.scheduler.BukkitTask;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.gwerry.utils.MessageTemplate;
+
+/**
+ * @brief Measures a window of friend joins through NotificationAggregator and how many texts it builds for them.
+ * 200 players are online and every player that joins is watched by 20 of them. The chatLines counter is how many
+ * lines the players got, the texts counter how many distinct texts ChatBroadcaster was handed, which is the number
+ * of chat packets ProtocolLib builds. Before the recipients were grouped by text, both were the same.
+ * Without ProtocolLib the broadcaster falls back to Player.sendMessage, so the packet sends themselves are not part
+ * of the measurement. The server is a proxy whose scheduler keeps the flush task, which is run as the window ends.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NotificationAggregatorBenchmark {
+    private static final int ONLINE = 200;
+    private static final int WATCHERS = 20;
+
+    // The flush the aggregator scheduled, run when the window ends
+    private static Runnable scheduled;
+
+    /**
+     * @brief The online players and the players that join in every window.
+     */
+    @State(Scope.Thread)
+    public static class Window {
+        @Param({ "1", "50" })
+        public int joins;
+
+        final ArrayList<UUID> joining = new ArrayList<>();
+        final ArrayList<ArrayList<UUID>> watchers = new ArrayList<>();
+        final Set<String> texts = Collections.newSetFromMap(new IdentityHashMap<>());
+        long chatLines;
+
+        @Setup
+        public void join() {
+            if (Bukkit.getServer() == null) Bukkit.setServer(server());
+            NotificationAggregator.init(proxy(Plugin.class, (method, args) -> null), 2);
+            Data.FRIEND_JOIN = MessageTemplate.compile("§aYour friend §b%friend_name% §ajoined.");
+            Data.FRIEND_JOIN_MULTIPLE = MessageTemplate.compile("§b%count% §afriends joined: §b%friend_names%");
+
+            Random random = new Random(25);
+            ArrayList<UUID> online = new ArrayList<>();
+            for (int i = 0; i < ONLINE; i++) {
+                UUID uuid = new UUID(random.nextLong(), random.nextLong());
+                online.add(uuid);
+                PlayerManager.getPlayers().put(uuid, new CustomPlayer(player(uuid), null));
+            }
+            for (int i = 0; i < joins; i++) {
+                joining.add(new UUID(random.nextLong(), random.nextLong()));
+                Collections.shuffle(online, random);
+                watchers.add(new ArrayList<>(online.subList(0, WATCHERS)));
+            }
+        }
+
+        @TearDown
+        public void quit() {
+            NotificationAggregator.clear();
+            PlayerManager.getPlayers().clear();
+        }
+
+        private Player player(UUID uuid) {
+            return proxy(Player.class, (method, args) -> {
+                if (method.getName().equals("getUniqueId")) return uuid;
+                if (method.getName().equals("sendMessage")) {
+                    chatLines++;
+                    texts.add((String) args[0]);
+                    return null;
+                }
+                throw new UnsupportedOperationException(method.getName());
+            });
+        }
+    }
+
+    /**
+     * @brief What the players got in all windows of an iteration. Divide by windows for the numbers of one window.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Sent {
+        public long windows;
+        public long chatLines;
+        public long texts;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            windows = 0;
+            chatLines = 0;
+            texts = 0;
+        }
+    }
+
+    @Benchmark
+    public void joinWindow(Window window, Sent sent) {
+        window.chatLines = 0;
+        window.texts.clear();
+        for (int i = 0; i < window.joins; i++) {
+            NotificationAggregator.joined(window.joining.get(i), "Player" + i, window.watchers.get(i));
+        }
+        Runnable flush = scheduled;
+        scheduled = null;
+        flush.run();
+
+        sent.windows++;
+        sent.chatLines += window.chatLines;
+        sent.texts += window.texts.size();
+    }
+
+    private static Server server() {
+        BukkitTask task = proxy(BukkitTask.class, (method, args) -> null);
+        BukkitScheduler scheduler = proxy(BukkitScheduler.class, (method, args) -> {
+            if (!method.getName().equals("runTaskLater")) throw new UnsupportedOperationException(method.getName());
+            scheduled = (Runnable) args[1];
+            return task;
+        });
+        Logger logger = Logger.getLogger("NotificationAggregatorBenchmark");
+        return proxy(Server.class, (method, args) -> {
+            if (method.getName().equals("getScheduler")) return scheduler;
+            if (method.getName().equals("getLogger")) return logger;
+            if (method.getReturnType() == String.class) return "benchmark";
+            throw new UnsupportedOperationException(method.getName());
+        });
+    }
+
+    /**
+     * @brief Answers the calls to an interface through the handler, apart from the methods of Object.
+     */
+    private interface Handler {
+        Object invoke(java.lang.reflect.Method method, Object[] args);
+    }
+
+    private static <T> T proxy(Class<T> type, Handler handler) {
+        Object instance = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, (proxy, method, args) -> {
+            if (method.getName().equals("hashCode") && args == null) return System.identityHashCode(proxy);
+            if (method.getName().equals("equals") && args != null && args.length == 1) return proxy == args[0];
+            if (method.getName().equals("toString") && args == null) return type.getSimpleName();
+            return handler.invoke(method, args);
+        });
+        return type.cast(instance);
+    }
+}
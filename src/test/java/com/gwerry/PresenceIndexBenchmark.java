@@ -0,0 +1,140 @@
+/**
+ * @file PresenceIndexBenchmark.java
+ * @author gwerry
+ * @brief Compares finding the players to tell about a join through PresenceIndex with walking every stored friend.
+ * @version 1.0
+ * @date 2026/10/18
+ *
+ * Copyright 2024 gwerry
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gwerry;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.bukkit.entity.Player;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * @brief Compares finding the players to tell about a join through PresenceIndex with walking every stored friend.
+ * 200 players are online, each with 10 online friends and the rest of their stored friends offline. The walk is what
+ * the join and quit announcements did before, a lookup in the online players for every stored friend. joinAndQuit
+ * shows what keeping the index up to date costs in exchange.
+ * The players are proxies that only answer getUniqueId, which is all PresenceIndex asks of them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PresenceIndexBenchmark {
+    private static final int ONLINE = 200;
+    private static final int ONLINE_FRIENDS = 10;
+
+    @Param({ "100", "1000" })
+    public int storedFriends;
+
+    private final ArrayList<CustomPlayer> online = new ArrayList<>();
+    private int next;
+
+    @Setup
+    public void join() {
+        Random random = new Random(21);
+        ArrayList<UUID> uuids = new ArrayList<>();
+        ArrayList<HashSet<UUID>> friends = new ArrayList<>();
+        for (int i = 0; i < ONLINE; i++) {
+            uuids.add(new UUID(random.nextLong(), random.nextLong()));
+            friends.add(new HashSet<>());
+        }
+        // Friendships are always both edges
+        for (int i = 0; i < ONLINE; i++) {
+            while (friends.get(i).size() < ONLINE_FRIENDS) {
+                int other = random.nextInt(ONLINE);
+                if (other == i) continue;
+                friends.get(i).add(uuids.get(other));
+                friends.get(other).add(uuids.get(i));
+            }
+        }
+        for (int i = 0; i < ONLINE; i++) {
+            while (friends.get(i).size() < storedFriends) friends.get(i).add(new UUID(random.nextLong(), random.nextLong()));
+            CustomPlayer player = new CustomPlayer(player(uuids.get(i)), friends.get(i));
+            online.add(player);
+            PlayerManager.getPlayers().put(uuids.get(i), player);
+            PresenceIndex.join(player);
+        }
+    }
+
+    @TearDown
+    public void quit() {
+        PlayerManager.getPlayers().clear();
+        PresenceIndex.clear();
+    }
+
+    @Benchmark
+    public int indexWatchers() {
+        int told = 0;
+        for (UUID watcher : PresenceIndex.getWatchers(nextUuid())) {
+            if (PlayerManager.getPlayer(watcher) != null) told++;
+        }
+        return told;
+    }
+
+    @Benchmark
+    public int walkStoredFriends() {
+        CustomPlayer player = online.get(next++ % ONLINE);
+        int told = 0;
+        for (UUID friend : player.getFriends()) {
+            if (PlayerManager.getPlayer(friend) != null) told++;
+        }
+        return told;
+    }
+
+    @Benchmark
+    public void joinAndQuit() {
+        CustomPlayer player = online.get(next++ % ONLINE);
+        UUID uuid = player.getPlayer().getUniqueId();
+        PresenceIndex.quit(uuid);
+        PresenceIndex.join(player);
+    }
+
+    private UUID nextUuid() {
+        return online.get(next++ % ONLINE).getPlayer().getUniqueId();
+    }
+
+    private static Player player(UUID uuid) {
+        return (Player) Proxy.newProxyInstance(Player.class.getClassLoader(), new Class<?>[] { Player.class }, (proxy, method, args) -> {
+            if (method.getName().equals("getUniqueId")) return uuid;
+            if (method.getName().equals("hashCode")) return uuid.hashCode();
+            if (method.getName().equals("equals")) return proxy == args[0];
+            throw new UnsupportedOperationException(method.getName());
+        });
+    }
+}
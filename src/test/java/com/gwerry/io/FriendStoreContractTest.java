@@ -0,0 +1,258 @@
+/**
+ * @file FriendStoreContractTest.java
+ * @author gwerry
+ * @brief The contract every FriendStore backend has to keep.
+ * @version 1.0
+ * @date 2026/10/18
+ *
+ * Copyright 2024 gwerry
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gwerry.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @brief The contract every FriendStore backend has to keep.
+ * Each backend has a subclass that says how to open it. Backends that persist also say how to reopen
+ * the same data, so every test also checks that what was written survives a restart.
+ */
+public abstract class FriendStoreContractTest {
+    protected static final long NOW = 1_000_000L;
+
+    protected FriendStore store;
+
+    private final UUID alice = UUID.randomUUID();
+    private final UUID bob = UUID.randomUUID();
+    private final UUID carol = UUID.randomUUID();
+    private final UUID dave = UUID.randomUUID();
+
+    /**
+     * @brief Opens the backend on empty storage.
+     * @return The backend.
+     * @throws Exception If it could not be opened.
+     */
+    protected abstract FriendStore open() throws Exception;
+
+    /**
+     * @brief Closes the backend and opens it again on the same storage.
+     * Backends that only live in memory keep the open instance.
+     *
+     * @param current The open backend.
+     * @return The backend to continue with.
+     * @throws Exception If it could not be opened again.
+     */
+    protected FriendStore reopen(FriendStore current) throws Exception {
+        return current;
+    }
+
+    @BeforeEach
+    void openStore() throws Exception {
+        store = open();
+    }
+
+    @AfterEach
+    void closeStore() {
+        store.close();
+    }
+
+    @Test
+    void unknownPlayerHasNoFriends() {
+        assertEquals(new ArrayList<UUID>(), store.loadFriends(alice));
+        assertEquals(new ArrayList<UUID>(), store.getFriendedBy(alice));
+    }
+
+    @Test
+    void addedEdgesAreLoadedAndReverseLookedUp() throws Exception {
+        store.addFriend(alice, bob);
+        store.addFriend(alice, carol);
+        store.addFriend(dave, bob);
+        store = reopen(store);
+
+        assertSameElements(Arrays.asList(bob, carol), store.loadFriends(alice));
+        assertSameElements(Arrays.asList(alice, dave), store.getFriendedBy(bob));
+        assertEquals(new ArrayList<UUID>(), store.loadFriends(bob), "edges are directed");
+    }
+
+    @Test
+    void addingAnEdgeTwiceKeepsOneEdge() throws Exception {
+        store.addFriend(alice, bob);
+        store.addFriend(alice, bob);
+        store = reopen(store);
+
+        assertEquals(Arrays.asList(bob), store.loadFriends(alice));
+        assertEquals(Arrays.asList(alice), store.getFriendedBy(bob));
+    }
+
+    @Test
+    void removedEdgesAreGone() throws Exception {
+        store.addFriend(alice, bob);
+        store.addFriend(alice, carol);
+        store.removeFriend(alice, bob);
+        store.removeFriend(alice, dave);
+        store = reopen(store);
+
+        assertEquals(Arrays.asList(carol), store.loadFriends(alice));
+        assertEquals(new ArrayList<UUID>(), store.getFriendedBy(bob));
+    }
+
+    @Test
+    void friendshipsWriteBothEdges() throws Exception {
+        store.addFriendship(alice, bob);
+        store.addFriendship(alice, carol);
+        store.removeFriendship(carol, alice);
+        store = reopen(store);
+
+        assertEquals(Arrays.asList(bob), store.loadFriends(alice));
+        assertEquals(Arrays.asList(alice), store.loadFriends(bob));
+        assertEquals(new ArrayList<UUID>(), store.loadFriends(carol));
+    }
+
+    @Test
+    void saveFriendsReplacesTheWholeList() throws Exception {
+        store.addFriend(alice, bob);
+        store.addFriend(alice, carol);
+        store.saveFriends(alice, Arrays.asList(carol, dave));
+        store = reopen(store);
+
+        assertSameElements(Arrays.asList(carol, dave), store.loadFriends(alice));
+        assertEquals(new ArrayList<UUID>(), store.getFriendedBy(bob));
+        assertEquals(Arrays.asList(alice), store.getFriendedBy(dave));
+    }
+
+    @Test
+    void writeBatchAppliesSnapshotsBeforeEdges() throws Exception {
+        store.addFriend(alice, bob);
+
+        PendingWrites aliceWrites = new PendingWrites(alice, 0);
+        aliceWrites.setSnapshot(new ArrayList<>(Arrays.asList(carol)));
+        aliceWrites.putEdge(dave, true);
+        PendingWrites bobWrites = new PendingWrites(bob, 0);
+        bobWrites.putEdge(alice, true);
+        bobWrites.putEdge(carol, false);
+        store.writeBatch(Arrays.asList(aliceWrites, bobWrites));
+        store = reopen(store);
+
+        assertSameElements(Arrays.asList(carol, dave), store.loadFriends(alice));
+        assertEquals(Arrays.asList(alice), store.loadFriends(bob));
+    }
+
+    @Test
+    void namesAreFoundIgnoringCase() throws Exception {
+        store.saveName(alice, "Alice_1");
+        store.saveName(bob, "bob");
+        store = reopen(store);
+
+        assertEquals(alice, store.findUuidByName("alice_1"));
+        assertEquals(bob, store.findUuidByName("BOB"));
+        assertNull(store.findUuidByName("carol"));
+
+        HashMap<UUID, String> names = store.loadNames(Arrays.asList(alice, bob, carol));
+        assertEquals(2, names.size());
+        assertEquals("Alice_1", names.get(alice));
+        assertEquals("bob", names.get(bob));
+    }
+
+    @Test
+    void aNameBelongsToOnePlayer() throws Exception {
+        store.saveName(alice, "Steve");
+        store.saveName(bob, "steve");
+        store.saveName(alice, "Alex");
+        store = reopen(store);
+
+        assertEquals(bob, store.findUuidByName("Steve"));
+        assertEquals(alice, store.findUuidByName("alex"));
+    }
+
+    @Test
+    void requestsAreLoadedForBothPlayers() throws Exception {
+        store.saveRequest(alice, bob, NOW + 1000);
+        store.saveRequest(carol, alice, NOW + 1000);
+        store = reopen(store);
+
+        List<StoredRequest> ofAlice = store.loadRequests(alice, NOW);
+        assertEquals(2, ofAlice.size());
+        assertTrue(containsRequest(ofAlice, alice, bob));
+        assertTrue(containsRequest(ofAlice, carol, alice));
+
+        List<StoredRequest> ofBob = store.loadRequests(bob, NOW);
+        assertEquals(1, ofBob.size());
+        assertEquals(NOW + 1000, ofBob.get(0).expiresAt);
+    }
+
+    @Test
+    void savingARequestAgainReplacesIt() throws Exception {
+        store.saveRequest(alice, bob, NOW + 1000);
+        store.saveRequest(alice, bob, NOW + 5000);
+        store = reopen(store);
+
+        List<StoredRequest> requests = store.loadRequests(bob, NOW);
+        assertEquals(1, requests.size());
+        assertEquals(NOW + 5000, requests.get(0).expiresAt);
+    }
+
+    @Test
+    void deletedAndExpiredRequestsAreNotLoaded() throws Exception {
+        store.saveRequest(alice, bob, NOW + 1000);
+        store.saveRequest(alice, carol, NOW - 1);
+        store.saveRequest(dave, alice, NOW + 1000);
+        store.deleteRequest(dave, alice);
+        store = reopen(store);
+
+        List<StoredRequest> requests = store.loadRequests(alice, NOW);
+        assertEquals(1, requests.size());
+        assertTrue(containsRequest(requests, alice, bob));
+        assertFalse(containsRequest(store.loadRequests(carol, NOW), alice, carol));
+    }
+
+    @Test
+    void purgeRemovesOnlyExpiredRequests() throws Exception {
+        store.saveRequest(alice, bob, NOW - 10);
+        store.saveRequest(alice, carol, NOW - 5);
+        store.saveRequest(alice, dave, NOW + 1000);
+
+        assertEquals(1, store.purgeExpiredRequests(NOW, 1));
+        assertEquals(1, store.purgeExpiredRequests(NOW, 10));
+        assertEquals(0, store.purgeExpiredRequests(NOW, 10));
+        store = reopen(store);
+
+        assertEquals(1, store.loadRequests(alice, NOW).size());
+    }
+
+    private static boolean containsRequest(List<StoredRequest> requests, UUID sender, UUID receiver) {
+        for (StoredRequest request : requests) {
+            if (request.sender.equals(sender) && request.receiver.equals(receiver)) return true;
+        }
+        return false;
+    }
+
+    private static void assertSameElements(List<UUID> expected, List<UUID> actual) {
+        assertEquals(expected.size(), actual.size(), "size of " + actual);
+        assertEquals(new HashSet<>(expected), new HashSet<>(actual));
+    }
+}
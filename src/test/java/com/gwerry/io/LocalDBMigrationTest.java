@@ -0,0 +1,206 @@
+/**
+ * @file LocalDBMigrationTest.java
+ * @author gwerry
+ * @brief Tests for the schema migrations LocalDB runs when it opens an existing database file.
+ * @version 1.0
+ * @date 2026/10/18
+ *
+ * Copyright 2024 gwerry
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gwerry.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @brief Tests for the schema migrations LocalDB runs when it opens an existing database file.
+ */
+public class LocalDBMigrationTest {
+    @TempDir
+    File dir;
+
+    private final UUID alice = UUID.randomUUID();
+    private final UUID bob = UUID.randomUUID();
+    private final UUID carol = UUID.randomUUID();
+
+    @Test
+    void legacyFriendListsMoveToTheFriendshipsTable() throws Exception {
+        // More than one batch of 500 edges and a partial one, in the delimited format the old plugin wrote
+        ArrayList<UUID> many = new ArrayList<>();
+        StringBuilder list = new StringBuilder();
+        for (int i = 0; i < 600; i++) {
+            UUID friend = UUID.randomUUID();
+            many.add(friend);
+            list.append(friend).append('|');
+        }
+        try (Connection conn = connect(); Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE users (id TEXT PRIMARY KEY, user_friends TEXT);");
+            insertLegacy(conn, alice.toString(), list.toString());
+            // addFriend of the old plugin left empty entries behind
+            insertLegacy(conn, bob.toString(), alice + "||" + carol + "|");
+            insertLegacy(conn, carol.toString(), "not-a-uuid|" + bob + "|");
+            insertLegacy(conn, "not-a-uuid", alice + "|");
+            insertLegacy(conn, UUID.randomUUID().toString(), "");
+        }
+
+        FriendStore store = open(false);
+        assertEquals(new HashSet<>(many), new HashSet<>(store.loadFriends(alice)));
+        assertEquals(600, store.loadFriends(alice).size());
+        assertEquals(new HashSet<>(Arrays.asList(alice, carol)), new HashSet<>(store.loadFriends(bob)));
+        assertEquals(Arrays.asList(bob), store.loadFriends(carol));
+        assertEquals(Arrays.asList(bob), store.getFriendedBy(alice));
+        store.close();
+
+        try (Connection conn = connect(); Statement stmt = conn.createStatement()) {
+            assertEquals(1L, queryLong(stmt, "PRAGMA user_version;"));
+            assertEquals(603L, queryLong(stmt, "SELECT count(*) FROM friendships;"));
+            assertEquals(0L, queryLong(stmt, "SELECT count(*) FROM users WHERE user_friends IS NOT NULL;"));
+            // Would be migrated if the migration ran again
+            stmt.executeUpdate("UPDATE users SET user_friends = '" + UUID.randomUUID() + "|' WHERE id = '" + carol + "';");
+        }
+
+        store = open(false);
+        assertEquals(Arrays.asList(bob), store.loadFriends(carol));
+        store.close();
+        try (Connection conn = connect(); Statement stmt = conn.createStatement()) {
+            assertEquals(603L, queryLong(stmt, "SELECT count(*) FROM friendships;"));
+        }
+    }
+
+    @Test
+    void uuidsRoundTripThroughBothFormats() throws Exception {
+        FriendStore store = open(false);
+        store.addFriendship(alice, bob);
+        store.addFriendship(alice, carol);
+        store.addFriend(carol, bob);
+        store.close();
+        assertEquals("text", columnTypes());
+
+        store = open(true);
+        assertFriendships(store);
+        store.close();
+        assertEquals("blob", columnTypes());
+        assertEquals("packed", uuidFormat());
+
+        store = open(false);
+        assertFriendships(store);
+        store.close();
+        assertEquals("text", columnTypes());
+        assertEquals("text", uuidFormat());
+    }
+
+    @Test
+    void aFailedConversionLeavesTheFormatUnchanged() throws Exception {
+        FriendStore store = open(false);
+        store.addFriendship(alice, bob);
+        store.addFriendship(alice, carol);
+        store.addFriend(carol, bob);
+        store.close();
+        store = open(true);
+        store.close();
+
+        // Fails the conversion back to text once it reaches the rows of carol
+        try (Connection conn = connect(); Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TRIGGER fail_conversion BEFORE UPDATE ON friendships WHEN NEW.owner = '" + carol + "' "
+                    + "BEGIN SELECT RAISE(ABORT, 'conversion failed'); END;");
+        }
+
+        store = open(false);
+        assertFriendships(store);
+        store.close();
+        assertEquals("blob", columnTypes());
+        assertEquals("packed", uuidFormat());
+
+        try (Connection conn = connect(); Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP TRIGGER fail_conversion;");
+        }
+        store = open(false);
+        assertFriendships(store);
+        store.close();
+        assertEquals("text", columnTypes());
+    }
+
+    private void assertFriendships(FriendStore store) {
+        assertEquals(new HashSet<>(Arrays.asList(bob, carol)), new HashSet<>(store.loadFriends(alice)));
+        assertEquals(Arrays.asList(alice), store.loadFriends(bob));
+        assertEquals(new HashSet<>(Arrays.asList(alice, bob)), new HashSet<>(store.loadFriends(carol)));
+        assertEquals(new HashSet<>(Arrays.asList(alice, carol)), new HashSet<>(store.getFriendedBy(bob)));
+    }
+
+    private FriendStore open(boolean packedUuids) {
+        SqliteEngine.Settings settings = new SqliteEngine.Settings();
+        settings.readConnections = 1;
+        return new LocalDB(new File(dir, "users.db"), Logger.getLogger("LocalDBMigrationTest"), settings, packedUuids);
+    }
+
+    private Connection connect() throws SQLException {
+        return DriverManager.getConnection("jdbc:sqlite:" + new File(dir, "users.db").getAbsolutePath());
+    }
+
+    private static void insertLegacy(Connection conn, String id, String friends) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("INSERT INTO users (id, user_friends) VALUES (?, ?)")) {
+            pstmt.setString(1, id);
+            pstmt.setString(2, friends);
+            pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * @brief Gets the storage class every owner and friend in the friendships table has.
+     * @return "text" or "blob", or "mixed" if the rows do not agree.
+     */
+    private String columnTypes() throws SQLException {
+        try (Connection conn = connect(); Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT DISTINCT typeof(owner) FROM friendships "
+                     + "UNION SELECT DISTINCT typeof(friend) FROM friendships;")) {
+            String type = null;
+            while (rs.next()) {
+                if (type != null && !type.equals(rs.getString(1))) return "mixed";
+                type = rs.getString(1);
+            }
+            return type;
+        }
+    }
+
+    private String uuidFormat() throws SQLException {
+        try (Connection conn = connect(); Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT value FROM meta WHERE key = 'uuid_format';")) {
+            if (!rs.next()) return null;
+            return rs.getString(1);
+        }
+    }
+
+    private static long queryLong(Statement stmt, String sql) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/**
+ * @file LocalDBTest.java
+ * @author gwerry
+ * @brief Runs the FriendStore contract against the SQLite backend, with UUIDs stored as text.
+ * @version 1.0
+ * @date 2026/10/18
+ *
+ * Copyright 2024 gwerry
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gwerry.io;
+
+import java.io.File;
+import java.util.logging.Logger;
+
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @brief Runs the FriendStore contract against the SQLite backend, with UUIDs stored as text.
+ */
+public class LocalDBTest extends FriendStoreContractTest {
+    @TempDir
+    File dir;
+
+    /**
+     * @brief Whether the backend under test stores the UUIDs of friendships as BLOBs.
+     * @return true for packed UUIDs.
+     */
+    protected boolean packedUuids() {
+        return false;
+    }
+
+    @Override
+    protected FriendStore open() {
+        SqliteEngine.Settings settings = new SqliteEngine.Settings();
+        settings.readConnections = 2;
+        return new LocalDB(new File(dir, "users.db"), Logger.getLogger("LocalDBTest"), settings, packedUuids());
+    }
+
+    @Override
+    protected FriendStore reopen(FriendStore current) {
+        current.close();
+        return open();
+    }
+}
@@ -0,0 +1,197 @@
+/**
+ * @file LogFriendStoreBenchmark.java
+ * @author gwerry
+ * @brief Measures durable writes and replay of the friend journal against appending to a plain file channel.
+ * @version 1.0
+ * @date 2026/10/18
+ *
+ * Copyright 2024 gwerry
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gwerry.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * @brief Measures durable writes and replay of the friend journal against appending to a plain file channel.
+ * The baseline writes records of the same size with FileChannel.write and forces the channel after every append,
+ * the way the unmapped friend log did. Compaction is turned off so it does not run in the middle of a measurement.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LogFriendStoreBenchmark {
+    private static final int RECORD_BYTES = 48;
+    private static final int BATCH = 100;
+    private static final int REPLAYED = 100000;
+
+    /**
+     * @brief An empty journal and an empty plain log in a temporary directory.
+     */
+    @State(Scope.Thread)
+    public static class Logs {
+        File dir;
+        LogFriendStore journal;
+        FileChannel channel;
+        final ByteBuffer buffer = ByteBuffer.allocate(BATCH * RECORD_BYTES);
+
+        @Setup
+        public void open() throws IOException {
+            dir = Files.createTempDirectory("journal-bench").toFile();
+            journal = new LogFriendStore(new File(dir, "friends.journal"), quietLogger(), settings());
+            channel = FileChannel.open(new File(dir, "friends.log").toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+
+        @TearDown
+        public void close() throws IOException {
+            journal.close();
+            channel.close();
+            deleteAll(dir);
+        }
+    }
+
+    /**
+     * @brief A journal of REPLAYED friendships that is opened again on every invocation.
+     */
+    @State(Scope.Thread)
+    public static class Replay {
+        File dir;
+        File file;
+        LogFriendStore opened;
+
+        @Setup
+        public void write() throws IOException, FriendStoreException {
+            dir = Files.createTempDirectory("journal-replay").toFile();
+            file = new File(dir, "friends.journal");
+            LogFriendStore journal = new LogFriendStore(file, quietLogger(), settings());
+            ArrayList<PendingWrites> batch = new ArrayList<>();
+            for (int i = 0; i < REPLAYED / BATCH; i++) {
+                PendingWrites writes = new PendingWrites(UUID.randomUUID(), 0);
+                for (int j = 0; j < BATCH; j++) writes.putEdge(UUID.randomUUID(), true);
+                batch.add(writes);
+            }
+            journal.writeBatch(batch);
+            journal.close();
+        }
+
+        @TearDown(Level.Invocation)
+        public void closeOpened() {
+            if (opened != null) opened.close();
+            opened = null;
+        }
+
+        @TearDown
+        public void delete() {
+            deleteAll(dir);
+        }
+    }
+
+    @Benchmark
+    public void journalAddFriendship(Logs logs) {
+        logs.journal.addFriendship(UUID.randomUUID(), UUID.randomUUID());
+    }
+
+    @Benchmark
+    public void channelAddFriendship(Logs logs) throws IOException {
+        logs.buffer.clear();
+        putRecord(logs.buffer, UUID.randomUUID(), UUID.randomUUID());
+        putRecord(logs.buffer, UUID.randomUUID(), UUID.randomUUID());
+        logs.buffer.flip();
+        append(logs);
+    }
+
+    @Benchmark
+    public void journalWriteBatch(Logs logs) throws FriendStoreException {
+        ArrayList<PendingWrites> batch = new ArrayList<>(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            PendingWrites writes = new PendingWrites(UUID.randomUUID(), 0);
+            writes.putEdge(UUID.randomUUID(), true);
+            batch.add(writes);
+        }
+        logs.journal.writeBatch(batch);
+    }
+
+    @Benchmark
+    public void channelWriteBatch(Logs logs) throws IOException {
+        logs.buffer.clear();
+        for (int i = 0; i < BATCH; i++) putRecord(logs.buffer, UUID.randomUUID(), UUID.randomUUID());
+        logs.buffer.flip();
+        append(logs);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 10)
+    public LogFriendStore journalReplay(Replay replay) throws IOException {
+        replay.opened = new LogFriendStore(replay.file, quietLogger(), settings());
+        return replay.opened;
+    }
+
+    private static void append(Logs logs) throws IOException {
+        while (logs.buffer.hasRemaining()) logs.channel.write(logs.buffer);
+        logs.channel.force(false);
+    }
+
+    private static void putRecord(ByteBuffer buffer, UUID owner, UUID friend) {
+        int start = buffer.position();
+        buffer.putLong(owner.getMostSignificantBits()).putLong(owner.getLeastSignificantBits());
+        buffer.putLong(friend.getMostSignificantBits()).putLong(friend.getLeastSignificantBits());
+        buffer.position(start + RECORD_BYTES);
+    }
+
+    private static LogFriendStore.Settings settings() {
+        LogFriendStore.Settings settings = new LogFriendStore.Settings();
+        settings.compactMinRecords = Long.MAX_VALUE;
+        return settings;
+    }
+
+    private static Logger quietLogger() {
+        Logger logger = Logger.getLogger("LogFriendStoreBenchmark");
+        logger.setLevel(java.util.logging.Level.WARNING);
+        return logger;
+    }
+
+    private static void deleteAll(File dir) {
+        File[] files = dir.listFiles();
+        if (files != null) for (File file : files) file.delete();
+        dir.delete();
+    }
+}
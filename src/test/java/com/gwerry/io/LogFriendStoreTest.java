@@ -0,0 +1,271 @@
+/**
+ * @file LogFriendStoreTest.java
+ * @author gwerry
+ * @brief Runs the FriendStore contract against the journal backend, plus its crash recovery and compaction.
+ * @version 1.0
+ * @date 2026/10/18
+ *
+ * Copyright 2024 gwerry
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gwerry.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @brief Runs the FriendStore contract against the journal backend, plus its crash recovery and compaction.
+ */
+public class LogFriendStoreTest extends FriendStoreContractTest {
+    private static final int HEADER_BYTES = 16;
+    private static final int RECORD_BYTES = 48;
+
+    @TempDir
+    File dir;
+
+    private LogFriendStore.Settings settings = new LogFriendStore.Settings();
+
+    @Override
+    protected FriendStore open() throws IOException {
+        return new LogFriendStore(journal(), Logger.getLogger("LogFriendStoreTest"), settings);
+    }
+
+    @Override
+    protected FriendStore reopen(FriendStore current) throws IOException {
+        current.close();
+        return open();
+    }
+
+    @Test
+    void tornLastTransactionIsDropped() throws Exception {
+        UUID alice = UUID.randomUUID();
+        UUID bob = UUID.randomUUID();
+        UUID carol = UUID.randomUUID();
+        store.addFriendship(alice, bob);
+        store.addFriendship(alice, carol);
+        store.close();
+
+        // Corrupt the COMMIT of the second friendship, as if the crash hit while it was written
+        int last = lastRecord();
+        try (RandomAccessFile file = new RandomAccessFile(journal(), "rw")) {
+            file.seek(last + 20);
+            file.write(0x5A);
+        }
+        store = open();
+
+        assertEquals(Arrays.asList(bob), store.loadFriends(alice));
+        assertEquals(new ArrayList<UUID>(), store.loadFriends(carol));
+
+        // The torn tail was wiped, new writes land behind the last good transaction and survive
+        store.addFriendship(alice, carol);
+        store = reopen(store);
+        assertEquals(2, store.loadFriends(alice).size());
+        assertEquals(Arrays.asList(alice), store.loadFriends(carol));
+    }
+
+    @Test
+    void garbageBehindTheLastCommitIsIgnored() throws Exception {
+        UUID alice = UUID.randomUUID();
+        UUID bob = UUID.randomUUID();
+        store.addFriendship(alice, bob);
+        store.close();
+
+        int end = lastRecord() + RECORD_BYTES;
+        try (RandomAccessFile file = new RandomAccessFile(journal(), "rw")) {
+            file.seek(end);
+            file.write(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13 });
+        }
+        store = open();
+
+        assertEquals(Arrays.asList(bob), store.loadFriends(alice));
+        assertEquals(Arrays.asList(alice), store.loadFriends(bob));
+    }
+
+    @Test
+    void filesThatAreNoJournalAreRejected() throws Exception {
+        store.close();
+        try (RandomAccessFile file = new RandomAccessFile(journal(), "rw")) {
+            file.setLength(0);
+            file.write(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17 });
+        }
+
+        assertThrows(IOException.class, this::open);
+        store = new MemoryFriendStore();
+    }
+
+    @Test
+    void journalGrowsPastItsFirstChunk() throws Exception {
+        store.close();
+        settings.chunkSizeBytes = 4 * RECORD_BYTES;
+        store = open();
+
+        UUID owner = UUID.randomUUID();
+        ArrayList<UUID> friends = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            UUID friend = UUID.randomUUID();
+            friends.add(friend);
+            store.addFriend(owner, friend);
+        }
+        store = reopen(store);
+
+        assertEquals(friends, store.loadFriends(owner));
+    }
+
+    @Test
+    void compactionKeepsOnlyLiveRecords() throws Exception {
+        store.close();
+        settings.compactMinRecords = 10;
+        settings.compactDeadRatio = 0.5;
+        settings.compactCheckSeconds = 1;
+        LogFriendStore log = (LogFriendStore) open();
+        store = log;
+
+        UUID owner = UUID.randomUUID();
+        UUID kept = UUID.randomUUID();
+        log.addFriend(owner, kept);
+        log.saveName(owner, "Owner");
+        for (int i = 0; i < 50; i++) {
+            UUID friend = UUID.randomUUID();
+            log.addFriend(owner, friend);
+            log.removeFriend(owner, friend);
+        }
+        long before = log.getRecordCount();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (log.getCompactionCount() == 0 && System.nanoTime() < deadline) Thread.sleep(50);
+        assertEquals(1, log.getCompactionCount());
+        assertTrue(log.getRecordCount() < before, "records after compaction: " + log.getRecordCount());
+
+        log.addFriend(kept, owner);
+        store = reopen(log);
+        assertEquals(Arrays.asList(kept), store.loadFriends(owner));
+        assertEquals(Arrays.asList(owner), store.loadFriends(kept));
+        assertEquals(owner, store.findUuidByName("owner"));
+    }
+
+    @Test
+    void commitRecordsDoNotCountAsDead() throws Exception {
+        LogFriendStore log = openCompacting();
+
+        // Every write is its own transaction and stays live, half of the records are COMMITs
+        UUID owner = UUID.randomUUID();
+        for (int i = 0; i < 20; i++) log.addFriend(owner, UUID.randomUUID());
+        log.saveName(owner, "Owner");
+        assertEquals(42, log.getRecordCount());
+
+        Thread.sleep(2500);
+        assertEquals(0, log.getCompactionCount());
+    }
+
+    @Test
+    void aFailedCompactionKeepsTheJournalWritable() throws Exception {
+        // A directory in the way of the compacted file makes every rewrite fail
+        blockCompaction();
+        LogFriendStore log = openCompacting();
+        UUID owner = UUID.randomUUID();
+        UUID kept = UUID.randomUUID();
+        log.addFriend(owner, kept);
+        fillWithDeadRecords(log, owner);
+
+        Thread.sleep(2500);
+        assertEquals(0, log.getCompactionCount());
+
+        UUID added = UUID.randomUUID();
+        log.addFriend(owner, added);
+        store = reopen(log);
+        assertEquals(Arrays.asList(kept, added), store.loadFriends(owner));
+    }
+
+    @Test
+    void writesFailWhenTheJournalCanNotBeReopened() throws Exception {
+        blockCompaction();
+        LogFriendStore log = openCompacting();
+        UUID owner = UUID.randomUUID();
+        fillWithDeadRecords(log, owner);
+        // The journal can not be opened again once a directory took its place
+        assertTrue(journal().delete());
+        assertTrue(journal().mkdir());
+
+        Thread.sleep(2500);
+
+        PendingWrites writes = new PendingWrites(owner, 0);
+        writes.putEdge(UUID.randomUUID(), true);
+        assertThrows(FriendStoreException.class, () -> log.writeBatch(Arrays.asList(writes)));
+        log.addFriend(owner, UUID.randomUUID());
+        assertEquals(new ArrayList<UUID>(), log.loadFriends(owner));
+    }
+
+    private LogFriendStore openCompacting() throws IOException {
+        store.close();
+        settings.compactMinRecords = 10;
+        settings.compactDeadRatio = 0.5;
+        settings.compactCheckSeconds = 1;
+        LogFriendStore log = (LogFriendStore) open();
+        store = log;
+        return log;
+    }
+
+    private void blockCompaction() throws IOException {
+        File blocker = new File(dir, "friends.journal.compact");
+        assertTrue(blocker.mkdir());
+        assertTrue(new File(blocker, "in-the-way").createNewFile());
+    }
+
+    private static void fillWithDeadRecords(LogFriendStore log, UUID owner) {
+        for (int i = 0; i < 20; i++) {
+            UUID friend = UUID.randomUUID();
+            log.addFriend(owner, friend);
+            log.removeFriend(owner, friend);
+        }
+    }
+
+    private File journal() {
+        return new File(dir, "friends.journal");
+    }
+
+    /**
+     * @brief Finds the offset of the last record that is not all zero.
+     */
+    private int lastRecord() throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(journal(), "r")) {
+            byte[] record = new byte[RECORD_BYTES];
+            int last = -1;
+            for (int pos = HEADER_BYTES; pos + RECORD_BYTES <= file.length(); pos += RECORD_BYTES) {
+                file.seek(pos);
+                file.readFully(record);
+                for (byte b : record) {
+                    if (b != 0) {
+                        last = pos;
+                        break;
+                    }
+                }
+            }
+            assertTrue(last > 0, "journal has no records");
+            return last;
+        }
+    }
+}
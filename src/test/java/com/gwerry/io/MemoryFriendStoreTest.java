@@ -0,0 +1,33 @@
+/**
+ * @file MemoryFriendStoreTest.java
+ * @author gwerry
+ * @brief Runs the FriendStore contract against the in-memory backend.
+ * @version 1.0
+ * @date 2026/10/18
+ *
+ * Copyright 2024 gwerry
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gwerry.io;
+
+/**
+ * @brief Runs the FriendStore contract against the in-memory backend.
+ */
+public class MemoryFriendStoreTest extends FriendStoreContractTest {
+
+    @Override
+    protected FriendStore open() {
+        return new MemoryFriendStore();
+    }
+}
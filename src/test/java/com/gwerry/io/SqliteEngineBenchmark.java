@@ -0,0 +1,182 @@
+/**
+ * @file SqliteEngineBenchmark.java
+ * @author gwerry
+ * @brief Compares LocalDB on the single-writer SqliteEngine with a connection per thread, the way the old pool worked.
+ * @version 1.0
+ * @date 2026/10/18
+ *
+ * Copyright 2024 gwerry
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gwerry.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * @brief Compares LocalDB on the single-writer SqliteEngine with a connection per thread, the way the old pool worked.
+ * The old plugin handed every caller its own pooled connection to a database in the default rollback journal mode,
+ * so concurrent writers fought over the file lock. The baseline does the same with plain JDBC connections on a
+ * separate file, and counts the writes that still failed with SQLITE_BUSY after the default busy timeout.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class SqliteEngineBenchmark {
+    private static final int PLAYERS = 1000;
+    private static final int FRIENDS = 50;
+
+    /**
+     * @brief Both databases, seeded with the same number of players and friends.
+     */
+    @State(Scope.Benchmark)
+    public static class Databases {
+        File dir;
+        LocalDB engine;
+        String baselineUrl;
+        final ArrayList<UUID> players = new ArrayList<>();
+
+        @Setup
+        public void open() throws IOException, SQLException, FriendStoreException {
+            dir = Files.createTempDirectory("sqlite-bench").toFile();
+            Logger logger = Logger.getLogger("SqliteEngineBenchmark");
+            logger.setLevel(Level.WARNING);
+            engine = new LocalDB(new File(dir, "engine.db"), logger, new SqliteEngine.Settings(), false);
+
+            ArrayList<PendingWrites> batch = new ArrayList<>();
+            for (int i = 0; i < PLAYERS; i++) {
+                UUID player = UUID.randomUUID();
+                players.add(player);
+                PendingWrites writes = new PendingWrites(player, 0);
+                for (int j = 0; j < FRIENDS; j++) writes.putEdge(UUID.randomUUID(), true);
+                batch.add(writes);
+            }
+            engine.writeBatch(batch);
+
+            baselineUrl = "jdbc:sqlite:" + new File(dir, "baseline.db").getAbsolutePath();
+            try (Connection conn = DriverManager.getConnection(baselineUrl); Statement stmt = conn.createStatement()) {
+                stmt.execute("CREATE TABLE friendships (owner TEXT NOT NULL, friend TEXT NOT NULL, PRIMARY KEY (owner, friend)) WITHOUT ROWID;");
+                conn.setAutoCommit(false);
+                try (PreparedStatement insert = conn.prepareStatement("INSERT INTO friendships (owner, friend) VALUES (?, ?)")) {
+                    for (PendingWrites writes : batch) {
+                        for (UUID friend : writes.getEdges().keySet()) {
+                            insert.setString(1, writes.getOwner().toString());
+                            insert.setString(2, friend.toString());
+                            insert.addBatch();
+                        }
+                    }
+                    insert.executeBatch();
+                }
+                conn.commit();
+            }
+        }
+
+        @TearDown
+        public void close() {
+            engine.close();
+            File[] files = dir.listFiles();
+            if (files != null) for (File file : files) file.delete();
+            dir.delete();
+        }
+
+        UUID randomPlayer() {
+            return players.get(ThreadLocalRandom.current().nextInt(players.size()));
+        }
+    }
+
+    /**
+     * @brief The pooled connection a thread of the old plugin would hold, and how many of its writes failed.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class BaselineConnection {
+        Connection conn;
+        PreparedStatement select;
+        PreparedStatement insert;
+        public long busyFailures;
+
+        @Setup
+        public void open(Databases databases) throws SQLException {
+            conn = DriverManager.getConnection(databases.baselineUrl);
+            select = conn.prepareStatement("SELECT friend FROM friendships WHERE owner = ?");
+            insert = conn.prepareStatement("INSERT OR IGNORE INTO friendships (owner, friend) VALUES (?, ?)");
+        }
+
+        @TearDown
+        public void close() throws SQLException {
+            conn.close();
+        }
+    }
+
+    @Benchmark
+    public ArrayList<UUID> engineLoadFriends(Databases databases) {
+        return databases.engine.loadFriends(databases.randomPlayer());
+    }
+
+    @Benchmark
+    public ArrayList<UUID> connectionPerThreadLoadFriends(Databases databases, BaselineConnection baseline) throws SQLException {
+        baseline.select.setString(1, databases.randomPlayer().toString());
+        ArrayList<UUID> friends = new ArrayList<>();
+        try (ResultSet rs = baseline.select.executeQuery()) {
+            while (rs.next()) friends.add(UUID.fromString(rs.getString(1)));
+        }
+        return friends;
+    }
+
+    @Benchmark
+    public void engineAddFriend(Databases databases) {
+        databases.engine.addFriend(databases.randomPlayer(), UUID.randomUUID());
+    }
+
+    @Benchmark
+    public void connectionPerThreadAddFriend(Databases databases, BaselineConnection baseline) {
+        try {
+            baseline.insert.setString(1, databases.randomPlayer().toString());
+            baseline.insert.setString(2, UUID.randomUUID().toString());
+            baseline.insert.executeUpdate();
+        } catch (SQLException e) {
+            baseline.busyFailures++;
+        }
+    }
+}
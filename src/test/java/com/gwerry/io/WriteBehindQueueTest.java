@@ -0,0 +1,195 @@
+/**
+ * @file WriteBehindQueueTest.java
+ * @author gwerry
+ * @brief Tests for WriteBehindQueue, with a store whose batches can be held back.
+ * @version 1.0
+ * @date 2026/10/18
+ *
+ * Copyright 2024 gwerry
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gwerry.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @brief Tests for WriteBehindQueue, with a store whose batches can be held back.
+ */
+public class WriteBehindQueueTest {
+
+    /**
+     * @brief A MemoryFriendStore that counts its batches and can make the writer wait inside one.
+     */
+    private static class GatedStore extends MemoryFriendStore {
+        final CountDownLatch entered = new CountDownLatch(1);
+        volatile CountDownLatch gate = new CountDownLatch(0);
+        volatile int batches;
+
+        @Override
+        public void writeBatch(Collection<PendingWrites> batch) throws FriendStoreException {
+            entered.countDown();
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            super.writeBatch(batch);
+            batches++;
+        }
+    }
+
+    private final GatedStore store = new GatedStore();
+    private final UUID owner = UUID.randomUUID();
+    private WriteBehindQueue queue;
+
+    @AfterEach
+    void stopQueue() {
+        store.gate.countDown();
+        if (queue != null) queue.shutdown();
+    }
+
+    @Test
+    void coalescesChangesToTheSameEdge() {
+        queue = new WriteBehindQueue(store, Logger.getLogger("WriteBehindQueueTest"), 100, 0);
+        UUID friend = UUID.randomUUID();
+        UUID other = UUID.randomUUID();
+
+        queue.addFriend(owner, friend);
+        queue.removeFriend(owner, friend);
+        queue.addFriend(owner, friend);
+        queue.addFriendship(owner, other);
+        assertEquals(3, queue.getPendingCount());
+
+        queue.start();
+        queue.shutdown();
+
+        assertEquals(Set.of(friend, other), new HashSet<>(store.loadFriends(owner)));
+        assertEquals(List.of(owner), store.loadFriends(other));
+        assertEquals(1, store.batches);
+        assertTrue(queue.getStats().contains("coalesced=2"), queue.getStats());
+    }
+
+    @Test
+    void aSaveReplacesOlderChangesOfThePlayer() {
+        queue = new WriteBehindQueue(store, Logger.getLogger("WriteBehindQueueTest"), 100, 0);
+        UUID dropped = UUID.randomUUID();
+        UUID kept = UUID.randomUUID();
+        UUID addedAfter = UUID.randomUUID();
+        store.addFriend(owner, dropped);
+
+        queue.addFriend(owner, UUID.randomUUID());
+        queue.savePlayer(owner, List.of(kept));
+        queue.addFriend(owner, addedAfter);
+        queue.start();
+        queue.shutdown();
+
+        assertEquals(Set.of(kept, addedAfter), new HashSet<>(store.loadFriends(owner)));
+    }
+
+    @Test
+    void loadKeepsWritesCommittedDuringTheRead() throws Exception {
+        queue = new WriteBehindQueue(store, Logger.getLogger("WriteBehindQueueTest"), 100, 0);
+        UUID inFlight = UUID.randomUUID();
+        UUID queuedDuringRead = UUID.randomUUID();
+        store.gate = new CountDownLatch(1);
+        queue.start();
+        queue.addFriend(owner, inFlight);
+        assertTrue(store.entered.await(5, TimeUnit.SECONDS));
+
+        // The read starts while the first batch is in flight and misses it
+        PendingWrites recorded = queue.beginLoad(owner);
+        ArrayList<UUID> read = store.loadFriends(owner);
+        queue.addFriend(owner, queuedDuringRead);
+        store.gate.countDown();
+        awaitDrained();
+
+        queue.finishLoad(recorded, read);
+        assertEquals(Set.of(inFlight, queuedDuringRead), new HashSet<>(read));
+        assertEquals(2, read.size());
+    }
+
+    @Test
+    void finishedLoadsStopRecording() {
+        queue = new WriteBehindQueue(store, Logger.getLogger("WriteBehindQueueTest"), 100, 0);
+        PendingWrites recorded = queue.beginLoad(owner);
+        queue.finishLoad(recorded, null);
+
+        queue.addFriend(owner, UUID.randomUUID());
+
+        assertTrue(recorded.getEdges().isEmpty());
+    }
+
+    @Test
+    void producersThatMayNotWaitGoOverTheCapacity() throws Exception {
+        queue = new WriteBehindQueue(store, Logger.getLogger("WriteBehindQueueTest"), 2, 0, () -> false);
+        store.gate = new CountDownLatch(1);
+        queue.start();
+        queue.addFriend(owner, UUID.randomUUID());
+        assertTrue(store.entered.await(5, TimeUnit.SECONDS));
+
+        for (int i = 0; i < 10; i++) queue.addFriend(owner, UUID.randomUUID());
+
+        assertEquals(10, queue.getPendingCount());
+        assertEquals(0, queue.getProducerWaits());
+        assertTrue(queue.getOverflows() > 0);
+        store.gate.countDown();
+        queue.shutdown();
+        assertEquals(11, store.loadFriends(owner).size());
+    }
+
+    @Test
+    void producersThatMayWaitWaitForTheWriter() throws Exception {
+        queue = new WriteBehindQueue(store, Logger.getLogger("WriteBehindQueueTest"), 2, 0);
+        store.gate = new CountDownLatch(1);
+        queue.start();
+        queue.addFriend(owner, UUID.randomUUID());
+        assertTrue(store.entered.await(5, TimeUnit.SECONDS));
+        queue.addFriend(owner, UUID.randomUUID());
+        queue.addFriend(owner, UUID.randomUUID());
+
+        CountDownLatch queued = new CountDownLatch(1);
+        Thread producer = new Thread(() -> {
+            queue.addFriend(owner, UUID.randomUUID());
+            queued.countDown();
+        });
+        producer.start();
+        assertFalse(queued.await(200, TimeUnit.MILLISECONDS), "the producer did not wait for space");
+
+        store.gate.countDown();
+        assertTrue(queued.await(5, TimeUnit.SECONDS));
+        assertEquals(1, queue.getProducerWaits());
+        assertEquals(0, queue.getOverflows());
+    }
+
+    private void awaitDrained() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline && (queue.getPendingCount() > 0 || store.batches < 2)) Thread.sleep(10);
+        assertEquals(0, queue.getPendingCount());
+    }
+}
@@ -0,0 +1,117 @@
+/**
+ * @file HashedTimingWheelTest.java
+ * @author gwerry
+ * @brief Tests for HashedTimingWheel.
+ * @version 1.0
+ * @date 2026/10/18
+ *
+ * Copyright 2024 gwerry
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gwerry.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @brief Tests for HashedTimingWheel.
+ */
+public class HashedTimingWheelTest {
+    private HashedTimingWheel wheel;
+
+    @BeforeEach
+    void startWheel() {
+        // A small wheel, so the longer delays need more than one turn
+        wheel = new HashedTimingWheel("test-wheel", Logger.getLogger("HashedTimingWheelTest"), 5, 8);
+        wheel.start();
+    }
+
+    @AfterEach
+    void stopWheel() {
+        wheel.stop();
+    }
+
+    @Test
+    void runsTasksInDeadlineOrder() throws InterruptedException {
+        List<Integer> ran = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(3);
+        wheel.schedule(() -> { ran.add(3); done.countDown(); }, 120, TimeUnit.MILLISECONDS);
+        wheel.schedule(() -> { ran.add(1); done.countDown(); }, 10, TimeUnit.MILLISECONDS);
+        wheel.schedule(() -> { ran.add(2); done.countDown(); }, 60, TimeUnit.MILLISECONDS);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of(1, 2, 3), ran);
+        assertEquals(0, wheel.getPendingCount());
+    }
+
+    @Test
+    void doesNotRunBeforeTheDeadline() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        long start = System.nanoTime();
+        long[] ranAfter = new long[1];
+        wheel.schedule(() -> { ranAfter[0] = System.nanoTime() - start; done.countDown(); }, 100, TimeUnit.MILLISECONDS);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertTrue(ranAfter[0] >= TimeUnit.MILLISECONDS.toNanos(100), "ran after " + ranAfter[0] + "ns");
+    }
+
+    @Test
+    void cancelledTasksNeverRun() throws InterruptedException {
+        CountDownLatch later = new CountDownLatch(1);
+        HashedTimingWheel.Timeout cancelled = wheel.schedule(() -> { throw new AssertionError("cancelled task ran"); }, 30, TimeUnit.MILLISECONDS);
+        HashedTimingWheel.Timeout kept = wheel.schedule(later::countDown, 60, TimeUnit.MILLISECONDS);
+
+        assertTrue(cancelled.cancel());
+        assertFalse(cancelled.cancel());
+        assertTrue(cancelled.isCancelled());
+
+        assertTrue(later.await(5, TimeUnit.SECONDS));
+        assertFalse(cancelled.isExpired());
+        assertFalse(kept.cancel(), "a task that ran can not be cancelled");
+        assertTrue(kept.isExpired());
+    }
+
+    @Test
+    void aThrowingTaskDoesNotStopTheWheel() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        wheel.schedule(() -> { throw new IllegalStateException("expected by the test"); }, 10, TimeUnit.MILLISECONDS);
+        wheel.schedule(done::countDown, 40, TimeUnit.MILLISECONDS);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void pendingCountTracksScheduleAndCancel() {
+        HashedTimingWheel.Timeout first = wheel.schedule(() -> { }, 1, TimeUnit.HOURS);
+        wheel.schedule(() -> { }, 1, TimeUnit.HOURS);
+        assertEquals(2, wheel.getPendingCount());
+
+        first.cancel();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (wheel.getPendingCount() != 1 && System.nanoTime() < deadline) Thread.onSpinWait();
+        assertEquals(1, wheel.getPendingCount());
+    }
+}
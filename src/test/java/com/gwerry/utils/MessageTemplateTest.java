@@ -0,0 +1,91 @@
+/**
+ * @file MessageTemplateTest.java
+ * @author gwerry
+ * @brief Tests for MessageTemplate.
+ * @version 1.0
+ * @date 2026/10/18
+ *
+ * Copyright 2024 gwerry
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gwerry.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @brief Tests for MessageTemplate.
+ */
+public class MessageTemplateTest {
+
+    @Test
+    void rendersLikeStringReplace() {
+        String source = "§a%friend_name% is %online_status%, %friend_name%!";
+        MessageTemplate template = MessageTemplate.compile(source);
+
+        String expected = source.replace("%friend_name%", "Alex").replace("%online_status%", "online");
+        assertEquals(expected, template.render("friend_name", "Alex", "online_status", "online"));
+        assertEquals(expected, template.render("online_status", "online", "friend_name", "Alex"));
+    }
+
+    @Test
+    void keepsPlaceholdersWithoutValues() {
+        MessageTemplate template = MessageTemplate.compile("%a% and %b% and %c%");
+
+        assertEquals("1 and %b% and %c%", template.render("a", "1"));
+        assertEquals("1 and 2 and 3", template.render("a", "1", "b", "2", "c", "3"));
+    }
+
+    @Test
+    void percentSignsThatAreNoPlaceholdersStayLiteral() {
+        String source = "100% sure %% %not a placeholder% %trailing";
+        MessageTemplate template = MessageTemplate.compile(source);
+
+        assertEquals(source, template.render("not", "x"));
+        assertEquals(source, template.toString());
+    }
+
+    @Test
+    void valuesAreNotParsedAgain() {
+        MessageTemplate template = MessageTemplate.compile("<%name%>");
+
+        assertEquals("<%name%>", template.render("name", "%name%"));
+    }
+
+    @Test
+    void nullAndEmptySourcesRenderEmpty() {
+        assertEquals("", MessageTemplate.compile(null).render("a", "1"));
+        assertEquals("", MessageTemplate.compile("").render("a", "1"));
+    }
+
+    @Test
+    void appendsToAnExistingBuilder() {
+        MessageTemplate template = MessageTemplate.compile("%count% friends: %friend_names%");
+        StringBuilder builder = new StringBuilder("> ");
+
+        template.appendTo(builder, "count", "2", "friend_names", "Alex, Steve");
+
+        assertEquals("> 2 friends: Alex, Steve", builder.toString());
+    }
+
+    @Test
+    void hugeRendersDoNotBreakLaterOnes() {
+        MessageTemplate template = MessageTemplate.compile("[%v%]");
+        String huge = "x".repeat(20000);
+
+        assertEquals("[" + huge + "]", template.render("v", huge));
+        assertEquals("[small]", template.render("v", "small"));
+    }
+}
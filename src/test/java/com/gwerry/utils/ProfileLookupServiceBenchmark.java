@@ -0,0 +1,197 @@
+/**
+ * @file ProfileLookupServiceBenchmark.java
+ * @author gwerry
+ * @brief Measures a burst of name lookups through ProfileLookupService against one request per lookup.
+ * @version 1.0
+ * @date 2026/10/18
+ *
+ * Copyright 2024 gwerry
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gwerry.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.JSONValue;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * @brief Measures a burst of name lookups through ProfileLookupService against one request per lookup.
+ * A local HTTP server stands in for the profile API, and the requests counter shows how many requests a burst took.
+ * The burst repeats names the way a busy server does, 520 lookups of 220 names of which 200 exist. The rate limit
+ * is set high enough to never throttle, so the time is spent on requests and on the batch window only.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 20)
+@Fork(1)
+public class ProfileLookupServiceBenchmark {
+    private static final int LOOKUPS = 520;
+    private static final int NAMES = 220;
+    private static final int KNOWN = 200;
+
+    /**
+     * @brief The stand-in API, the service under test and the client of the baseline.
+     */
+    @State(Scope.Benchmark)
+    public static class Api {
+        final HashMap<String, UUID> profiles = new HashMap<>();
+        final AtomicLong received = new AtomicLong();
+        final String[] burst = new String[LOOKUPS];
+        HttpServer server;
+        ExecutorService handlers;
+        ProfileLookupService service;
+        HttpClient client;
+        String profileUrl;
+
+        @Setup
+        public void start() throws IOException {
+            for (int i = 0; i < KNOWN; i++) profiles.put("player" + i, UUID.randomUUID());
+            for (int i = 0; i < LOOKUPS; i++) burst[i] = "Player" + (i * 7 % NAMES);
+
+            handlers = Executors.newFixedThreadPool(8);
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+            server.createContext("/profile/", this::handleProfile);
+            server.createContext("/bulk", this::handleBulk);
+            server.setExecutor(handlers);
+            server.start();
+
+            ProfileLookupService.Settings settings = new ProfileLookupService.Settings();
+            String base = "http://127.0.0.1:" + server.getAddress().getPort();
+            profileUrl = base + "/profile/";
+            settings.profileUrl = profileUrl;
+            settings.bulkUrl = base + "/bulk";
+            settings.ratePerSecond = 100000;
+            settings.burst = 100000;
+            Logger logger = Logger.getLogger("ProfileLookupServiceBenchmark");
+            logger.setLevel(Level.WARNING);
+            service = new ProfileLookupService(settings, logger);
+            service.start();
+            client = HttpClient.newHttpClient();
+        }
+
+        @TearDown
+        public void stop() {
+            service.shutdown();
+            server.stop(0);
+            handlers.shutdownNow();
+        }
+
+        private void handleProfile(HttpExchange exchange) throws IOException {
+            received.incrementAndGet();
+            String name = exchange.getRequestURI().getPath().substring("/profile/".length());
+            UUID uuid = profiles.get(name.toLowerCase(Locale.ROOT));
+            if (uuid == null) respond(exchange, 404, "");
+            else respond(exchange, 200, profile(name, uuid).toJSONString());
+        }
+
+        @SuppressWarnings("unchecked") // json-simple uses raw collections
+        private void handleBulk(HttpExchange exchange) throws IOException {
+            received.incrementAndGet();
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            JSONArray found = new JSONArray();
+            for (Object name : (JSONArray) JSONValue.parse(body)) {
+                UUID uuid = profiles.get(name.toString().toLowerCase(Locale.ROOT));
+                if (uuid != null) found.add(profile(name.toString(), uuid));
+            }
+            respond(exchange, 200, found.toJSONString());
+        }
+    }
+
+    /**
+     * @brief How many requests the stand-in API got during the measured bursts.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Requests {
+        public long requests;
+    }
+
+    @Benchmark
+    public int serviceBurst(Api api, Requests requests) {
+        long before = api.received.get();
+        ArrayList<CompletableFuture<UUID>> lookups = new ArrayList<>(LOOKUPS);
+        for (String name : api.burst) lookups.add(api.service.lookup(name));
+        int found = 0;
+        for (CompletableFuture<UUID> lookup : lookups) if (lookup.join() != null) found++;
+        requests.requests += api.received.get() - before;
+        return found;
+    }
+
+    @Benchmark
+    public int requestPerLookupBurst(Api api, Requests requests) {
+        long before = api.received.get();
+        ArrayList<CompletableFuture<HttpResponse<String>>> lookups = new ArrayList<>(LOOKUPS);
+        for (String name : api.burst) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(api.profileUrl + name)).GET().build();
+            lookups.add(api.client.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+        }
+        int found = 0;
+        for (CompletableFuture<HttpResponse<String>> lookup : lookups) if (lookup.join().statusCode() == 200) found++;
+        requests.requests += api.received.get() - before;
+        return found;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static JSONObject profile(String name, UUID uuid) {
+        JSONObject profile = new JSONObject();
+        profile.put("id", uuid.toString().replace("-", ""));
+        profile.put("name", name);
+        return profile;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,225 @@
+/**
+ * @file ProfileLookupServiceTest.java
+ * @author gwerry
+ * @brief Tests for ProfileLookupService against a local HTTP server standing in for the profile API.
+ * @version 1.0
+ * @date 2026/10/18
+ *
+ * Copyright 2024 gwerry
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gwerry.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.JSONValue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * @brief Tests for ProfileLookupService against a local HTTP server standing in for the profile API.
+ */
+public class ProfileLookupServiceTest {
+    private final HashMap<String, UUID> profiles = new HashMap<>();
+    // Every request the stand-in got, "GET name" or "POST [names]"
+    private final List<String> received = new CopyOnWriteArrayList<>();
+    private volatile int failWith;
+
+    private HttpServer server;
+    private ProfileLookupService service;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        for (String name : new String[] { "Alex", "Steve", "Notch", "jeb_" }) {
+            profiles.put(name.toLowerCase(Locale.ROOT), UUID.randomUUID());
+        }
+
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/profile/", this::handleProfile);
+        server.createContext("/bulk", this::handleBulk);
+        server.start();
+
+        ProfileLookupService.Settings settings = new ProfileLookupService.Settings();
+        String base = "http://127.0.0.1:" + server.getAddress().getPort();
+        settings.profileUrl = base + "/profile/";
+        settings.bulkUrl = base + "/bulk";
+        settings.batchWindowMillis = 100;
+        settings.ratePerSecond = 1000;
+        settings.burst = 100;
+        settings.timeoutMillis = 2000;
+        service = new ProfileLookupService(settings, Logger.getLogger("ProfileLookupServiceTest"));
+        service.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        service.shutdown();
+        server.stop(0);
+    }
+
+    @Test
+    void aSingleNameUsesTheProfileEndpoint() throws Exception {
+        assertEquals(profiles.get("alex"), get(service.lookup("Alex")));
+
+        assertEquals(List.of("GET Alex"), received);
+    }
+
+    @Test
+    void namesLookedUpTogetherShareOneBulkRequest() throws Exception {
+        CompletableFuture<UUID> alex = service.lookup("Alex");
+        CompletableFuture<UUID> steve = service.lookup("STEVE");
+        CompletableFuture<UUID> nobody = service.lookup("Nobody");
+
+        assertEquals(profiles.get("alex"), get(alex));
+        assertEquals(profiles.get("steve"), get(steve));
+        assertNull(get(nobody));
+        assertEquals(1, received.size());
+        assertTrue(received.get(0).startsWith("POST "), received.get(0));
+    }
+
+    @Test
+    void batchesHoldAtMostTenNames() throws Exception {
+        ArrayList<CompletableFuture<UUID>> lookups = new ArrayList<>();
+        for (int i = 0; i < 25; i++) lookups.add(service.lookup("player" + i));
+        for (CompletableFuture<UUID> lookup : lookups) assertNull(get(lookup));
+
+        int names = 0;
+        for (String request : received) {
+            int size = request.startsWith("POST ") ? ((JSONArray) JSONValue.parse(request.substring(5))).size() : 1;
+            assertTrue(size <= ProfileLookupService.MAX_BATCH_SIZE, request);
+            names += size;
+        }
+        assertEquals(25, names);
+        assertTrue(received.size() >= 3);
+    }
+
+    @Test
+    void concurrentLookupsOfOneNameShareAFuture() throws Exception {
+        CompletableFuture<UUID> first = service.lookup("Notch");
+        CompletableFuture<UUID> second = service.lookup("notch");
+
+        assertSame(first, second);
+        assertEquals(profiles.get("notch"), get(first));
+        assertEquals(1, received.size());
+        assertTrue(service.getSavedRequests() >= 1);
+    }
+
+    @Test
+    void invalidNamesAreAnsweredWithoutARequest() throws Exception {
+        for (String name : new String[] { "", "has space", "a/b", "sev-enteen-chars", "x".repeat(17), "über" }) {
+            CompletableFuture<UUID> lookup = service.lookup(name);
+            assertTrue(lookup.isDone(), name);
+            assertNull(lookup.get(), name);
+        }
+        assertFalse(ProfileLookupService.isValidName(null));
+        assertTrue(ProfileLookupService.isValidName("jeb_"));
+        assertTrue(ProfileLookupService.isValidName("x".repeat(16)));
+
+        // A valid name looked up next to them still goes through
+        assertEquals(profiles.get("jeb_"), get(service.lookup("jeb_")));
+        assertEquals(List.of("GET jeb_"), received);
+    }
+
+    @Test
+    void unknownSingleNamesResolveToNull() throws Exception {
+        assertNull(get(service.lookup("Herobrine")));
+    }
+
+    @Test
+    void serverErrorsFailTheLookups() {
+        failWith = 500;
+        CompletableFuture<UUID> alex = service.lookup("Alex");
+        CompletableFuture<UUID> steve = service.lookup("Steve");
+
+        assertThrows(ExecutionException.class, () -> get(alex));
+        assertThrows(ExecutionException.class, () -> get(steve));
+    }
+
+    private static UUID get(CompletableFuture<UUID> lookup) throws Exception {
+        return lookup.get(5, TimeUnit.SECONDS);
+    }
+
+    private void handleProfile(HttpExchange exchange) throws IOException {
+        String name = exchange.getRequestURI().getPath().substring("/profile/".length());
+        received.add("GET " + name);
+        if (failWith != 0) {
+            respond(exchange, failWith, "");
+            return;
+        }
+
+        UUID uuid = profiles.get(name.toLowerCase(Locale.ROOT));
+        if (uuid == null) respond(exchange, 404, "");
+        else respond(exchange, 200, profile(name, uuid).toJSONString());
+    }
+
+    @SuppressWarnings("unchecked") // json-simple uses raw collections
+    private void handleBulk(HttpExchange exchange) throws IOException {
+        String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        received.add("POST " + body);
+        if (failWith != 0) {
+            respond(exchange, failWith, "");
+            return;
+        }
+
+        JSONArray found = new JSONArray();
+        for (Object name : (JSONArray) JSONValue.parse(body)) {
+            UUID uuid = profiles.get(name.toString().toLowerCase(Locale.ROOT));
+            if (uuid != null) found.add(profile(name.toString(), uuid));
+        }
+        respond(exchange, 200, found.toJSONString());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static JSONObject profile(String name, UUID uuid) {
+        JSONObject profile = new JSONObject();
+        profile.put("id", uuid.toString().replace("-", ""));
+        profile.put("name", name);
+        return profile;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * @file TokenBucketTest.java
+ * @author gwerry
+ * @brief Tests for TokenBucket.
+ * @version 1.0
+ * @date 2026/10/18
+ *
+ * Copyright 2024 gwerry
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gwerry.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @brief Tests for TokenBucket.
+ */
+public class TokenBucketTest {
+
+    @Test
+    void allowsTheBurstThenRejects() {
+        // One token a minute, so none come back while the test runs
+        TokenBucket bucket = new TokenBucket(1.0 / 60, 5);
+
+        for (int i = 0; i < 5; i++) assertTrue(bucket.tryAcquire(), "token " + i);
+        assertFalse(bucket.tryAcquire());
+    }
+
+    @Test
+    void reservationsAfterTheBurstWaitOneIntervalEach() {
+        TokenBucket bucket = new TokenBucket(10, 2);
+
+        assertEquals(0, bucket.reserve());
+        assertEquals(0, bucket.reserve());
+        long third = bucket.reserve();
+        long fourth = bucket.reserve();
+
+        long interval = TimeUnit.MILLISECONDS.toNanos(100);
+        assertTrue(third > interval / 2 && third <= interval, "third waits " + third);
+        assertTrue(fourth - third > interval / 2 && fourth - third <= interval + interval / 2, "fourth waits " + fourth);
+    }
+
+    @Test
+    void refillsOverTime() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(50, 1);
+
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+        Thread.sleep(60);
+        assertTrue(bucket.tryAcquire());
+    }
+
+    @Test
+    void acquireWaitsForTheNextToken() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(20, 1);
+        bucket.acquire();
+
+        long start = System.nanoTime();
+        long waited = bucket.acquire();
+        long elapsed = System.nanoTime() - start;
+
+        assertTrue(waited > 0);
+        assertTrue(elapsed >= TimeUnit.MILLISECONDS.toNanos(30), "waited only " + elapsed + "ns");
+    }
+
+    @Test
+    void idleTimeGrowsOnlyWhileFull() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(1.0 / 60, 1);
+        bucket.tryAcquire();
+        assertEquals(0, bucket.getIdleNanos());
+
+        TokenBucket idle = new TokenBucket(10, 1);
+        Thread.sleep(20);
+        assertTrue(idle.getIdleNanos() > 0);
+    }
+}
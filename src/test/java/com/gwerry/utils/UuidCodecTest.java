@@ -0,0 +1,60 @@
+/**
+ * @file UuidCodecTest.java
+ * @author gwerry
+ * @brief Tests for UuidCodec.
+ * @version 1.0
+ * @date 2026/10/18
+ *
+ * Copyright 2024 gwerry
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gwerry.utils;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @brief Tests for UuidCodec.
+ */
+public class UuidCodecTest {
+
+    @Test
+    void packsBigEndian() {
+        UUID uuid = UUID.fromString("00112233-4455-6677-8899-aabbccddeeff");
+        byte[] expected = {
+                0x00, 0x11, 0x22, 0x33, 0x44, 0x55, 0x66, 0x77,
+                (byte) 0x88, (byte) 0x99, (byte) 0xaa, (byte) 0xbb, (byte) 0xcc, (byte) 0xdd, (byte) 0xee, (byte) 0xff
+        };
+
+        assertArrayEquals(expected, UuidCodec.toBytes(uuid));
+        assertEquals(uuid, UuidCodec.fromBytes(expected));
+    }
+
+    @Test
+    void roundTripsAtAnOffset() {
+        byte[] buffer = new byte[3 + 2 * UuidCodec.UUID_BYTES];
+        UUID first = UUID.randomUUID();
+        UUID second = new UUID(-1L, Long.MIN_VALUE);
+
+        UuidCodec.writeUuid(buffer, 3, first);
+        UuidCodec.writeUuid(buffer, 3 + UuidCodec.UUID_BYTES, second);
+
+        assertEquals(first, UuidCodec.readUuid(buffer, 3));
+        assertEquals(second, UuidCodec.readUuid(buffer, 3 + UuidCodec.UUID_BYTES));
+    }
+}
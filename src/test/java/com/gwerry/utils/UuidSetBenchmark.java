@@ -0,0 +1,106 @@
+/**
+ * @file UuidSetBenchmark.java
+ * @author gwerry
+ * @brief Compares the footprint and lookups of UuidSet with the ArrayList of UUIDs it replaced.
+ * @version 1.0
+ * @date 2026/10/18
+ *
+ * Copyright 2024 gwerry
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gwerry.utils;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * @brief Compares the footprint and lookups of UuidSet with the ArrayList of UUIDs it replaced.
+ * The build benchmarks allocate exactly what the collection keeps, a presized list with its UUID objects or
+ * a presized set, so the gc.alloc.rate.norm of -prof gc is the heap footprint of a friend list of that size.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UuidSetBenchmark {
+    @Param({ "10", "1000", "50000" })
+    public int friends;
+
+    private long[] mostSigBits;
+    private long[] leastSigBits;
+    private ArrayList<UUID> list;
+    private UuidSet set;
+    private UUID[] probes;
+    private int next;
+
+    @Setup
+    public void fill() {
+        Random random = new Random(19);
+        mostSigBits = new long[friends];
+        leastSigBits = new long[friends];
+        list = new ArrayList<>(friends);
+        set = new UuidSet(friends);
+        for (int i = 0; i < friends; i++) {
+            mostSigBits[i] = random.nextLong();
+            leastSigBits[i] = random.nextLong();
+            list.add(new UUID(mostSigBits[i], leastSigBits[i]));
+            set.add(mostSigBits[i], leastSigBits[i]);
+        }
+        // Half of the lookups hit, in an order unrelated to the insertion order
+        probes = new UUID[1024];
+        for (int i = 0; i < probes.length; i++) {
+            probes[i] = i % 2 == 0 ? list.get(random.nextInt(friends)) : new UUID(random.nextLong(), random.nextLong());
+        }
+    }
+
+    @Benchmark
+    public ArrayList<UUID> buildList() {
+        ArrayList<UUID> built = new ArrayList<>(friends);
+        for (int i = 0; i < friends; i++) built.add(new UUID(mostSigBits[i], leastSigBits[i]));
+        return built;
+    }
+
+    @Benchmark
+    public UuidSet buildSet() {
+        UuidSet built = new UuidSet(friends);
+        for (int i = 0; i < friends; i++) built.add(mostSigBits[i], leastSigBits[i]);
+        return built;
+    }
+
+    @Benchmark
+    public boolean listContains() {
+        return list.contains(probes[next++ & (probes.length - 1)]);
+    }
+
+    @Benchmark
+    public boolean setContains() {
+        return set.contains(probes[next++ & (probes.length - 1)]);
+    }
+}
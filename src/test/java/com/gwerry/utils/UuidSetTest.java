@@ -0,0 +1,164 @@
+/**
+ * @file UuidSetTest.java
+ * @author gwerry
+ * @brief Tests for UuidSet.
+ * @version 1.0
+ * @date 2026/10/18
+ *
+ * Copyright 2024 gwerry
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gwerry.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @brief Tests for UuidSet.
+ */
+public class UuidSetTest {
+
+    @Test
+    void addContainsRemove() {
+        UuidSet set = new UuidSet();
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+
+        assertTrue(set.isEmpty());
+        assertTrue(set.add(a));
+        assertFalse(set.add(a));
+        assertTrue(set.add(b));
+        assertEquals(2, set.size());
+        assertTrue(set.contains(a));
+
+        assertTrue(set.remove(a));
+        assertFalse(set.remove(a));
+        assertFalse(set.contains(a));
+        assertTrue(set.contains(b));
+        assertEquals(1, set.size());
+    }
+
+    @Test
+    void nilUuidIsAnOrdinaryMember() {
+        UuidSet set = new UuidSet();
+        UUID nil = new UUID(0, 0);
+
+        assertFalse(set.contains(nil));
+        assertTrue(set.add(nil));
+        assertFalse(set.add(nil));
+        assertTrue(set.contains(nil));
+        assertEquals(1, set.size());
+        assertEquals(nil, set.iterator().next());
+        assertTrue(set.remove(nil));
+        assertTrue(set.isEmpty());
+    }
+
+    @Test
+    void behavesLikeAHashSetUnderRandomChanges() {
+        Random random = new Random(42);
+        // Few distinct values, so adds and removes keep hitting the same probe runs
+        UUID[] values = new UUID[300];
+        for (int i = 0; i < values.length; i++) values[i] = new UUID(random.nextInt(64), random.nextLong());
+
+        UuidSet set = new UuidSet();
+        HashSet<UUID> expected = new HashSet<>();
+        for (int i = 0; i < 20000; i++) {
+            UUID value = values[random.nextInt(values.length)];
+            if (random.nextBoolean()) assertEquals(expected.add(value), set.add(value));
+            else assertEquals(expected.remove(value), set.remove(value));
+        }
+
+        assertEquals(expected.size(), set.size());
+        for (UUID value : values) assertEquals(expected.contains(value), set.contains(value));
+        assertEquals(expected, new HashSet<>(set.toList()));
+    }
+
+    @Test
+    void staysCorrectWhileGrowingThroughManyCapacities() {
+        Random random = new Random(7);
+        UuidSet set = new UuidSet();
+        HashSet<UUID> expected = new HashSet<>();
+        ArrayList<UUID> added = new ArrayList<>();
+
+        for (int i = 0; i < 5000; i++) {
+            UUID value = new UUID(random.nextLong(), random.nextLong());
+            added.add(value);
+            assertTrue(set.add(value));
+            expected.add(value);
+            // Removing every third one keeps probe runs that wrap around the end of the table moving
+            if (i % 3 == 0) {
+                UUID removed = added.get(random.nextInt(added.size()));
+                assertEquals(expected.remove(removed), set.remove(removed));
+            }
+        }
+
+        assertEquals(expected.size(), set.size());
+        for (UUID value : added) assertEquals(expected.contains(value), set.contains(value));
+        assertEquals(expected, new HashSet<>(set.toList()));
+    }
+
+    @Test
+    void iterationAndForEachVisitEveryEntryOnce() {
+        ArrayList<UUID> uuids = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) uuids.add(UUID.randomUUID());
+        uuids.add(new UUID(0, 0));
+        UuidSet set = new UuidSet(uuids);
+
+        ArrayList<UUID> iterated = new ArrayList<>();
+        for (UUID uuid : set) iterated.add(uuid);
+        ArrayList<UUID> visited = new ArrayList<>();
+        set.forEach((msb, lsb) -> visited.add(new UUID(msb, lsb)));
+
+        assertEquals(uuids.size(), iterated.size());
+        assertEquals(new HashSet<>(uuids), new HashSet<>(iterated));
+        assertEquals(new HashSet<>(uuids), new HashSet<>(visited));
+    }
+
+    @Test
+    void copyIsIndependent() {
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+        UuidSet set = new UuidSet();
+        set.add(a);
+
+        UuidSet copy = set.copy();
+        copy.add(b);
+        set.remove(a);
+
+        assertTrue(copy.contains(a));
+        assertTrue(copy.contains(b));
+        assertTrue(set.isEmpty());
+    }
+
+    @Test
+    void clearEmptiesTheSet() {
+        UuidSet set = new UuidSet(16);
+        for (int i = 0; i < 16; i++) set.add(UUID.randomUUID());
+        set.add(new UUID(0, 0));
+
+        set.clear();
+
+        assertTrue(set.isEmpty());
+        assertFalse(set.iterator().hasNext());
+        assertFalse(set.contains(new UUID(0, 0)));
+    }
+}